@@ -0,0 +1,92 @@
+package graph;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import util.ElevationGenerator;
+import util.GameMap;
+import util.MazeGenerator;
+import util.MazeGenerator.TileType;
+import util.Randomness;
+
+/**
+ * Measures the cost of building the graph of a maze from its tile grid.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MazeGraphBenchmark {
+
+    /**
+     * The width and height of the maze, in cells.
+     */
+    @Param({"10", "25", "50", "100", "200"})
+    int size;
+
+    /**
+     * The seed of the maze's randomness.
+     */
+    @Param({"2110"})
+    long seed;
+
+    /**
+     * The tile grid to build graphs of.
+     */
+    GameMap map;
+
+    @Setup
+    public void setUp() {
+        map = generateMap(size, seed);
+    }
+
+    /**
+     * Build the graph without a next-hop table.
+     */
+    @Benchmark
+    public MazeGraph construct() {
+        return new MazeGraph(map, 0);
+    }
+
+    /**
+     * Build the graph with the next-hop table budget that `BatchApp` and `GameFrame` use (so small
+     * boards include the cost of the table).
+     */
+    @Benchmark
+    public MazeGraph constructWithNextHops() {
+        return new MazeGraph(map, MazeGraph.SMALL_BOARD_NEXT_HOP_BUDGET);
+    }
+
+    /**
+     * Build the graph with a cluster hierarchy of `PathfindingBenchmark.CLUSTER_SIZE` tiles on a
+     * side (and without a next-hop table).
+     */
+    @Benchmark
+    public MazeGraph constructWithHierarchy() {
+        return new MazeGraph(map, 0, PathfindingBenchmark.CLUSTER_SIZE);
+    }
+
+    /**
+     * Return the tile grid that `GameModel.newGame()` would play on for a `size` x `size` board
+     * with randomness `new Randomness(seed)`.
+     */
+    static GameMap generateMap(int size, long seed) {
+        Randomness randomness = new Randomness(seed);
+        TileType[][] types = new MazeGenerator(size, size,
+                randomness.generatorFor("MazeGenerator")).generateMaze();
+        double[][] elevations = ElevationGenerator.generateElevations(3 * size + 2, 3 * size + 2,
+                randomness.generatorFor("ElevationGenerator"));
+        return new GameMap(types, elevations);
+    }
+}
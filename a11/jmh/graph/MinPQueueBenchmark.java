@@ -0,0 +1,91 @@
+package graph;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures a Dijkstra-like workload on the priority queues: add `n` elements, decrease the
+ * priorities of half of them, then remove everything.  Compares the generic `MinPQueue` with the
+ * primitive `IndexedMinHeap` on the same sequence of operations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MinPQueueBenchmark {
+
+    /**
+     * The number of elements added to the queue.
+     */
+    @Param({"1000", "100000"})
+    int n;
+
+    /**
+     * The seed of the priorities.
+     */
+    @Param({"2110"})
+    long seed;
+
+    Integer[] keys;
+    double[] priorities;
+    double[] decreasedPriorities;
+    IndexedMinHeap heap;
+
+    @Setup
+    public void setUp() {
+        Random rng = new Random(seed);
+        keys = new Integer[n];
+        priorities = new double[n];
+        decreasedPriorities = new double[n];
+        for (int k = 0; k < n; k++) {
+            keys[k] = k;
+            priorities[k] = rng.nextDouble();
+            decreasedPriorities[k] = priorities[k] * rng.nextDouble();
+        }
+        heap = new IndexedMinHeap(n);
+    }
+
+    @Benchmark
+    public int minPQueue() {
+        MinPQueue<Integer> queue = new MinPQueue<>();
+        for (int k = 0; k < n; k++) {
+            queue.addOrUpdate(keys[k], priorities[k]);
+        }
+        for (int k = 0; k < n; k += 2) {
+            queue.addOrUpdate(keys[k], decreasedPriorities[k]);
+        }
+        int sum = 0;
+        while (!queue.isEmpty()) {
+            sum += queue.remove();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int indexedMinHeap() {
+        for (int k = 0; k < n; k++) {
+            heap.addOrUpdate(k, priorities[k]);
+        }
+        for (int k = 0; k < n; k += 2) {
+            heap.addOrUpdate(k, decreasedPriorities[k]);
+        }
+        int sum = 0;
+        while (!heap.isEmpty()) {
+            sum += heap.remove();
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,163 @@
+package graph;
+
+import graph.MazeGraph.Corner;
+import graph.MazeGraph.MazeEdge;
+import graph.MazeGraph.MazeVertex;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures shortest-path searches over a maze graph, comparing the generic `Pathfinding.pathInfo()`
+ * with the primitive `DijkstraEngine`, with `JunctionSearch` over the contracted graph, and with
+ * `HierarchicalSearch` over a cluster hierarchy, and with the graph's cached `ReversePathTree`s
+ * to fixed destinations.  Each invocation searches from the next of a fixed set of random
+ * (source, previous edge, destination) queries.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PathfindingBenchmark {
+
+    /**
+     * The number of distinct queries cycled through.
+     */
+    private static final int NUM_QUERIES = 64;
+
+    /**
+     * The width and height (in tiles) of the clusters of the hierarchy searched.
+     */
+    static final int CLUSTER_SIZE = 24;
+
+    /**
+     * The width and height of the maze, in cells.
+     */
+    @Param({"10", "25", "50", "100", "200"})
+    int size;
+
+    /**
+     * The seed of the maze's randomness and of the queries.
+     */
+    @Param({"2110"})
+    long seed;
+
+    MazeGraph graph;
+    DijkstraEngine engine;
+    JunctionSearch junctionSearch;
+    HierarchicalSearch hierarchicalSearch;
+    MazeEdge[] previousEdges;
+    MazeVertex[] destinations;
+    int next;
+
+    @Setup
+    public void setUp() {
+        graph = new MazeGraph(MazeGraphBenchmark.generateMap(size, seed), 0, CLUSTER_SIZE);
+        engine = new DijkstraEngine(graph.compact());
+        junctionSearch = new JunctionSearch(graph.junctions());
+        hierarchicalSearch = new HierarchicalSearch(graph.hierarchy());
+        Random rng = new Random(seed);
+        previousEdges = new MazeEdge[NUM_QUERIES];
+        destinations = new MazeVertex[NUM_QUERIES];
+        for (int k = 0; k < NUM_QUERIES; k++) {
+            previousEdges[k] = graph.edge(rng.nextInt(graph.compact().edgeCount()));
+            destinations[k] = graph.vertex(rng.nextInt(graph.vertexCount()));
+        }
+    }
+
+    /**
+     * Advance to the next query and return its index.
+     */
+    private int nextQuery() {
+        next = (next + 1) % NUM_QUERIES;
+        return next;
+    }
+
+    /**
+     * Search the whole graph with the generic implementation.
+     */
+    @Benchmark
+    public Map<?, ?> pathInfo() {
+        MazeEdge prev = previousEdges[nextQuery()];
+        return Pathfinding.pathInfo(prev.head(), prev);
+    }
+
+    /**
+     * Search the whole graph with a reused engine.
+     */
+    @Benchmark
+    public int engineSearch() {
+        int prev = graph.edgeId(previousEdges[nextQuery()]);
+        engine.search(graph.compact().edgeHead(prev), prev);
+        return engine.settledCount();
+    }
+
+    /**
+     * Search for a single destination with A*, as ghosts do.
+     */
+    @Benchmark
+    public int engineAStar() {
+        int k = nextQuery();
+        int prev = graph.edgeId(previousEdges[k]);
+        engine.aStarSearchTo(graph.compact().edgeHead(prev), prev, destinations[k].id());
+        return engine.settledCount();
+    }
+
+    /**
+     * Search for a single destination over the graph's junctions.
+     */
+    @Benchmark
+    public int junctionSearch() {
+        int k = nextQuery();
+        int prev = graph.edgeId(previousEdges[k]);
+        junctionSearch.searchTo(graph.compact().edgeHead(prev), prev, destinations[k].id());
+        return junctionSearch.firstEdge();
+    }
+
+    /**
+     * Search for a single destination over the graph's junctions with A*, as rollouts' ghosts do.
+     */
+    @Benchmark
+    public int junctionAStar() {
+        int k = nextQuery();
+        int prev = graph.edgeId(previousEdges[k]);
+        junctionSearch.aStarSearchTo(graph.compact().edgeHead(prev), prev, destinations[k].id());
+        return junctionSearch.firstEdge();
+    }
+
+    /**
+     * Search for a single destination over the graph's cluster hierarchy.
+     */
+    @Benchmark
+    public int hierarchical() {
+        int k = nextQuery();
+        int prev = graph.edgeId(previousEdges[k]);
+        hierarchicalSearch.search(graph.compact().edgeHead(prev), prev, destinations[k].id());
+        return hierarchicalSearch.firstEdge();
+    }
+
+    /**
+     * Look up the first edge toward a flee corner in the graph's cached tree, as fleeing ghosts
+     * do (returning -1 where a search would be needed instead).
+     */
+    @Benchmark
+    public int destinationTree() {
+        int k = nextQuery();
+        int prev = graph.edgeId(previousEdges[k]);
+        ReversePathTree tree = graph.treeTo(graph.corner(Corner.values()[k % 4]).id());
+        return tree.firstEdge(graph.compact().edgeHead(prev), prev);
+    }
+}
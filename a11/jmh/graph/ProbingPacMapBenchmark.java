@@ -0,0 +1,68 @@
+package graph;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures `ProbingPacMap`: put `n` distinct pseudorandom keys (growing the table from empty), look
+ * each of them up, then remove half of them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProbingPacMapBenchmark {
+
+    /**
+     * The number of keys put in the map.
+     */
+    @Param({"1000", "100000"})
+    int n;
+
+    /**
+     * The seed of the keys.
+     */
+    @Param({"2110"})
+    long seed;
+
+    Integer[] keys;
+
+    @Setup
+    public void setUp() {
+        // Multiplying by an odd number permutes the ints, so the keys are distinct
+        int multiplier = new Random(seed).nextInt() | 1;
+        keys = new Integer[n];
+        for (int k = 0; k < n; k++) {
+            keys[k] = k * multiplier;
+        }
+    }
+
+    @Benchmark
+    public int putGetRemove() {
+        ProbingPacMap<Integer, Integer> map = new ProbingPacMap<>();
+        for (Integer key : keys) {
+            map.put(key, key);
+        }
+        int sum = 0;
+        for (Integer key : keys) {
+            sum += map.get(key);
+        }
+        for (int k = 0; k < n; k += 2) {
+            map.remove(keys[k]);
+        }
+        return sum + map.size();
+    }
+}
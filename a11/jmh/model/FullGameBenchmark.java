@@ -0,0 +1,61 @@
+package model;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import ui.BatchApp;
+import util.Randomness;
+
+/**
+ * Measures end-to-end throughput in games per second, playing games exactly as `BatchApp` does
+ * (generating the maze, then calling `updateActors()` with an unbounded timestep until the game
+ * ends).  Each invocation plays the next game of a seed sequence, so every run plays the same
+ * games in the same order.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class FullGameBenchmark {
+
+    /**
+     * The width and height of the maze, in cells.
+     */
+    @Param({"10", "20"})
+    int size;
+
+    /**
+     * The seed of the first game's randomness.
+     */
+    @Param({"2110"})
+    long seed;
+
+    Randomness randomness;
+    int gameIndex;
+
+    @Setup
+    public void setUp() {
+        randomness = new Randomness(seed);
+        gameIndex = 0;
+    }
+
+    @Benchmark
+    public int playGame() {
+        var controller = new BatchApp(GameModel.newGame(size, size, true,
+                randomness.advance(gameIndex)));
+        gameIndex += 1;
+        controller.play();
+        return controller.model().score();
+    }
+}
@@ -0,0 +1,74 @@
+package model;
+
+import java.util.concurrent.TimeUnit;
+import model.GameModel.GameState;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import util.Randomness;
+
+/**
+ * Measures `GameModel.updateActors()` advancing an AI game by one frame (as `GameFrame` does),
+ * including navigation, event scheduling, and collision handling.  Run with `-prof gc` to see the
+ * allocation per frame.  When a game ends, the next game in the seed sequence is started, so a
+ * small fraction of invocations include constructing a game.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GameModelBenchmark {
+
+    /**
+     * Game time advanced by each invocation, in ms (one frame of `GameFrame`).
+     */
+    private static final double FRAME_DURATION = 16;
+
+    /**
+     * The width and height of the maze, in cells.
+     */
+    @Param({"10", "25", "50"})
+    int size;
+
+    /**
+     * The number of ghosts in addition to the usual four.
+     */
+    @Param({"0", "50"})
+    int extraGhosts;
+
+    /**
+     * The seed of the first game's randomness.
+     */
+    @Param({"2110"})
+    long seed;
+
+    Randomness randomness;
+    GameModel model;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        randomness = new Randomness(seed);
+        model = GameModel.newGame(size, size, true, randomness, extraGhosts);
+    }
+
+    @Benchmark
+    public double updateActors() {
+        if (model.state() == GameState.VICTORY || model.state() == GameState.DEFEAT) {
+            randomness = randomness.next();
+            model = GameModel.newGame(size, size, true, randomness, extraGhosts);
+        }
+        model.updateActors(FRAME_DURATION);
+        return model.time();
+    }
+}
@@ -0,0 +1,56 @@
+package util;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import util.ElevationGenerator.Elevations;
+
+/**
+ * Measures the cost of generating the elevations of a maze's tiles.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ElevationGeneratorBenchmark {
+
+    /**
+     * The width and height of the maze, in cells (each of which is 3 tiles across).
+     */
+    @Param({"10", "100", "1000"})
+    int size;
+
+    /**
+     * The seed of the generator's randomness.
+     */
+    @Param({"2110"})
+    long seed;
+
+    /**
+     * Generate the elevations of every tile of a `size` x `size` maze.
+     */
+    @Benchmark
+    public double[][] generateElevations() {
+        return ElevationGenerator.generateElevations(3 * size + 2, 3 * size + 2,
+                new Random(seed));
+    }
+
+    /**
+     * Prepare to compute elevations lazily, which includes finding their range.
+     */
+    @Benchmark
+    public Elevations lazyElevations() {
+        return ElevationGenerator.lazyElevations(3 * size + 2, 3 * size + 2, new Random(seed));
+    }
+}
@@ -0,0 +1,47 @@
+package util;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import util.MazeGenerator.TileType;
+
+/**
+ * Measures the cost of generating a maze's tile grid.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MazeGeneratorBenchmark {
+
+    /**
+     * The width and height of the maze, in cells.
+     */
+    @Param({"10", "100", "1000"})
+    int size;
+
+    /**
+     * The seed of the generator's randomness.
+     */
+    @Param({"2110"})
+    long seed;
+
+    /**
+     * Generate a `size` x `size` maze.
+     */
+    @Benchmark
+    public TileType[][] generateMaze() {
+        return new MazeGenerator(size, size, new Random(seed)).generateMaze();
+    }
+}
@@ -0,0 +1,583 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A two-level abstraction of a `CompactMazeGraph` for hierarchical (HPA*-style) pathfinding on
+ * very large mazes.  The tile grid is partitioned into square clusters of `clusterSize` tiles on a
+ * side (smaller along the right and bottom edges of the grid).  The edges whose tail and head lie
+ * in different clusters are the boundary edges, identified by dense ids in
+ * `[0..boundaryCount())`; tunnel edges that wrap around the grid are boundary edges like any
+ * other.  Each boundary edge is an exit of its tail's cluster and an entrance of its head's.
+ * <p>
+ * Paths are tracked by the edge just traversed rather than by the vertex reached, so that the
+ * non-backtracking rule carries across cluster boundaries exactly.  For every cluster, the table
+ * built at construction holds the length of the shortest non-backtracking walk that starts by
+ * arriving along each entrance, stays inside the cluster, and leaves along each exit (including
+ * the exit's own weight).  Clusters are independent of each other, so the tables are computed in
+ * parallel on the common fork/join pool.  `HierarchicalSearch` answers queries from them.
+ * <p>
+ * A hierarchy is immutable once constructed, so any number of threads may search it at once.
+ */
+public final class ClusterHierarchy {
+
+    /**
+     * Number of clusters whose tables are computed by each leaf task of the parallel build.
+     */
+    private static final int CLUSTERS_PER_TASK = 16;
+
+    /**
+     * How much `distanceLowerBound()` gives up to cover rounding in the potentials.
+     */
+    private static final double POTENTIAL_TOLERANCE = 1e-9;
+
+    /**
+     * The graph being abstracted.
+     */
+    private final CompactMazeGraph graph;
+
+    /**
+     * The width and height (in tiles) of every full-sized cluster.
+     */
+    private final int clusterSize;
+
+    /**
+     * The number of columns of clusters.
+     */
+    private final int clustersAcross;
+
+    /**
+     * The number of clusters.
+     */
+    private final int clusterCount;
+
+    /**
+     * The cluster containing each vertex.
+     */
+    private final int[] vertexCluster;
+
+    /**
+     * The index of each vertex among the vertices of its cluster (in id order).
+     */
+    private final int[] vertexIndex;
+
+    /**
+     * The largest number of vertices in any cluster.
+     */
+    private final int maxClusterVertices;
+
+    /**
+     * The id in `graph` of each boundary edge.
+     */
+    private final int[] boundaryEdges;
+
+    /**
+     * The boundary id of each edge of `graph`, or -1 if its ends lie in the same cluster.
+     */
+    private final int[] edgeBoundary;
+
+    /**
+     * The entrances of cluster `c` are `entrances[entranceStarts[c]..entranceStarts[c+1])`, and
+     * its exits are `exits[exitStarts[c]..exitStarts[c+1])`, both as boundary ids.
+     */
+    private final int[] entranceStarts;
+    private final int[] entrances;
+    private final int[] exitStarts;
+    private final int[] exits;
+
+    /**
+     * The index of each boundary edge among the entrances of its head's cluster.
+     */
+    private final int[] entranceIndex;
+
+    /**
+     * The largest number of entrances of any cluster.
+     */
+    private final int maxEntrances;
+
+    /**
+     * The table of cluster `c` starts at `costs[tableStarts[c]]`.  Its entry for entrance `i` and
+     * exit `j` (indices within the cluster) is at offset `i * exitCount(c) + j`, and is
+     * POSITIVE_INFINITY if the exit cannot be reached from the entrance within the cluster.
+     */
+    private final int[] tableStarts;
+    private final double[] costs;
+
+    /**
+     * A potential for each vertex, and the least weight that any edge has beyond the rise in
+     * potential along it.  Edge weights grow with elevation gain, so potentials that follow the
+     * weights along a spanning tree track elevation, and a path's weight is at least its number of
+     * edges times `edgeSlack` plus the potential gained (see `distanceLowerBound()`).
+     */
+    private final double[] potential;
+    private final double edgeSlack;
+
+    /**
+     * Partition `graph` into clusters of `clusterSize` x `clusterSize` tiles and compute the
+     * cost of crossing each of them.  Requires `clusterSize > 0`.
+     */
+    public ClusterHierarchy(CompactMazeGraph graph, int clusterSize) {
+        assert clusterSize > 0;
+        this.graph = graph;
+        this.clusterSize = clusterSize;
+        clustersAcross = (graph.width() + clusterSize - 1) / clusterSize;
+        int clustersDown = (graph.height() + clusterSize - 1) / clusterSize;
+        clusterCount = clustersAcross * clustersDown;
+
+        // Number the vertices of each cluster
+        int n = graph.vertexCount();
+        vertexCluster = new int[n];
+        vertexIndex = new int[n];
+        int[] clusterSizes = new int[clusterCount];
+        int largest = 0;
+        for (int v = 0; v < n; v++) {
+            int c = (graph.row(v) / clusterSize) * clustersAcross + graph.column(v) / clusterSize;
+            vertexCluster[v] = c;
+            vertexIndex[v] = clusterSizes[c]++;
+            largest = Math.max(largest, clusterSizes[c]);
+        }
+        maxClusterVertices = largest;
+
+        // Number the boundary edges, and list each cluster's entrances and exits
+        int m = graph.edgeCount();
+        edgeBoundary = new int[m];
+        entranceStarts = new int[clusterCount + 1];
+        exitStarts = new int[clusterCount + 1];
+        int numBoundary = 0;
+        for (int e = 0; e < m; e++) {
+            int tailCluster = vertexCluster[graph.edgeTail(e)];
+            int headCluster = vertexCluster[graph.edgeHead(e)];
+            if (tailCluster == headCluster) {
+                edgeBoundary[e] = -1;
+            } else {
+                edgeBoundary[e] = numBoundary++;
+                entranceStarts[headCluster + 1]++;
+                exitStarts[tailCluster + 1]++;
+            }
+        }
+        boundaryEdges = new int[numBoundary];
+        entrances = new int[numBoundary];
+        exits = new int[numBoundary];
+        entranceIndex = new int[numBoundary];
+        int mostEntrances = 0;
+        for (int c = 0; c < clusterCount; c++) {
+            mostEntrances = Math.max(mostEntrances, entranceStarts[c + 1]);
+            entranceStarts[c + 1] += entranceStarts[c];
+            exitStarts[c + 1] += exitStarts[c];
+        }
+        maxEntrances = mostEntrances;
+        int[] entranceCounts = new int[clusterCount];
+        int[] exitCounts = new int[clusterCount];
+        for (int e = 0; e < m; e++) {
+            int b = edgeBoundary[e];
+            if (b == -1) {
+                continue;
+            }
+            boundaryEdges[b] = e;
+            int headCluster = vertexCluster[graph.edgeHead(e)];
+            int tailCluster = vertexCluster[graph.edgeTail(e)];
+            entranceIndex[b] = entranceCounts[headCluster]++;
+            entrances[entranceStarts[headCluster] + entranceIndex[b]] = b;
+            exits[exitStarts[tailCluster] + exitCounts[tailCluster]++] = b;
+        }
+
+        tableStarts = new int[clusterCount];
+        int tableSize = 0;
+        for (int c = 0; c < clusterCount; c++) {
+            tableStarts[c] = tableSize;
+            tableSize = Math.addExact(tableSize, entranceCount(c) * exitCount(c));
+        }
+        costs = new double[tableSize];
+        ForkJoinPool.commonPool().invoke(new BuildTables(0, clusterCount));
+
+        // Vertex ids are in breadth-first order, so each vertex after the first is discovered by
+        // an edge from a vertex whose potential is already set
+        potential = new double[n];
+        boolean[] assigned = new boolean[n];
+        assigned[0] = true;
+        double slack = Double.POSITIVE_INFINITY;
+        for (int v = 0; v < n; v++) {
+            for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e++) {
+                int head = graph.edgeHead(e);
+                if (!assigned[head]) {
+                    potential[head] = potential[v] + graph.edgeWeight(e) - 1;
+                    assigned[head] = true;
+                }
+            }
+        }
+        for (int e = 0; e < m; e++) {
+            slack = Math.min(slack, graph.edgeWeight(e) - potential[graph.edgeHead(e)]
+                    + potential[graph.edgeTail(e)]);
+        }
+        edgeSlack = slack;
+    }
+
+    /**
+     * Computes the tables of clusters `[begin..end)`, splitting the range among subtasks if it
+     * is large.
+     */
+    private class BuildTables extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int begin;
+        private final int end;
+
+        BuildTables(int begin, int end) {
+            this.begin = begin;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - begin > CLUSTERS_PER_TASK) {
+                int mid = (begin + end) >>> 1;
+                invokeAll(new BuildTables(begin, mid), new BuildTables(mid, end));
+                return;
+            }
+            LocalSearch search = new LocalSearch(ClusterHierarchy.this);
+            for (int c = begin; c < end; c++) {
+                buildTable(c, search);
+            }
+        }
+    }
+
+    /**
+     * Fill in the table of cluster `c` using `search`.
+     */
+    private void buildTable(int c, LocalSearch search) {
+        int numExits = exitCount(c);
+        for (int i = 0; i < entranceCount(c); i++) {
+            int entrance = boundaryEdges[entrances[entranceStarts[c] + i]];
+            search.forward(c, graph.edgeHead(entrance), graph.edgeTail(entrance), -1);
+            int row = tableStarts[c] + i * numExits;
+            for (int j = 0; j < numExits; j++) {
+                int exit = boundaryEdges[exits[exitStarts[c] + j]];
+                costs[row + j] = search.distance(search.state(c, exit));
+            }
+        }
+    }
+
+    /* ****************************************************************
+     * Accessors                                                      *
+     **************************************************************** */
+
+    /**
+     * Return the graph being abstracted.
+     */
+    public CompactMazeGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Return the width and height (in tiles) of every full-sized cluster.
+     */
+    public int clusterSize() {
+        return clusterSize;
+    }
+
+    /**
+     * Return the number of clusters.
+     */
+    public int clusterCount() {
+        return clusterCount;
+    }
+
+    /**
+     * Return the cluster containing vertex `v`.
+     */
+    public int cluster(int v) {
+        return vertexCluster[v];
+    }
+
+    /**
+     * Return the number of boundary edges.
+     */
+    public int boundaryCount() {
+        return boundaryEdges.length;
+    }
+
+    /**
+     * Return the id in `graph()` of boundary edge `b`.
+     */
+    public int boundaryEdge(int b) {
+        return boundaryEdges[b];
+    }
+
+    /**
+     * Return the boundary id of edge `e` of `graph()`, or -1 if it does not leave its cluster.
+     */
+    public int boundaryId(int e) {
+        return edgeBoundary[e];
+    }
+
+    /**
+     * Return the number of entrances of cluster `c`.
+     */
+    public int entranceCount(int c) {
+        return entranceStarts[c + 1] - entranceStarts[c];
+    }
+
+    /**
+     * Return the number of exits of cluster `c`.
+     */
+    public int exitCount(int c) {
+        return exitStarts[c + 1] - exitStarts[c];
+    }
+
+    /**
+     * Return the boundary id of the `j`th exit of cluster `c`.
+     */
+    public int exit(int c, int j) {
+        return exits[exitStarts[c] + j];
+    }
+
+    /**
+     * Return the index of boundary edge `b` among the entrances of its head's cluster.
+     */
+    public int entranceIndex(int b) {
+        return entranceIndex[b];
+    }
+
+    /**
+     * Return the length of the shortest non-backtracking walk within cluster `c` that arrives
+     * along its `i`th entrance and leaves along its `j`th exit, including the exit's weight, or
+     * POSITIVE_INFINITY if there is none.
+     */
+    public double crossingCost(int c, int i, int j) {
+        return costs[tableStarts[c] + i * exitCount(c) + j];
+    }
+
+    /**
+     * Return a lower bound on the length of any path from vertex `v` to vertex `w`, at least as
+     * large as `graph().distanceLowerBound(v, w)`.  A path with `k` edges gains
+     * `potential[w] - potential[v]` in potential and weighs at least `edgeSlack` more than that
+     * per edge, and `k` is at least the (wrap-around) Manhattan distance between the tiles.  The
+     * bound is consistent, so A* may stop at the first path to its destination that it settles.
+     */
+    public double distanceLowerBound(int v, int w) {
+        double bound = graph.distanceLowerBound(v, w);
+        if (edgeSlack > 0) {
+            double steps = bound / MazeGraph.MIN_EDGE_WEIGHT;
+            bound = Math.max(bound, steps * edgeSlack + potential[w] - potential[v]
+                    - POTENTIAL_TOLERANCE);
+        }
+        return bound;
+    }
+
+    /**
+     * Return the approximate number of bytes occupied by this hierarchy's arrays.
+     */
+    public long memoryBytes() {
+        return 4L * (vertexCluster.length + vertexIndex.length + boundaryEdges.length
+                + edgeBoundary.length + entranceStarts.length + entrances.length
+                + exitStarts.length + exits.length + entranceIndex.length + tableStarts.length)
+                + 8L * (costs.length + potential.length);
+    }
+
+    /* ****************************************************************
+     * Searches within a cluster                                      *
+     **************************************************************** */
+
+    /**
+     * Shortest non-backtracking walks confined to one cluster, with the storage to find them
+     * reused from search to search.  A walk's state is the edge it last traversed.  Edges leaving
+     * from a vertex of the cluster are numbered `4 * vertexIndex(tail) + direction`, and entrances
+     * of the cluster follow those of the largest cluster, so that one search fits every cluster.
+     * Not thread-safe.
+     */
+    static final class LocalSearch {
+
+        private final ClusterHierarchy hierarchy;
+        private final CompactMazeGraph graph;
+
+        /**
+         * The state number of the first entrance.
+         */
+        private final int entranceBase;
+
+        /**
+         * The edge of each state, and the cost found for it (`forward()`: of the walk from the
+         * start through that edge; `backward()`: of the walk after that edge to the
+         * destination).  Only meaningful for states whose `reachedStamp` is the current epoch.
+         */
+        private final int[] stateEdge;
+        private final double[] dist;
+
+        /**
+         * The state before (`forward()`) or after (`backward()`) each state on its best walk, or
+         * -1 at the walk's start or end.
+         */
+        private final int[] link;
+
+        private final int[] reachedStamp;
+        private final IndexedMinHeap frontier;
+        private int epoch;
+
+        /**
+         * The cluster of the most recent search.
+         */
+        private int cluster;
+
+        /**
+         * The first state of the most recent `forward()` search to arrive at its destination,
+         * or -1 if none did.
+         */
+        private int arrival;
+
+        LocalSearch(ClusterHierarchy hierarchy) {
+            this.hierarchy = hierarchy;
+            graph = hierarchy.graph;
+            entranceBase = 4 * hierarchy.maxClusterVertices;
+            int states = entranceBase + hierarchy.maxEntrances;
+            stateEdge = new int[states];
+            dist = new double[states];
+            link = new int[states];
+            reachedStamp = new int[states];
+            frontier = new IndexedMinHeap(states);
+        }
+
+        /**
+         * Return the state number of edge `e` in cluster `c`.  Requires that `e` leaves from a
+         * vertex of `c` or is one of its entrances.
+         */
+        int state(int c, int e) {
+            int tail = graph.edgeTail(e);
+            if (hierarchy.vertexCluster[tail] == c) {
+                return 4 * hierarchy.vertexIndex[tail] + graph.edgeDirection(e).ordinal();
+            }
+            return entranceBase + hierarchy.entranceIndex[hierarchy.edgeBoundary[e]];
+        }
+
+        /**
+         * Find the shortest non-backtracking walks within cluster `c` from vertex `start` whose
+         * first edge does not lead to `forbiddenHead` (which may be -1).  Walks end when they
+         * leave the cluster or arrive at vertex `dst` (if it is not -1).
+         */
+        void forward(int c, int start, int forbiddenHead, int dst) {
+            begin(c);
+            arrival = -1;
+            for (int e = graph.edgeStart(start); e < graph.edgeEnd(start); e++) {
+                if (graph.edgeHead(e) != forbiddenHead) {
+                    offer(state(c, e), e, graph.edgeWeight(e), -1);
+                }
+            }
+            while (!frontier.isEmpty()) {
+                int s = frontier.remove();
+                int last = stateEdge[s];
+                int at = graph.edgeHead(last);
+                if (hierarchy.vertexCluster[at] != c) {
+                    continue;
+                }
+                if (at == dst) {
+                    if (arrival == -1) {
+                        arrival = s;
+                    }
+                    continue;
+                }
+                int behind = graph.edgeTail(last);
+                for (int e = graph.edgeStart(at); e < graph.edgeEnd(at); e++) {
+                    if (graph.edgeHead(e) != behind) {
+                        offer(state(c, e), e, dist[s] + graph.edgeWeight(e), s);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Find, for every edge leaving from a vertex of cluster `c` or entering it, the shortest
+         * non-backtracking walk within `c` that continues from that edge to vertex `dst` (a
+         * vertex of `c`).
+         */
+        void backward(int c, int dst) {
+            begin(c);
+            for (int out = graph.edgeStart(dst); out < graph.edgeEnd(dst); out++) {
+                int e = graph.reverseEdge(out);
+                offer(state(c, e), e, 0.0, -1);
+            }
+            while (!frontier.isEmpty()) {
+                int s = frontier.remove();
+                int next = stateEdge[s];
+                int at = graph.edgeTail(next);
+                if (hierarchy.vertexCluster[at] != c) {
+                    continue; // an entrance
+                }
+                double cost = dist[s] + graph.edgeWeight(next);
+                int ahead = graph.edgeHead(next);
+                for (int out = graph.edgeStart(at); out < graph.edgeEnd(at); out++) {
+                    // The edge arriving at `at` from the neighbor across `out`
+                    int e = graph.reverseEdge(out);
+                    if (graph.edgeTail(e) != ahead) {
+                        offer(state(c, e), e, cost, s);
+                    }
+                }
+            }
+        }
+
+        /**
+         * Start a search of cluster `c`.
+         */
+        private void begin(int c) {
+            cluster = c;
+            epoch += 1;
+            if (epoch == Integer.MAX_VALUE) {
+                Arrays.fill(reachedStamp, 0);
+                epoch = 1;
+            }
+            frontier.clear();
+        }
+
+        /**
+         * Record a walk to state `s` (edge `e`) of cost `cost` linked to state `from`, if it is
+         * an improvement.
+         */
+        private void offer(int s, int e, double cost, int from) {
+            if (reachedStamp[s] != epoch || cost < dist[s]) {
+                reachedStamp[s] = epoch;
+                stateEdge[s] = e;
+                dist[s] = cost;
+                link[s] = from;
+                frontier.addOrUpdate(s, cost);
+            }
+        }
+
+        /**
+         * Return the cluster of the most recent search.
+         */
+        int cluster() {
+            return cluster;
+        }
+
+        /**
+         * Return the cost found for state `s` by the most recent search, or POSITIVE_INFINITY if
+         * it was not reached.
+         */
+        double distance(int s) {
+            return reachedStamp[s] == epoch ? dist[s] : Double.POSITIVE_INFINITY;
+        }
+
+        /**
+         * Return the first state of the most recent `forward()` search to arrive at its
+         * destination, or -1 if none did.
+         */
+        int arrival() {
+            return arrival;
+        }
+
+        /**
+         * Return the state linked to state `s` by the most recent search (see `link`).
+         */
+        int link(int s) {
+            return link[s];
+        }
+
+        /**
+         * Return the edge of state `s` in the most recent search.
+         */
+        int edge(int s) {
+            return stateEdge[s];
+        }
+    }
+}
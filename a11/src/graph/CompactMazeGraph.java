@@ -0,0 +1,404 @@
+package graph;
+
+import graph.MazeGraph.Direction;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import util.GameMap;
+import util.MazeGenerator.TileType;
+
+/**
+ * A compact, array-backed representation of the graph connecting the "path" tiles of a tile grid.
+ * Each vertex is identified by a dense int id in `[0..vertexCount())`, assigned in the order that a
+ * breadth-first search from tile (2, 2) discovers it.  Outgoing edges are stored in
+ * compressed-sparse-row (CSR) form: the edges leaving vertex `v` have the ids
+ * `[edgeStart(v)..edgeEnd(v))`, and are ordered by direction (LEFT, RIGHT, UP, DOWN).
+ * <p>
+ * Tiles are identified by their row-major tile index `j * width + i`.
+ * <p>
+ * The edge order decides ties: searches and AIs that scan a vertex's edges in id order break ties
+ * between equally good edges in favor of LEFT, then RIGHT, UP, and DOWN.  The `MazeGraph` that
+ * this representation replaced kept each vertex's edges in a `HashMap`, whose order was different,
+ * so a given seed plays a different game than it did before.
+ * <p>
+ * Searches that care about speed should use the primitive accessors directly; the `Node` and `Arc`
+ * flyweights expose the same graph through the generic `Vertex` and `WeightedEdge` interfaces.
+ */
+public final class CompactMazeGraph {
+
+    /**
+     * A (flyweight) view of vertex `id` of `graph`.
+     */
+    public record Node(CompactMazeGraph graph, int id) implements Vertex<Arc> {
+
+        @Override
+        public Iterable<Arc> outgoingEdges() {
+            int start = graph.edgeStart(id);
+            int count = graph.edgeEnd(id) - start;
+            return new AbstractList<>() {
+                @Override
+                public Arc get(int k) {
+                    return new Arc(graph, start + k);
+                }
+
+                @Override
+                public int size() {
+                    return count;
+                }
+            };
+        }
+
+        @Override
+        public String toString() {
+            return "Node(" + graph.column(id) + "," + graph.row(id) + ")";
+        }
+    }
+
+    /**
+     * A (flyweight) view of directed edge `id` of `graph`.
+     */
+    public record Arc(CompactMazeGraph graph, int id) implements WeightedEdge<Node> {
+
+        @Override
+        public Node tail() {
+            return new Node(graph, graph.edgeTail(id));
+        }
+
+        @Override
+        public Node head() {
+            return new Node(graph, graph.edgeHead(id));
+        }
+
+        @Override
+        public double weight() {
+            return graph.edgeWeight(id);
+        }
+
+        /**
+         * Return the direction that this edge points in on the tile grid.
+         */
+        public Direction direction() {
+            return graph.edgeDirection(id);
+        }
+    }
+
+    /**
+     * Cached result of `Direction.values()`, to avoid copying the array on every lookup.
+     */
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /**
+     * The width of the tile grid defining this maze.
+     */
+    private final int width;
+
+    /**
+     * The height of the tile grid defining this maze.
+     */
+    private final int height;
+
+    /**
+     * The number of vertices in this graph.
+     */
+    private final int vertexCount;
+
+    /**
+     * The number of (directed) edges in this graph.
+     */
+    private final int edgeCount;
+
+    /**
+     * The id of the vertex on each tile (by row-major tile index), or -1 if that tile is not a
+     * reachable path tile.
+     */
+    private final int[] tileVertex;
+
+    /**
+     * The row-major tile index of each vertex.
+     */
+    private final int[] vertexTile;
+
+    /**
+     * The edges leaving vertex `v` are `[offsets[v]..offsets[v+1])`.  Length is `vertexCount + 1`.
+     */
+    private final int[] offsets;
+
+    /**
+     * The tail vertex of each edge.
+     */
+    private final int[] tails;
+
+    /**
+     * The head vertex of each edge.
+     */
+    private final int[] heads;
+
+    /**
+     * The ordinal of the `Direction` of each edge.
+     */
+    private final byte[] directions;
+
+    /**
+     * The weight of each edge.  Stored at full precision so that searches over this graph agree
+     * exactly with searches over the equivalent `MazeGraph`.
+     */
+    private final double[] weights;
+
+    /**
+     * The id of the edge pointing in the opposite direction of each edge (every edge in a maze
+     * graph has a reverse).
+     */
+    private final int[] reverses;
+
+    /**
+     * Construct the compact graph corresponding to the tile grid `map`, under the same
+     * requirements as the `MazeGraph` constructor.
+     */
+    public CompactMazeGraph(GameMap map) {
+        TileType[][] tileTypes = map.types();
+        double[][] elevations = map.elevations();
+        width = tileTypes.length;
+        height = tileTypes[0].length;
+        assert tileTypes[2][2] == TileType.PATH;
+
+        tileVertex = new int[width * height];
+        Arrays.fill(tileVertex, -1);
+
+        // Vertex ids are assigned in discovery order, so `vertexTile` doubles as the BFS queue, and
+        // the edges of each vertex are appended in id order, as CSR requires.
+        int[] order = new int[width * height];
+        int[] edgeOffsets = new int[width * height + 1];
+        int[] edgeHeads = new int[4 * width * height];
+        byte[] edgeDirections = new byte[4 * width * height];
+        double[] edgeWeights = new double[4 * width * height];
+        int numVertices = 0;
+        int numEdges = 0;
+
+        int startTile = 2 * width + 2;
+        tileVertex[startTile] = numVertices;
+        order[numVertices++] = startTile;
+
+        for (int v = 0; v < numVertices; v++) {
+            edgeOffsets[v] = numEdges;
+            int tile = order[v];
+            int i = tile % width;
+            int j = tile / width;
+            for (Direction d : DIRECTIONS) {
+                int ni = switch (d) {
+                    case LEFT -> (i - 1 + width) % width;
+                    case RIGHT -> (i + 1) % width;
+                    default -> i;
+                };
+                int nj = switch (d) {
+                    case UP -> (j - 1 + height) % height;
+                    case DOWN -> (j + 1) % height;
+                    default -> j;
+                };
+                if (tileTypes[ni][nj] != TileType.PATH) {
+                    continue;
+                }
+                int neighborTile = nj * width + ni;
+                if (tileVertex[neighborTile] < 0) {
+                    tileVertex[neighborTile] = numVertices;
+                    order[numVertices++] = neighborTile;
+                }
+                edgeHeads[numEdges] = tileVertex[neighborTile];
+                edgeDirections[numEdges] = (byte) d.ordinal();
+                edgeWeights[numEdges] = MazeGraph.edgeWeight(elevations[i][j],
+                        elevations[ni][nj]);
+                numEdges++;
+            }
+        }
+        edgeOffsets[numVertices] = numEdges;
+
+        vertexCount = numVertices;
+        edgeCount = numEdges;
+        vertexTile = Arrays.copyOf(order, numVertices);
+        offsets = Arrays.copyOf(edgeOffsets, numVertices + 1);
+        heads = Arrays.copyOf(edgeHeads, numEdges);
+        directions = Arrays.copyOf(edgeDirections, numEdges);
+        weights = Arrays.copyOf(edgeWeights, numEdges);
+
+        tails = new int[numEdges];
+        for (int v = 0; v < numVertices; v++) {
+            Arrays.fill(tails, offsets[v], offsets[v + 1], v);
+        }
+        reverses = new int[numEdges];
+        for (int e = 0; e < numEdges; e++) {
+            reverses[e] = edgeInDirection(heads[e], DIRECTIONS[directions[e]].reverse());
+            assert reverses[e] >= 0;
+        }
+    }
+
+    /* ****************************************************************
+     * Vertex accessors                                               *
+     **************************************************************** */
+
+    /**
+     * Return the width of the tile grid defining this maze.
+     */
+    public int width() {
+        return width;
+    }
+
+    /**
+     * Return the height of the tile grid defining this maze.
+     */
+    public int height() {
+        return height;
+    }
+
+    /**
+     * Return the number of vertices in this graph.
+     */
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * Return the number of (directed) edges in this graph.
+     */
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Return the id of the vertex on tile `(i, j)`, or -1 if that tile is not a reachable path
+     * tile (or lies outside the grid).
+     */
+    public int vertexAt(int i, int j) {
+        if (i < 0 || i >= width || j < 0 || j >= height) {
+            return -1;
+        }
+        return tileVertex[j * width + i];
+    }
+
+    /**
+     * Return the id of the vertex on the tile with row-major index `tile`, or -1 if there is none.
+     */
+    public int vertexOnTile(int tile) {
+        return tileVertex[tile];
+    }
+
+    /**
+     * Return the row-major tile index of vertex `v`.
+     */
+    public int tile(int v) {
+        return vertexTile[v];
+    }
+
+    /**
+     * Return the column of vertex `v`'s tile.
+     */
+    public int column(int v) {
+        return vertexTile[v] % width;
+    }
+
+    /**
+     * Return the row of vertex `v`'s tile.
+     */
+    public int row(int v) {
+        return vertexTile[v] / width;
+    }
+
+    /**
+     * Return a lower bound on the length of any path from vertex `v` to vertex `w`: the Manhattan
+     * distance between their tiles, allowing for wrapping around the grid through tunnels, times
+     * the smallest possible edge weight.
+     */
+    public double distanceLowerBound(int v, int w) {
+        int di = Math.abs(column(v) - column(w));
+        int dj = Math.abs(row(v) - row(w));
+        di = Math.min(di, width - di);
+        dj = Math.min(dj, height - dj);
+        return (di + dj) * MazeGraph.MIN_EDGE_WEIGHT;
+    }
+
+    /**
+     * Return a flyweight view of vertex `v`.
+     */
+    public Node node(int v) {
+        return new Node(this, v);
+    }
+
+    /* ****************************************************************
+     * Edge accessors                                                 *
+     **************************************************************** */
+
+    /**
+     * Return the id of the first edge leaving vertex `v`.
+     */
+    public int edgeStart(int v) {
+        return offsets[v];
+    }
+
+    /**
+     * Return one more than the id of the last edge leaving vertex `v`.
+     */
+    public int edgeEnd(int v) {
+        return offsets[v + 1];
+    }
+
+    /**
+     * Return the id of the edge leaving vertex `v` in direction `direction`, or -1 if there is no
+     * such edge.
+     */
+    public int edgeInDirection(int v, Direction direction) {
+        for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+            if (directions[e] == direction.ordinal()) {
+                return e;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Return the tail vertex of edge `e`.
+     */
+    public int edgeTail(int e) {
+        return tails[e];
+    }
+
+    /**
+     * Return the head vertex of edge `e`.
+     */
+    public int edgeHead(int e) {
+        return heads[e];
+    }
+
+    /**
+     * Return the weight of edge `e`.
+     */
+    public double edgeWeight(int e) {
+        return weights[e];
+    }
+
+    /**
+     * Return the direction of edge `e`.
+     */
+    public Direction edgeDirection(int e) {
+        return DIRECTIONS[directions[e]];
+    }
+
+    /**
+     * Return the id of the edge pointing from `edgeHead(e)` to `edgeTail(e)`.
+     */
+    public int reverseEdge(int e) {
+        return reverses[e];
+    }
+
+    /**
+     * Return a flyweight view of edge `e`.
+     */
+    public Arc arc(int e) {
+        return new Arc(this, e);
+    }
+
+    /**
+     * Return the approximate number of bytes occupied by this graph's arrays.
+     */
+    public long memoryBytes() {
+        return 4L * (tileVertex.length + vertexTile.length + offsets.length + tails.length
+                + heads.length + reverses.length) + directions.length + 8L * weights.length;
+    }
+}
@@ -0,0 +1,305 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * Computes shortest non-backtracking paths over a `CompactMazeGraph` using only primitive arrays
+ * indexed by vertex id.  An engine owns its working storage and reuses it for every search, so it
+ * does not allocate after construction.  Per-vertex results are tagged with the search that wrote
+ * them (epoch stamping), so starting a search does not require clearing any arrays.  The results of
+ * the most recent search remain queryable until the next search starts.
+ * <p>
+ * Searches follow the same rules as `Pathfinding.pathInfo()`: the first edge may not backtrack
+ * `previousEdge`, no edge may backtrack the edge used to reach its tail, and distances are only
+ * updated when strictly improved.  Together with `IndexedMinHeap` mirroring `MinPQueue`, this
+ * makes the engine choose the same paths as the generic implementation.
+ * <p>
+ * Besides exhaustive searches, an engine supports targeted searches that stop as soon as their
+ * destination is settled.  These return the same path to the destination as an exhaustive search,
+ * but leave distances final only for vertices that were settled.  The A* variant additionally
+ * orders the frontier by a lower bound on the remaining distance, which settles far fewer vertices
+ * when the destination is close.
+ * <p>
+ * An engine is not thread-safe; concurrent searches need separate engines.
+ */
+public class DijkstraEngine {
+
+    /**
+     * The graph being searched.
+     */
+    private final CompactMazeGraph graph;
+
+    /**
+     * The length of the shortest-known path from the source to each vertex.  Only meaningful for
+     * vertices whose `reachedStamp` is the current epoch.
+     */
+    private final double[] dist;
+
+    /**
+     * The id of the last edge on the shortest-known path from the source to each vertex (-1 for
+     * the source).  Only meaningful for vertices whose `reachedStamp` is the current epoch.
+     */
+    private final int[] parentEdge;
+
+    /**
+     * The epoch of the most recent search that found a path to each vertex.
+     */
+    private final int[] reachedStamp;
+
+    /**
+     * The epoch of the most recent search that settled each vertex.
+     */
+    private final int[] settledStamp;
+
+    /**
+     * The vertices settled by the most recent search, in the order they were settled.  Only the
+     * first `settledCount` entries are meaningful.
+     */
+    private final int[] settleOrder;
+
+    /**
+     * The frontier of the current search.
+     */
+    private final IndexedMinHeap frontier;
+
+    /**
+     * Identifies the most recent search.  Incremented at the start of every search.
+     */
+    private int epoch;
+
+    /**
+     * The source vertex of the most recent search, or -1 if no search has been run.
+     */
+    private int source;
+
+    /**
+     * The number of vertices settled by the most recent search.
+     */
+    private int settledCount;
+
+    /**
+     * Create an engine for searching `graph`.
+     */
+    public DijkstraEngine(CompactMazeGraph graph) {
+        this.graph = graph;
+        dist = new double[graph.vertexCount()];
+        parentEdge = new int[graph.vertexCount()];
+        reachedStamp = new int[graph.vertexCount()];
+        settledStamp = new int[graph.vertexCount()];
+        settleOrder = new int[graph.vertexCount()];
+        frontier = new IndexedMinHeap(graph.vertexCount());
+        epoch = 0;
+        source = -1;
+    }
+
+    /**
+     * Return the graph searched by this engine.
+     */
+    public CompactMazeGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Compute the shortest non-backtracking paths from vertex `src` to every vertex reachable
+     * along one.  If `previousEdge` is not -1, the first edge of each path may not backtrack it.
+     * Requires that if `previousEdge != -1` then `graph().edgeHead(previousEdge) == src`.
+     */
+    public void search(int src, int previousEdge) {
+        run(src, previousEdge, -1, false, 0);
+    }
+
+    /**
+     * Compute the shortest non-backtracking path from vertex `src` to vertex `dst`, stopping as
+     * soon as `dst` is settled.  Otherwise the same as `search()`.
+     */
+    public void searchTo(int src, int previousEdge, int dst) {
+        run(src, previousEdge, dst, false, 0);
+    }
+
+    /**
+     * Compute the shortest non-backtracking path from vertex `src` to vertex `dst`, continuing
+     * after `dst` is settled until every vertex within distance `distance(dst) + margin` of `src`
+     * is settled.  The extra vertices let callers answer later queries for nearby destinations
+     * from the same search tree.  Otherwise the same as `search()`.  Requires `margin >= 0`.
+     */
+    public void searchBeyond(int src, int previousEdge, int dst, double margin) {
+        assert margin >= 0;
+        run(src, previousEdge, dst, false, margin);
+    }
+
+    /**
+     * Compute the shortest non-backtracking path from vertex `src` to vertex `dst` with A*, using
+     * the wrap-around Manhattan distance between tiles (scaled by `MazeGraph.MIN_EDGE_WEIGHT`) as
+     * the heuristic.  Stops as soon as `dst` is settled.  Otherwise the same as `search()`.
+     */
+    public void aStarSearchTo(int src, int previousEdge, int dst) {
+        run(src, previousEdge, dst, true, 0);
+    }
+
+    /**
+     * Run a search from `src` that may not backtrack `previousEdge` (if not -1).  If `dst` is not
+     * -1, stop once every vertex within `margin` of `dst`'s distance is settled, ordering the
+     * frontier by `heuristic()` if `useHeuristic` is true (which requires a margin of 0).
+     */
+    private void run(int src, int previousEdge, int dst, boolean useHeuristic, double margin) {
+        assert previousEdge == -1 || graph.edgeHead(previousEdge) == src;
+        assert dst != -1 || !useHeuristic;
+        assert margin == 0 || !useHeuristic;
+
+        startEpoch();
+        frontier.clear();
+        source = src;
+        settledCount = 0;
+
+        reach(src, 0.0, -1);
+        frontier.addOrUpdate(src, useHeuristic ? heuristic(src, dst) : 0.0);
+
+        // Once `dst` is settled, vertices farther than this need not be
+        double limit = Double.POSITIVE_INFINITY;
+
+        // Dijkstra loop
+        while (!frontier.isEmpty()) {
+            if (frontier.minPriority() > limit) {
+                return;
+            }
+            int current = frontier.remove();
+            settledStamp[current] = epoch;
+            settleOrder[settledCount] = current;
+            settledCount += 1;
+            if (current == dst) {
+                if (margin == 0) {
+                    return;
+                }
+                limit = dist[current] + margin;
+            }
+            double currentDistance = dist[current];
+            // The edge that may not be backtracked out of `current`
+            int lastEdge = (current == src) ? previousEdge : parentEdge[current];
+            int forbiddenHead = (lastEdge == -1) ? -1 : graph.edgeTail(lastEdge);
+            for (int e = graph.edgeStart(current); e < graph.edgeEnd(current); e++) {
+                int neighbor = graph.edgeHead(e);
+                if (neighbor == forbiddenHead) {
+                    continue;
+                }
+                double newDistance = currentDistance + graph.edgeWeight(e);
+                if (reachedStamp[neighbor] != epoch || newDistance < dist[neighbor]) {
+                    reach(neighbor, newDistance, e);
+                    frontier.addOrUpdate(neighbor,
+                            useHeuristic ? newDistance + heuristic(neighbor, dst) : newDistance);
+                }
+            }
+        }
+    }
+
+    /**
+     * Advance to a new epoch, invalidating the results of the previous search.  Clears the stamps
+     * in the (rare) event that the epoch counter wraps around.
+     */
+    private void startEpoch() {
+        epoch += 1;
+        if (epoch == Integer.MAX_VALUE) {
+            Arrays.fill(reachedStamp, 0);
+            Arrays.fill(settledStamp, 0);
+            epoch = 1;
+        }
+    }
+
+    /**
+     * Record that the shortest-known path to vertex `v` has length `distance` and ends with edge
+     * `lastEdge`.
+     */
+    private void reach(int v, double distance, int lastEdge) {
+        dist[v] = distance;
+        parentEdge[v] = lastEdge;
+        reachedStamp[v] = epoch;
+    }
+
+    /**
+     * Return the A* heuristic for vertex `v` when searching for vertex `dst`, namely
+     * `graph().distanceLowerBound(v, dst)`.
+     */
+    public double heuristic(int v, int dst) {
+        return graph.distanceLowerBound(v, dst);
+    }
+
+    /**
+     * Return the source vertex of the most recent search, or -1 if no search has been run.
+     */
+    public int source() {
+        return source;
+    }
+
+    /**
+     * Return the number of vertices settled by the most recent search.
+     */
+    public int settledCount() {
+        return settledCount;
+    }
+
+    /**
+     * Return the `k`th vertex settled by the most recent search.  Every vertex on the path to a
+     * settled vertex was settled before it.  Requires `0 <= k < settledCount()`.
+     */
+    public int settledVertex(int k) {
+        return settleOrder[k];
+    }
+
+    /**
+     * Return whether the most recent search found a path to vertex `v`.  After a targeted search,
+     * that path is only known to be shortest if `v` was also settled.
+     */
+    public boolean reached(int v) {
+        return reachedStamp[v] == epoch;
+    }
+
+    /**
+     * Return whether the most recent search settled vertex `v`, meaning that its distance and path
+     * are final.
+     */
+    public boolean settled(int v) {
+        return settledStamp[v] == epoch;
+    }
+
+    /**
+     * Return the length of the shortest path to vertex `v` found by the most recent search, or
+     * POSITIVE_INFINITY if it found no path to `v`.
+     */
+    public double distance(int v) {
+        return reached(v) ? dist[v] : Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Return the id of the last edge on the shortest path to vertex `v` found by the most recent
+     * search, or -1 if `v` is the source or was not reached.
+     */
+    public int parentEdge(int v) {
+        return reached(v) ? parentEdge[v] : -1;
+    }
+
+    /**
+     * Return the number of edges on the shortest path to vertex `v` found by the most recent
+     * search.  Requires `reached(v)`.
+     */
+    public int pathLength(int v) {
+        assert reached(v);
+        int length = 0;
+        for (int e = parentEdge[v]; e != -1; e = parentEdge[graph.edgeTail(e)]) {
+            length += 1;
+        }
+        return length;
+    }
+
+    /**
+     * Write the ids of the edges on the shortest path to vertex `v` found by the most recent search
+     * into `edges[0..pathLength(v))`, in order from the source.  Return the path length.
+     * Requires `reached(v)` and `edges.length >= pathLength(v)`.
+     */
+    public int pathTo(int v, int[] edges) {
+        int length = pathLength(v);
+        int k = length;
+        for (int e = parentEdge[v]; e != -1; e = parentEdge[graph.edgeTail(e)]) {
+            edges[--k] = e;
+        }
+        return length;
+    }
+}
@@ -0,0 +1,326 @@
+package graph;
+
+import graph.ClusterHierarchy.LocalSearch;
+import java.util.Arrays;
+
+/**
+ * Answers shortest non-backtracking path queries using a `ClusterHierarchy`.  A query searches
+ * the source's cluster for the ways out of it and the destination's cluster for the ways into it,
+ * then runs A* over the boundary edges, crossing each cluster in one step using its precomputed
+ * table.  Only the path's first edge comes out of a query directly; the rest of the path is
+ * refined, one cluster at a time, only when `path()` is called.
+ * <p>
+ * Walks are tracked by the edge just traversed, so paths follow the non-backtracking rule exactly
+ * and are as short as any non-backtracking walk (which `DijkstraEngine`, tracking only the best
+ * path to each vertex, does not always achieve).  Lengths are summed cluster by cluster, so they
+ * may differ from the same path's length summed edge by edge in the last bits.
+ * <p>
+ * A search owns its working storage, which is reused from query to query, and is not
+ * thread-safe; `SearchWorkspace` holds one per thread.
+ */
+public class HierarchicalSearch {
+
+    /**
+     * The hierarchy being searched.
+     */
+    private final ClusterHierarchy hierarchy;
+
+    /**
+     * The graph whose vertices and edges paths are made of.
+     */
+    private final CompactMazeGraph graph;
+
+    /**
+     * Searches of the source's cluster, of the destination's cluster, and of the clusters crossed
+     * in between (when refining a path).
+     */
+    private final LocalSearch sourceSearch;
+    private final LocalSearch targetSearch;
+    private final LocalSearch refineSearch;
+
+    /**
+     * The length of the shortest-known walk from the source through each boundary edge.  Only
+     * meaningful for boundary edges whose `reachedStamp` is the current epoch.
+     */
+    private final double[] dist;
+
+    /**
+     * The boundary edge crossed before each boundary edge on its shortest-known walk, or -1 if it
+     * is the first.  Only meaningful for boundary edges whose `reachedStamp` is the current epoch.
+     */
+    private final int[] parent;
+
+    /**
+     * The epoch of the most recent query that found a walk through each boundary edge.
+     */
+    private final int[] reachedStamp;
+
+    /**
+     * The frontier of boundary edges of the current query.
+     */
+    private final IndexedMinHeap frontier;
+
+    /**
+     * Identifies the most recent query.  Incremented at the start of every query.
+     */
+    private int epoch;
+
+    /**
+     * The source and destination vertices of the most recent query.
+     */
+    private int source;
+    private int destination;
+
+    /**
+     * The length of the shortest walk found by the most recent query, or POSITIVE_INFINITY if it
+     * found none.
+     */
+    private double best;
+
+    /**
+     * The last boundary edge crossed by the shortest walk found, or -1 if it stays inside the
+     * source's cluster.
+     */
+    private int lastCrossing;
+
+    /**
+     * The number of boundary edges settled by the most recent query.
+     */
+    private int settledCount;
+
+    /**
+     * Room for the edges of a path being read out by `path()`, of which the first `walkLength`
+     * are meaningful.
+     */
+    private int[] walk;
+    private int walkLength;
+
+    /**
+     * Create a search of `hierarchy`.
+     */
+    public HierarchicalSearch(ClusterHierarchy hierarchy) {
+        this.hierarchy = hierarchy;
+        graph = hierarchy.graph();
+        sourceSearch = new LocalSearch(hierarchy);
+        targetSearch = new LocalSearch(hierarchy);
+        refineSearch = new LocalSearch(hierarchy);
+        int n = hierarchy.boundaryCount();
+        dist = new double[n];
+        parent = new int[n];
+        reachedStamp = new int[n];
+        frontier = new IndexedMinHeap(n);
+        walk = new int[64];
+        source = -1;
+        destination = -1;
+        best = Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Return the hierarchy searched.
+     */
+    public ClusterHierarchy hierarchy() {
+        return hierarchy;
+    }
+
+    /**
+     * Find the shortest non-backtracking walk from vertex `src` to vertex `dst` whose first edge
+     * does not backtrack `previousEdge` (if it is not -1).  Requires that if `previousEdge != -1`
+     * then `graph().edgeHead(previousEdge) == src`.
+     */
+    public void search(int src, int previousEdge, int dst) {
+        assert previousEdge == -1 || graph.edgeHead(previousEdge) == src;
+        epoch += 1;
+        if (epoch == Integer.MAX_VALUE) {
+            Arrays.fill(reachedStamp, 0);
+            epoch = 1;
+        }
+        frontier.clear();
+        source = src;
+        destination = dst;
+        settledCount = 0;
+        lastCrossing = -1;
+        if (src == dst) {
+            best = 0.0;
+            return;
+        }
+        best = Double.POSITIVE_INFINITY;
+
+        int srcCluster = hierarchy.cluster(src);
+        int dstCluster = hierarchy.cluster(dst);
+        sourceSearch.forward(srcCluster, src,
+                previousEdge == -1 ? -1 : graph.edgeTail(previousEdge),
+                srcCluster == dstCluster ? dst : -1);
+        if (sourceSearch.arrival() != -1) {
+            best = sourceSearch.distance(sourceSearch.arrival());
+        }
+        targetSearch.backward(dstCluster, dst);
+
+        for (int j = 0; j < hierarchy.exitCount(srcCluster); j++) {
+            int b = hierarchy.exit(srcCluster, j);
+            double d = sourceSearch.distance(sourceSearch.state(srcCluster,
+                    hierarchy.boundaryEdge(b)));
+            if (d < Double.POSITIVE_INFINITY) {
+                reach(b, d, -1);
+            }
+        }
+
+        // A* over boundary edges; the heuristic is consistent, so the first walk to the
+        // destination that is no longer than every remaining estimate is shortest
+        while (!frontier.isEmpty() && frontier.minPriority() < best) {
+            int b = frontier.remove();
+            settledCount += 1;
+            int edge = hierarchy.boundaryEdge(b);
+            int c = hierarchy.cluster(graph.edgeHead(edge));
+            int i = hierarchy.entranceIndex(b);
+            if (c == dstCluster) {
+                double d = dist[b] + targetSearch.distance(targetSearch.state(c, edge));
+                if (d < best) {
+                    best = d;
+                    lastCrossing = b;
+                }
+            }
+            for (int j = 0; j < hierarchy.exitCount(c); j++) {
+                double d = dist[b] + hierarchy.crossingCost(c, i, j);
+                int next = hierarchy.exit(c, j);
+                if (d < Double.POSITIVE_INFINITY
+                        && (reachedStamp[next] != epoch || d < dist[next])) {
+                    reach(next, d, b);
+                }
+            }
+        }
+    }
+
+    /**
+     * Record that the shortest-known walk through boundary edge `b` has length `distance` and
+     * previously crossed boundary edge `from` (or -1).
+     */
+    private void reach(int b, double distance, int from) {
+        dist[b] = distance;
+        parent[b] = from;
+        reachedStamp[b] = epoch;
+        int head = graph.edgeHead(hierarchy.boundaryEdge(b));
+        frontier.addOrUpdate(b, distance + hierarchy.distanceLowerBound(head, destination));
+    }
+
+    /**
+     * Return the number of boundary edges settled by the most recent query.
+     */
+    public int settledCount() {
+        return settledCount;
+    }
+
+    /**
+     * Return whether the most recent query found a walk to its destination.
+     */
+    public boolean found() {
+        return best < Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Return the length of the walk found by the most recent query, or POSITIVE_INFINITY if it
+     * found none.
+     */
+    public double distance() {
+        return best;
+    }
+
+    /**
+     * Return the id of the first edge of the walk found by the most recent query, or -1 if it
+     * found none or its source was its destination.
+     */
+    public int firstEdge() {
+        if (!found() || source == destination) {
+            return -1;
+        }
+        int s = sourceStateOfWalk();
+        while (sourceSearch.link(s) != -1) {
+            s = sourceSearch.link(s);
+        }
+        return sourceSearch.edge(s);
+    }
+
+    /**
+     * Return the ids of the edges of the walk found by the most recent query, in order from the
+     * source.  Requires `found()`.  Refines the walk through each cluster it crosses, so takes
+     * time proportional to the total size of those clusters.
+     */
+    public int[] path() {
+        assert found();
+        walkLength = 0;
+        if (source == destination) {
+            return new int[0];
+        }
+
+        // The part inside the source's cluster, up to and including the first crossing
+        appendLinked(sourceSearch, sourceStateOfWalk());
+        if (lastCrossing != -1) {
+            // Each cluster crossed, from one boundary edge to the next
+            int crossingCount = 0;
+            for (int b = lastCrossing; b != -1; b = parent[b]) {
+                crossingCount += 1;
+            }
+            int[] crossings = new int[crossingCount];
+            for (int b = lastCrossing, k = crossingCount; b != -1; b = parent[b]) {
+                crossings[--k] = b;
+            }
+            for (int k = 1; k < crossingCount; k++) {
+                int entrance = hierarchy.boundaryEdge(crossings[k - 1]);
+                int exit = hierarchy.boundaryEdge(crossings[k]);
+                int c = hierarchy.cluster(graph.edgeHead(entrance));
+                refineSearch.forward(c, graph.edgeHead(entrance), graph.edgeTail(entrance), -1);
+                appendLinked(refineSearch, refineSearch.state(c, exit));
+            }
+
+            // The part inside the destination's cluster, which `targetSearch` links forward
+            int entrance = hierarchy.boundaryEdge(lastCrossing);
+            int c = hierarchy.cluster(graph.edgeHead(entrance));
+            for (int s = targetSearch.link(targetSearch.state(c, entrance)); s != -1;
+                    s = targetSearch.link(s)) {
+                append(targetSearch.edge(s));
+            }
+        }
+        return Arrays.copyOf(walk, walkLength);
+    }
+
+    /**
+     * Append to `walk` the edges of the walk found by `search` (a forward search) that ends with
+     * state `s`.
+     */
+    private void appendLinked(LocalSearch search, int s) {
+        int first = walkLength;
+        for (; s != -1; s = search.link(s)) {
+            append(search.edge(s));
+        }
+        // The edges were appended from last to first
+        for (int i = first, j = walkLength - 1; i < j; i++, j--) {
+            int swap = walk[i];
+            walk[i] = walk[j];
+            walk[j] = swap;
+        }
+    }
+
+    /**
+     * Append edge `e` to `walk`, making room if necessary.
+     */
+    private void append(int e) {
+        if (walkLength == walk.length) {
+            walk = Arrays.copyOf(walk, 2 * walk.length);
+        }
+        walk[walkLength++] = e;
+    }
+
+    /**
+     * Return the state of `sourceSearch` at which the walk found leaves the source's search: its
+     * arrival at the destination, or its first crossing out of the source's cluster.
+     */
+    private int sourceStateOfWalk() {
+        if (lastCrossing == -1) {
+            return sourceSearch.arrival();
+        }
+        int first = lastCrossing;
+        while (parent[first] != -1) {
+            first = parent[first];
+        }
+        return sourceSearch.state(hierarchy.cluster(source), hierarchy.boundaryEdge(first));
+    }
+}
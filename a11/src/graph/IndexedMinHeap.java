@@ -0,0 +1,197 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * A min priority queue of distinct int elements in `[0..capacity)` associated with double
+ * priorities, backed by primitive arrays so that it never allocates after construction.  Supports
+ * updating the priorities of elements currently in the queue in O(log N) time.
+ * <p>
+ * The sift-up and sift-down rules are the same as those of `MinPQueue`, so for the same sequence
+ * of operations both queues remove elements in the same order (including among ties).
+ */
+public class IndexedMinHeap {
+
+    /**
+     * Binary min-heap of elements.  Satisfies `priorities[i] >= priorities[(i-1)/2]` for all `i` in
+     * `[1..size)`.
+     */
+    private final int[] heap;
+
+    /**
+     * The priority of the element at each index of `heap`.
+     */
+    private final double[] priorities;
+
+    /**
+     * The index in `heap` of each element, or -1 if that element is not in the queue.
+     */
+    private final int[] index;
+
+    /**
+     * The number of elements in the queue.
+     */
+    private int size;
+
+    /**
+     * Create an empty queue that can hold the elements `[0..capacity)`.
+     */
+    public IndexedMinHeap(int capacity) {
+        heap = new int[capacity];
+        priorities = new double[capacity];
+        index = new int[capacity];
+        Arrays.fill(index, -1);
+        size = 0;
+    }
+
+    /**
+     * Return whether this queue contains no elements.
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Return the number of elements contained in this queue.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Return whether element `v` is contained in this queue.
+     */
+    public boolean contains(int v) {
+        return index[v] >= 0;
+    }
+
+    /**
+     * Return the minimum priority associated with an element in this queue.  Throws a
+     * `NoSuchElementException` if this queue is empty.
+     */
+    public double minPriority() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return priorities[0];
+    }
+
+    /**
+     * Return the element associated with the smallest priority in this queue, without removing
+     * it.  Throws a `NoSuchElementException` if this queue is empty.
+     */
+    public int peek() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        return heap[0];
+    }
+
+    /**
+     * Remove all elements from this queue.  Runs in O(N) time, where N is the queue size.
+     */
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            index[heap[i]] = -1;
+        }
+        size = 0;
+    }
+
+    /**
+     * Place element `v` with priority `priority` at index `i` of `heap`.
+     */
+    private void set(int i, int v, double priority) {
+        heap[i] = v;
+        priorities[i] = priority;
+        index[v] = i;
+    }
+
+    /**
+     * Swap the elements at indices `i` and `j` in `heap`, updating `index` accordingly.
+     */
+    private void swap(int i, int j) {
+        int vi = heap[i];
+        double pi = priorities[i];
+        set(i, heap[j], priorities[j]);
+        set(j, vi, pi);
+    }
+
+    /**
+     * Restore the heap invariant by moving the element at index `i` up as long as its priority is
+     * less than that of its parent.
+     */
+    private void bubbleUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) / 2;
+            if (priorities[i] < priorities[parent]) {
+                swap(i, parent);
+                i = parent;
+            } else {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Restore the heap invariant by moving the element at index `i` down by swapping it with the
+     * smaller child as long as its priority is more than that of the child.
+     */
+    private void bubbleDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            int right = 2 * i + 2;
+            if (left >= size) {
+                break;
+            }
+            int smallest = left;
+            if (right < size && priorities[right] < priorities[left]) {
+                smallest = right;
+            }
+            if (priorities[i] <= priorities[smallest]) {
+                break;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    /**
+     * If `v` is already contained in this queue, change its associated priority to `priority`.
+     * Otherwise, add it to this queue with that priority.
+     */
+    public void addOrUpdate(int v, double priority) {
+        int i = index[v];
+        if (i < 0) {
+            i = size;
+            size += 1;
+            set(i, v, priority);
+            bubbleUp(i);
+        } else {
+            priorities[i] = priority;
+            if (i > 0 && priority < priorities[(i - 1) / 2]) {
+                bubbleUp(i);
+            } else {
+                bubbleDown(i);
+            }
+        }
+    }
+
+    /**
+     * Remove and return the element associated with the smallest priority in this queue.  Throws
+     * a `NoSuchElementException` if this queue is empty.
+     */
+    public int remove() {
+        if (size == 0) {
+            throw new NoSuchElementException();
+        }
+        int minimum = heap[0];
+        index[minimum] = -1;
+        size -= 1;
+        if (size > 0) {
+            set(0, heap[size], priorities[size]);
+            bubbleDown(0);
+        }
+        return minimum;
+    }
+}
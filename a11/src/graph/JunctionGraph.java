@@ -0,0 +1,332 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * The contraction of a `CompactMazeGraph` to its junctions.  Most vertices of a maze lie inside
+ * corridors, where a non-backtracking path has only one way to continue, so searches only need to
+ * make decisions at the remaining vertices: intersections, dead ends, and the ends of wrap-around
+ * tunnels.  These are the junctions, identified by dense ids in `[0..junctionCount())`.  (A maze
+ * that is a single cycle gets vertex 0 as its only junction.)
+ * <p>
+ * Each directed corridor is a maximal sequence of edges that leaves a junction and passes only
+ * through non-junction vertices before arriving at a junction (possibly the one it left).
+ * Corridors are stored in CSR form like the edges of the compact graph: the corridors leaving
+ * junction `J` have the ids `[corridorStart(J)..corridorEnd(J))`, ordered by the direction of
+ * their first edge (LEFT, RIGHT, UP, DOWN).  The edges of all corridors are concatenated into one
+ * array, so the edges of corridor `c` are `legEdge(i)` for `i` in `[legStart(c)..legEnd(c))`.
+ * <p>
+ * Every vertex that is not a junction lies inside exactly one pair of opposite corridors;
+ * `corridorThrough()` and `positionInCorridor()` locate it within one of them.
+ */
+public final class JunctionGraph {
+
+    /**
+     * The graph that this graph contracts.
+     */
+    private final CompactMazeGraph graph;
+
+    /**
+     * The number of junctions.
+     */
+    private final int junctionCount;
+
+    /**
+     * The number of (directed) corridors.
+     */
+    private final int corridorCount;
+
+    /**
+     * The vertex of each junction.
+     */
+    private final int[] junctionVertex;
+
+    /**
+     * The junction at each vertex, or -1 if the vertex lies inside a corridor.
+     */
+    private final int[] vertexJunction;
+
+    /**
+     * For each vertex inside a corridor, the lower id of the two corridors passing through it;
+     * -1 for junctions.
+     */
+    private final int[] vertexCorridor;
+
+    /**
+     * For each vertex inside a corridor, the index within `vertexCorridor[v]`'s edges of the edge
+     * arriving at it (so 0 for the first vertex after the corridor's tail junction).
+     */
+    private final int[] vertexPosition;
+
+    /**
+     * The corridors leaving junction `J` are `[offsets[J]..offsets[J+1])`.
+     */
+    private final int[] offsets;
+
+    /**
+     * The tail junction of each corridor.
+     */
+    private final int[] tails;
+
+    /**
+     * The head junction of each corridor.
+     */
+    private final int[] heads;
+
+    /**
+     * The edges of corridor `c` are `legEdges[legStarts[c]..legStarts[c+1])`.
+     */
+    private final int[] legStarts;
+
+    /**
+     * The ids (in `graph`) of the edges of every corridor, concatenated in corridor order.
+     */
+    private final int[] legEdges;
+
+    /**
+     * The weight of each edge in `legEdges`, copied so that searches summing a corridor's weights
+     * read consecutive memory.
+     */
+    private final double[] legWeights;
+
+    /**
+     * The id of the corridor running opposite to each corridor.
+     */
+    private final int[] reverses;
+
+    /**
+     * Contract `graph` to its junctions.
+     */
+    public JunctionGraph(CompactMazeGraph graph) {
+        this.graph = graph;
+        int n = graph.vertexCount();
+
+        vertexJunction = new int[n];
+        Arrays.fill(vertexJunction, -1);
+        int[] junctions = new int[n];
+        int numJunctions = 0;
+        for (int v = 0; v < n; v++) {
+            if (graph.edgeEnd(v) - graph.edgeStart(v) != 2 || hasTunnel(graph, v)) {
+                vertexJunction[v] = numJunctions;
+                junctions[numJunctions++] = v;
+            }
+        }
+
+        if (numJunctions == 0) {
+            // The whole maze is one cycle
+            vertexJunction[0] = 0;
+            junctions[numJunctions++] = 0;
+        }
+
+        // Trace the corridors leaving each junction in turn, appending them in junction order as
+        // CSR requires.  The graph is connected, so this covers every vertex.
+        vertexCorridor = new int[n];
+        vertexPosition = new int[n];
+        Arrays.fill(vertexCorridor, -1);
+        int[] corridorOffsets = new int[numJunctions + 1];
+        int[] corridorHeads = new int[graph.edgeCount()];
+        int[] starts = new int[graph.edgeCount() + 1];
+        int[] edges = new int[graph.edgeCount()];
+        int numCorridors = 0;
+        int numLegEdges = 0;
+        for (int j = 0; j < numJunctions; j++) {
+            corridorOffsets[j] = numCorridors;
+            int v = junctions[j];
+            for (int first = graph.edgeStart(v); first < graph.edgeEnd(v); first++) {
+                starts[numCorridors] = numLegEdges;
+                int e = first;
+                while (true) {
+                    edges[numLegEdges++] = e;
+                    int head = graph.edgeHead(e);
+                    if (vertexJunction[head] != -1) {
+                        corridorHeads[numCorridors] = head;
+                        break;
+                    }
+                    if (vertexCorridor[head] == -1) {
+                        vertexCorridor[head] = numCorridors;
+                        vertexPosition[head] = numLegEdges - 1 - starts[numCorridors];
+                    }
+                    // The only edge out of a corridor vertex that does not backtrack
+                    int out = graph.edgeStart(head);
+                    e = (out == graph.reverseEdge(e)) ? out + 1 : out;
+                }
+                numCorridors++;
+            }
+        }
+        corridorOffsets[numJunctions] = numCorridors;
+        starts[numCorridors] = numLegEdges;
+
+        junctionCount = numJunctions;
+        corridorCount = numCorridors;
+        junctionVertex = Arrays.copyOf(junctions, numJunctions);
+        offsets = Arrays.copyOf(corridorOffsets, numJunctions + 1);
+        legStarts = Arrays.copyOf(starts, numCorridors + 1);
+        legEdges = Arrays.copyOf(edges, numLegEdges);
+        legWeights = new double[numLegEdges];
+        for (int i = 0; i < numLegEdges; i++) {
+            legWeights[i] = graph.edgeWeight(legEdges[i]);
+        }
+
+        tails = new int[numCorridors];
+        heads = new int[numCorridors];
+        int[] corridorOfFirstEdge = new int[graph.edgeCount()];
+        for (int j = 0; j < numJunctions; j++) {
+            for (int c = offsets[j]; c < offsets[j + 1]; c++) {
+                tails[c] = j;
+                heads[c] = vertexJunction[corridorHeads[c]];
+                corridorOfFirstEdge[legEdges[legStarts[c]]] = c;
+            }
+        }
+        reverses = new int[numCorridors];
+        for (int c = 0; c < numCorridors; c++) {
+            reverses[c] = corridorOfFirstEdge[graph.reverseEdge(legEdges[legStarts[c + 1] - 1])];
+        }
+    }
+
+    /**
+     * Return whether vertex `v` of `graph` is an end of a tunnel, that is, has an edge that wraps
+     * around the tile grid.
+     */
+    private static boolean hasTunnel(CompactMazeGraph graph, int v) {
+        for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e++) {
+            int head = graph.edgeHead(e);
+            if (Math.abs(graph.column(head) - graph.column(v))
+                    + Math.abs(graph.row(head) - graph.row(v)) != 1) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /* ****************************************************************
+     * Junction accessors                                             *
+     **************************************************************** */
+
+    /**
+     * Return the graph that this graph contracts.
+     */
+    public CompactMazeGraph graph() {
+        return graph;
+    }
+
+    /**
+     * Return the number of junctions.
+     */
+    public int junctionCount() {
+        return junctionCount;
+    }
+
+    /**
+     * Return the number of (directed) corridors.
+     */
+    public int corridorCount() {
+        return corridorCount;
+    }
+
+    /**
+     * Return the vertex of junction `j`.
+     */
+    public int vertex(int j) {
+        return junctionVertex[j];
+    }
+
+    /**
+     * Return the junction at vertex `v`, or -1 if `v` lies inside a corridor.
+     */
+    public int junctionAt(int v) {
+        return vertexJunction[v];
+    }
+
+    /**
+     * Return one of the two corridors passing through vertex `v`, or -1 if `v` is a junction.
+     */
+    public int corridorThrough(int v) {
+        return vertexCorridor[v];
+    }
+
+    /**
+     * Return the index (counting from 0) within `corridorThrough(v)` of the edge arriving at
+     * vertex `v`.  Requires `v` is not a junction.
+     */
+    public int positionInCorridor(int v) {
+        assert vertexCorridor[v] != -1;
+        return vertexPosition[v];
+    }
+
+    /* ****************************************************************
+     * Corridor accessors                                             *
+     **************************************************************** */
+
+    /**
+     * Return the id of the first corridor leaving junction `j`.
+     */
+    public int corridorStart(int j) {
+        return offsets[j];
+    }
+
+    /**
+     * Return one more than the id of the last corridor leaving junction `j`.
+     */
+    public int corridorEnd(int j) {
+        return offsets[j + 1];
+    }
+
+    /**
+     * Return the junction that corridor `c` leaves.
+     */
+    public int corridorTail(int c) {
+        return tails[c];
+    }
+
+    /**
+     * Return the junction that corridor `c` arrives at.
+     */
+    public int corridorHead(int c) {
+        return heads[c];
+    }
+
+    /**
+     * Return the id of the corridor running opposite to corridor `c`.
+     */
+    public int reverseCorridor(int c) {
+        return reverses[c];
+    }
+
+    /**
+     * Return the index in the concatenated corridor edges of corridor `c`'s first edge.
+     */
+    public int legStart(int c) {
+        return legStarts[c];
+    }
+
+    /**
+     * Return one more than the index in the concatenated corridor edges of corridor `c`'s last
+     * edge.
+     */
+    public int legEnd(int c) {
+        return legStarts[c + 1];
+    }
+
+    /**
+     * Return the id in `graph()` of the edge at index `i` of the concatenated corridor edges.
+     */
+    public int legEdge(int i) {
+        return legEdges[i];
+    }
+
+    /**
+     * Return the weight of the edge at index `i` of the concatenated corridor edges.
+     */
+    public double legWeight(int i) {
+        return legWeights[i];
+    }
+
+    /**
+     * Return the approximate number of bytes occupied by this graph's arrays.
+     */
+    public long memoryBytes() {
+        return 4L * (junctionVertex.length + vertexJunction.length + vertexCorridor.length
+                + vertexPosition.length + offsets.length + tails.length + heads.length
+                + legStarts.length + legEdges.length + reverses.length) + 8L * legWeights.length;
+    }
+}
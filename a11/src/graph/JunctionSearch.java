@@ -0,0 +1,414 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * Computes shortest non-backtracking paths between vertices of a `CompactMazeGraph` by searching
+ * its `JunctionGraph`.  Only junctions enter the frontier; a corridor is relaxed in one pass over
+ * its edges, since a path entering a corridor can only leave it at the far end.  Sources and
+ * destinations may lie inside corridors.
+ * <p>
+ * Searches follow the same rules as `DijkstraEngine`: the first edge may not backtrack
+ * `previousEdge`, no edge may backtrack the edge used to reach its tail, and distances are only
+ * updated when strictly improved.  Distances are summed edge by edge in path order, so a path
+ * found by both has exactly the same length in each.  (Among paths of exactly equal length, the
+ * two may settle ties differently.)  Results are kept per junction, so only the destination's
+ * path can be read out, and it is expanded into edges only when asked for.
+ * <p>
+ * Like `DijkstraEngine`, a search owns its working storage, stamps results with an epoch instead
+ * of clearing them, and is not thread-safe.
+ */
+public class JunctionSearch {
+
+    /**
+     * The graph being searched.
+     */
+    private final JunctionGraph junctions;
+
+    /**
+     * The graph whose vertices and edges paths are made of.
+     */
+    private final CompactMazeGraph graph;
+
+    /**
+     * The length of the shortest-known path from the source to each junction.  Only meaningful
+     * for junctions whose `reachedStamp` is the current epoch.
+     */
+    private final double[] dist;
+
+    /**
+     * The corridor along which the shortest-known path arrives at each junction (-1 for a source
+     * junction).  Only meaningful for junctions whose `reachedStamp` is the current epoch.
+     */
+    private final int[] parentCorridor;
+
+    /**
+     * The index (among the concatenated corridor edges) of the first edge of the part of
+     * `parentCorridor` on the shortest-known path to each junction.  This is the corridor's
+     * first edge unless the path starts inside the corridor.
+     */
+    private final int[] parentLegStart;
+
+    /**
+     * The epoch of the most recent search that found a path to each junction.
+     */
+    private final int[] reachedStamp;
+
+    /**
+     * The frontier of the current search.  Holds junction ids, plus `destinationKey` for a
+     * destination inside a corridor.
+     */
+    private final IndexedMinHeap frontier;
+
+    /**
+     * The frontier element standing for a destination inside a corridor.
+     */
+    private final int destinationKey;
+
+    /**
+     * Identifies the most recent search.  Incremented at the start of every search.
+     */
+    private int epoch;
+
+    /**
+     * The source and destination vertices of the most recent search, or -1 if none has been run.
+     */
+    private int source;
+    private int destination;
+
+    /**
+     * The junction at `destination`, or -1 if it lies inside a corridor.
+     */
+    private int destinationJunction;
+
+    /**
+     * The corridors passing through `destination` (when it lies inside one), with the index
+     * (among the concatenated corridor edges) of the edge arriving at it in each.
+     */
+    private int destinationCorridor;
+    private int destinationEdge;
+    private int oppositeCorridor;
+    private int oppositeEdge;
+
+    /**
+     * The shortest-known path to a destination inside a corridor: its length, the corridor it
+     * ends in, and the index of the first edge of the part of that corridor it uses.  Only
+     * meaningful if `destinationReached`.
+     */
+    private double destinationDist;
+    private int destinationLegCorridor;
+    private int destinationLegStart;
+    private boolean destinationReached;
+
+    /**
+     * Whether the most recent search settled its destination.
+     */
+    private boolean found;
+
+    /**
+     * The number of junctions settled by the most recent search.
+     */
+    private int settledCount;
+
+    /**
+     * Create a search of `junctions`.
+     */
+    public JunctionSearch(JunctionGraph junctions) {
+        this.junctions = junctions;
+        graph = junctions.graph();
+        int n = junctions.junctionCount();
+        dist = new double[n];
+        parentCorridor = new int[n];
+        parentLegStart = new int[n];
+        reachedStamp = new int[n];
+        destinationKey = n;
+        frontier = new IndexedMinHeap(n + 1);
+        epoch = 0;
+        source = -1;
+        destination = -1;
+    }
+
+    /**
+     * Return the graph searched.
+     */
+    public JunctionGraph junctions() {
+        return junctions;
+    }
+
+    /**
+     * Compute the shortest non-backtracking path from vertex `src` to vertex `dst`, stopping as
+     * soon as it is known.  The first edge of the path may not backtrack `previousEdge` (if it is
+     * not -1).  Requires that if `previousEdge != -1` then `graph().edgeHead(previousEdge) == src`.
+     */
+    public void searchTo(int src, int previousEdge, int dst) {
+        run(src, previousEdge, dst, false);
+    }
+
+    /**
+     * Same as `searchTo()`, but orders the frontier by A* with the wrap-around Manhattan distance
+     * (scaled by `MazeGraph.MIN_EDGE_WEIGHT`) as the heuristic.
+     */
+    public void aStarSearchTo(int src, int previousEdge, int dst) {
+        run(src, previousEdge, dst, true);
+    }
+
+    /**
+     * Search from `src` to `dst` without backtracking `previousEdge` (if not -1), ordering the
+     * frontier by `CompactMazeGraph.distanceLowerBound()` if `useHeuristic` is true.
+     */
+    private void run(int src, int previousEdge, int dst, boolean useHeuristic) {
+        assert previousEdge == -1 || graph.edgeHead(previousEdge) == src;
+
+        startEpoch();
+        frontier.clear();
+        source = src;
+        destination = dst;
+        settledCount = 0;
+        destinationReached = false;
+        found = (src == dst);
+        if (found) {
+            return;
+        }
+
+        destinationJunction = junctions.junctionAt(dst);
+        destinationCorridor = -1;
+        oppositeCorridor = -1;
+        if (destinationJunction == -1) {
+            int c = junctions.corridorThrough(dst);
+            int position = junctions.positionInCorridor(dst);
+            destinationCorridor = c;
+            destinationEdge = junctions.legStart(c) + position;
+            oppositeCorridor = junctions.reverseCorridor(c);
+            int length = junctions.legEnd(c) - junctions.legStart(c);
+            oppositeEdge = junctions.legStart(oppositeCorridor) + length - 2 - position;
+        }
+
+        int srcJunction = junctions.junctionAt(src);
+        if (srcJunction != -1) {
+            dist[srcJunction] = 0.0;
+            parentCorridor[srcJunction] = -1;
+            reachedStamp[srcJunction] = epoch;
+            frontier.addOrUpdate(srcJunction, useHeuristic ? heuristic(srcJunction) : 0.0);
+        } else {
+            // Leave the source's corridor both ways, in the order of the edges' ids
+            int forbiddenHead = (previousEdge == -1) ? -1 : graph.edgeTail(previousEdge);
+            int c = junctions.corridorThrough(src);
+            int forward = junctions.legStart(c) + junctions.positionInCorridor(src) + 1;
+            int reverse = junctions.reverseCorridor(c);
+            int backward = junctions.legStart(reverse) + junctions.legEnd(c) - forward;
+            boolean forwardFirst = junctions.legEdge(forward) < junctions.legEdge(backward);
+            for (int k = 0; k < 2; k++) {
+                int corridor = (k == 0) == forwardFirst ? c : reverse;
+                int start = (corridor == c) ? forward : backward;
+                if (graph.edgeHead(junctions.legEdge(start)) != forbiddenHead) {
+                    relax(0.0, corridor, start, useHeuristic);
+                }
+            }
+        }
+
+        // Dijkstra loop over junctions
+        while (!frontier.isEmpty()) {
+            int current = frontier.remove();
+            if (current == destinationKey) {
+                found = true;
+                return;
+            }
+            settledCount += 1;
+            if (current == destinationJunction) {
+                found = true;
+                return;
+            }
+            // The edge that may not be backtracked out of `current`
+            int parent = parentCorridor[current];
+            int lastEdge = (parent == -1) ? previousEdge
+                    : junctions.legEdge(junctions.legEnd(parent) - 1);
+            int forbiddenHead = (lastEdge == -1) ? -1 : graph.edgeTail(lastEdge);
+            double currentDistance = dist[current];
+            for (int c = junctions.corridorStart(current); c < junctions.corridorEnd(current);
+                    c++) {
+                int start = junctions.legStart(c);
+                if (graph.edgeHead(junctions.legEdge(start)) != forbiddenHead) {
+                    relax(currentDistance, c, start, useHeuristic);
+                }
+            }
+        }
+    }
+
+    /**
+     * Follow corridor `c` from the edge at index `start` (among the concatenated corridor edges)
+     * to its end, starting at distance `distance` from the source, and record any improved path
+     * to the destination or to the corridor's head junction.
+     */
+    private void relax(double distance, int c, int start, boolean useHeuristic) {
+        int end = junctions.legEnd(c);
+        int i = start;
+        int stop = (c == destinationCorridor) ? destinationEdge
+                : (c == oppositeCorridor) ? oppositeEdge : -1;
+        if (stop >= start) {
+            for (; i <= stop; i++) {
+                distance += junctions.legWeight(i);
+            }
+            if (!destinationReached || distance < destinationDist) {
+                destinationReached = true;
+                destinationDist = distance;
+                destinationLegCorridor = c;
+                destinationLegStart = start;
+                frontier.addOrUpdate(destinationKey, distance);
+            }
+        }
+        for (; i < end; i++) {
+            distance += junctions.legWeight(i);
+        }
+        int head = junctions.corridorHead(c);
+        if (reachedStamp[head] != epoch || distance < dist[head]) {
+            dist[head] = distance;
+            parentCorridor[head] = c;
+            parentLegStart[head] = start;
+            reachedStamp[head] = epoch;
+            frontier.addOrUpdate(head, useHeuristic ? distance + heuristic(head) : distance);
+        }
+    }
+
+    /**
+     * Advance to a new epoch, invalidating the results of the previous search.  Clears the stamps
+     * in the (rare) event that the epoch counter wraps around.
+     */
+    private void startEpoch() {
+        epoch += 1;
+        if (epoch == Integer.MAX_VALUE) {
+            Arrays.fill(reachedStamp, 0);
+            epoch = 1;
+        }
+    }
+
+    /**
+     * Return a lower bound on the length of any path from junction `j` to the destination.
+     */
+    private double heuristic(int j) {
+        return graph.distanceLowerBound(junctions.vertex(j), destination);
+    }
+
+    /**
+     * Return the number of junctions settled by the most recent search.
+     */
+    public int settledCount() {
+        return settledCount;
+    }
+
+    /**
+     * Return whether the most recent search found a path to its destination.
+     */
+    public boolean found() {
+        return found;
+    }
+
+    /**
+     * Return the length of the path found by the most recent search, or POSITIVE_INFINITY if it
+     * found none.
+     */
+    public double distance() {
+        if (!found) {
+            return Double.POSITIVE_INFINITY;
+        }
+        if (source == destination) {
+            return 0.0;
+        }
+        return (destinationJunction == -1) ? destinationDist : dist[destinationJunction];
+    }
+
+    /**
+     * Return the id of the first edge of the path found by the most recent search, or -1 if it
+     * found none or its source was its destination.
+     */
+    public int firstEdge() {
+        if (!found || source == destination) {
+            return -1;
+        }
+        int c = lastLegCorridor();
+        int start = lastLegStart();
+        while (!startsAtSource(c, start)) {
+            int tail = junctions.corridorTail(c);
+            start = parentLegStart[tail];
+            c = parentCorridor[tail];
+        }
+        return junctions.legEdge(start);
+    }
+
+    /**
+     * Return the number of edges on the path found by the most recent search.  Requires
+     * `found()`.
+     */
+    public int pathLength() {
+        assert found;
+        if (source == destination) {
+            return 0;
+        }
+        int length = (destinationJunction == -1) ? destinationEdge(lastLegCorridor()) + 1
+                - lastLegStart() : junctions.legEnd(lastLegCorridor()) - lastLegStart();
+        for (int c = lastLegCorridor(), start = lastLegStart(); !startsAtSource(c, start); ) {
+            int tail = junctions.corridorTail(c);
+            start = parentLegStart[tail];
+            c = parentCorridor[tail];
+            length += junctions.legEnd(c) - start;
+        }
+        return length;
+    }
+
+    /**
+     * Write the ids of the edges on the path found by the most recent search into
+     * `edges[0..pathLength())`, in order from the source.  Return the path length.  Requires
+     * `found()` and `edges.length >= pathLength()`.
+     */
+    public int pathTo(int[] edges) {
+        int length = pathLength();
+        int k = length;
+        int c = lastLegCorridor();
+        int start = lastLegStart();
+        int end = (destinationJunction == -1) ? destinationEdge(c) + 1 : junctions.legEnd(c);
+        while (k > 0) {
+            for (int i = end - 1; i >= start; i--) {
+                edges[--k] = junctions.legEdge(i);
+            }
+            if (k > 0) {
+                int tail = junctions.corridorTail(c);
+                start = parentLegStart[tail];
+                c = parentCorridor[tail];
+                end = junctions.legEnd(c);
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Return the corridor containing the last edge of the path to the destination.  Requires a
+     * path was found and the source is not the destination.
+     */
+    private int lastLegCorridor() {
+        return (destinationJunction == -1) ? destinationLegCorridor
+                : parentCorridor[destinationJunction];
+    }
+
+    /**
+     * Return the index of the first edge of the part of `lastLegCorridor()` that the path to the
+     * destination uses.
+     */
+    private int lastLegStart() {
+        return (destinationJunction == -1) ? destinationLegStart
+                : parentLegStart[destinationJunction];
+    }
+
+    /**
+     * Return the index of the edge arriving at the destination (which lies inside a corridor) in
+     * corridor `c`, one of the two corridors through it.
+     */
+    private int destinationEdge(int c) {
+        return (c == destinationCorridor) ? destinationEdge : oppositeEdge;
+    }
+
+    /**
+     * Return whether the part of corridor `c` starting at edge index `start` begins at the source.
+     */
+    private boolean startsAtSource(int c, int start) {
+        return start != junctions.legStart(c) || parentCorridor[junctions.corridorTail(c)] == -1;
+    }
+}
@@ -1,7 +1,9 @@
 package graph;
 
-import java.util.ArrayDeque;
-import java.util.HashMap;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import util.GameMap;
 import util.MazeGenerator;
 
@@ -24,6 +26,11 @@ public class MazeGraph {
 
     }
 
+    /**
+     * The four corners of the board.
+     */
+    public enum Corner {TOP_LEFT, TOP_RIGHT, BOTTOM_LEFT, BOTTOM_RIGHT}
+
     /**
      * The direction of a (directed) edge in this graph.
      */
@@ -46,28 +53,10 @@ public class MazeGraph {
     }
 
     /**
-     * A vertex in our graph, corresponding to a `PATH` tile in the tile grid.
+     * A vertex in our graph, corresponding to a `PATH` tile in the tile grid.  A (flyweight) view
+     * of vertex `id` of the graph's `CompactMazeGraph`; views of the same vertex are equal.
      */
-    public static class MazeVertex implements Vertex<MazeEdge> {
-
-        /**
-         * The location of this vertex's tile within the tile grid.
-         */
-        private final IPair loc;
-
-        /**
-         * This vertex's outgoing edges, each associated with the direction it points in.
-         */
-        private final HashMap<Direction, MazeEdge> edgeMap;
-
-
-        /**
-         * Construct a new vertex at location `loc` with no outgoing edges.
-         */
-        public MazeVertex(IPair loc) {
-            this.loc = loc;
-            edgeMap = new HashMap<>();
-        }
+    public record MazeVertex(CompactMazeGraph graph, int id) implements Vertex<MazeEdge> {
 
         /**
          * Return the edge leaving this vertex in the direction `direction`, or null if no such edge
@@ -75,52 +64,79 @@ public class MazeGraph {
          * boundary (that is, an edge connecting a top tile to a bottom tile points "up").
          */
         public MazeEdge edgeInDirection(Direction direction) {
-            return edgeMap.get(direction);
+            int e = graph.edgeInDirection(id, direction);
+            return (e < 0) ? null : new MazeEdge(graph, e);
         }
 
         /**
          * Return the coordinates of this vertex's tile in the tile grid.
          */
         public IPair loc() {
-            return loc;
+            return new IPair(graph.column(id), graph.row(id));
         }
 
         @Override
         public Iterable<MazeEdge> outgoingEdges() {
-            return edgeMap.values();
-        }
+            int start = graph.edgeStart(id);
+            int count = graph.edgeEnd(id) - start;
+            return new AbstractList<>() {
+                @Override
+                public MazeEdge get(int k) {
+                    return new MazeEdge(graph, start + k);
+                }
 
-        /**
-         * Add `edge` as an outgoing edge from this vertex.  Requires that this vertex is the edge's
-         * source and that no outgoing edge has already been added in the same direction.  This
-         * method has restricted visibility, as it is only meant to be called when constructing a
-         * `MazeGraph`.
-         */
-        public void addOutgoingEdge(MazeEdge edge) {
-            assert edge.tail().equals(this);
-            assert !edgeMap.containsKey(edge.direction());
-            edgeMap.put(edge.direction(), edge);
+                @Override
+                public int size() {
+                    return count;
+                }
+            };
         }
 
         @Override
         public String toString() {
-            return "MazeVertex(" + loc.i() + "," + loc.j() + ")";
+            return "MazeVertex(" + graph.column(id) + "," + graph.row(id) + ")";
         }
     }
 
     /**
-     * Represents a directed edge from `src` to `dst` with weight `weight`, which points in
-     * direction `direction` on the tile grid.
+     * A directed edge of our graph, which points in direction `direction()` on the tile grid.  A
+     * (flyweight) view of edge `id` of the graph's `CompactMazeGraph`; views of the same edge are
+     * equal.
      */
-    public record MazeEdge(MazeVertex tail, MazeVertex head, Direction direction,
-                           double weight) implements WeightedEdge<MazeVertex> {
+    public record MazeEdge(CompactMazeGraph graph, int id) implements WeightedEdge<MazeVertex> {
+
+        @Override
+        public MazeVertex tail() {
+            return new MazeVertex(graph, graph.edgeTail(id));
+        }
+
+        @Override
+        public MazeVertex head() {
+            return new MazeVertex(graph, graph.edgeHead(id));
+        }
+
+        @Override
+        public double weight() {
+            return graph.edgeWeight(id);
+        }
+
+        /**
+         * Return the direction that this edge points in on the tile grid.
+         */
+        public Direction direction() {
+            return graph.edgeDirection(id);
+        }
 
         /**
-         * Return the edge pointing from `dst` to `src` in the maze graph.  Requires that the maze
-         * graph has been fully constructed.
+         * Return the edge pointing from `head()` to `tail()` in the maze graph.
          */
         public MazeEdge reverse() {
-            return head.edgeInDirection(direction.reverse());
+            return new MazeEdge(graph, graph.reverseEdge(id));
+        }
+
+        @Override
+        public String toString() {
+            return "MazeEdge(" + tail() + " -> " + head() + ")";
         }
     }
 
@@ -129,10 +145,83 @@ public class MazeGraph {
      **************************************************************** */
 
     /**
-     * The vertices of this graph, each associated with the location of its corresponding path tile
-     * in the tile grid.
+     * The largest elevation change between adjacent tiles that affects the weight of an edge.
      */
-    private final HashMap<IPair, MazeVertex> vertices;
+    private static final double MAX_ELEVATION_CHANGE = 0.25;
+
+    /**
+     * How much each unit of (clamped) elevation gain adds to the weight of an edge.
+     */
+    private static final double ELEVATION_WEIGHT_FACTOR = 3;
+
+    /**
+     * A lower bound on the weight of every edge, reached by the steepest downhill edges.  Scaling
+     * tile distances by this keeps distance estimates admissible.
+     */
+    public static final double MIN_EDGE_WEIGHT = 1 - MAX_ELEVATION_CHANGE * ELEVATION_WEIGHT_FACTOR;
+
+    /**
+     * The next-hop table budget (in bytes) of `MazeGraph(GameMap)`: none, since a table is built
+     * on the common fork-join pool and would compete with whatever else the caller is running.
+     * Callers that can spare the threads and memory opt in with `MazeGraph(GameMap, long)`.
+     */
+    public static final long DEFAULT_NEXT_HOP_BUDGET = 0;
+
+    /**
+     * A next-hop table budget (in bytes) that tables for boards up to about 25x25 fit within;
+     * bigger boards navigate with live searches instead.
+     */
+    public static final long SMALL_BOARD_NEXT_HOP_BUDGET = 4L << 20;
+
+    /**
+     * The array-backed representation of this graph, which assigns each vertex a dense id.
+     */
+    private final CompactMazeGraph compact;
+
+    /**
+     * The contraction of `compact` to its junctions, which searches explore instead of visiting
+     * every corridor vertex.
+     */
+    private final JunctionGraph junctions;
+
+    /**
+     * The partition of `compact` into clusters of tiles, for hierarchical searches, or null if
+     * this graph was constructed without one.
+     */
+    private final ClusterHierarchy hierarchy;
+
+    /**
+     * The id of the vertex returned by `closestTo(i, j)` for each tile, indexed by `j * width + i`.
+     */
+    private final int[] closestVertex;
+
+    /**
+     * The vertices closest to the tiles two steps in from each corner of the board, indexed by
+     * `Corner` ordinal.
+     */
+    private final MazeVertex[] corners;
+
+    /**
+     * The ids of the vertices that ghosts head for when fleeing or returning to their box: the
+     * `corners`, then the tail of `ghostStartingEdge()`.
+     */
+    private final int[] fixedDestinations;
+
+    /**
+     * The shortest-path tree to each of `fixedDestinations`, or null until it is first needed.
+     */
+    private final AtomicReferenceArray<ReversePathTree> destinationTrees;
+
+    /**
+     * The workspace for searches of this graph on each thread, created when first needed.
+     */
+    private final ThreadLocal<SearchWorkspace> workspaces;
+
+    /**
+     * Precomputed first edges of shortest non-backtracking paths, or null if the table would have
+     * exceeded the memory budget this graph was constructed with.
+     */
+    private final NextHopTable nextHops;
 
     /**
      * The width of the tile grid defining this maze.
@@ -152,100 +241,61 @@ public class MazeGraph {
      * Construct the maze graph corresponding to the tile grid `map`. Requires `map.types()[2][2]`
      * to be a `TileType.PATH` and that all `PATH` tiles belong to the same orthogonally connected
      * component. Requires `map.types()` and `map.elevations()` have the same shape, with the first
-     * index corresponding to columns and the second index corresponding to rows.
+     * index corresponding to columns and the second index corresponding to rows.  Builds no
+     * next-hop table.
      */
     public MazeGraph(GameMap map) {
-        width = map.types().length;
-        height = map.types()[0].length;
-        vertices = new HashMap<>();
-
-        // Store the tile types and elevations once at the beginning
-        MazeGenerator.TileType[][] tileTypes = map.types();
-        double[][] elevations = map.elevations();
-
-        IPair startingLocation = new IPair(2, 2);
-        assert tileTypes[startingLocation.i()][startingLocation.j()] == MazeGenerator.TileType.PATH;
-
-        // Create a queue to be used for the BFS and enqueue the starting vertex
-        ArrayDeque<MazeVertex> vertexQueue = new ArrayDeque<>();
-        MazeVertex startingVertex = new MazeVertex(startingLocation);
-        vertices.put(startingLocation, startingVertex);
-        vertexQueue.add(startingVertex);
-
-        // BFS - find all the reachable PATH tiles and add outgoing edges
-        while (!vertexQueue.isEmpty()) {
-            MazeVertex currentVertex = vertexQueue.removeFirst();
-            int currentColumn = currentVertex.loc().i();
-            int currentRow = currentVertex.loc().j();
-
-            // Check left neighbor
-            int leftColumn = (currentColumn - 1 + width) % width;
-            int leftRow = currentRow;
-            if (tileTypes[leftColumn][leftRow] == MazeGenerator.TileType.PATH) {
-                IPair leftLocation = new IPair(leftColumn, leftRow);
-                MazeVertex leftVertex = vertices.get(leftLocation);
-                if (leftVertex == null) {
-                    leftVertex = new MazeVertex(leftLocation);
-                    vertices.put(leftLocation, leftVertex);
-                    vertexQueue.addLast(leftVertex);
-                }
-                double weight = edgeWeight(elevations[currentColumn][currentRow],
-                        elevations[leftColumn][leftRow]);
-                currentVertex.addOutgoingEdge(
-                        new MazeEdge(currentVertex, leftVertex, Direction.LEFT, weight));
-            }
-
-            // Check right neighbor
-            int rightColumn = (currentColumn + 1) % width;
-            int rightRow = currentRow;
-            if (tileTypes[rightColumn][rightRow] == MazeGenerator.TileType.PATH) {
-                IPair rightLocation = new IPair(rightColumn, rightRow);
-                MazeVertex rightVertex = vertices.get(rightLocation);
-                if (rightVertex == null) {
-                    rightVertex = new MazeVertex(rightLocation);
-                    vertices.put(rightLocation, rightVertex);
-                    vertexQueue.addLast(rightVertex);
-                }
-                double weight = edgeWeight(elevations[currentColumn][currentRow],
-                        elevations[rightColumn][rightRow]);
-                currentVertex.addOutgoingEdge(
-                        new MazeEdge(currentVertex, rightVertex, Direction.RIGHT, weight));
-            }
+        this(map, DEFAULT_NEXT_HOP_BUDGET);
+    }
 
-            // Check up neighbor
-            int upColumn = currentColumn;
-            int upRow = (currentRow - 1 + height) % height;
-            if (tileTypes[upColumn][upRow] == MazeGenerator.TileType.PATH) {
-                IPair upLocation = new IPair(upColumn, upRow);
-                MazeVertex upVertex = vertices.get(upLocation);
-                if (upVertex == null) {
-                    upVertex = new MazeVertex(upLocation);
-                    vertices.put(upLocation, upVertex);
-                    vertexQueue.addLast(upVertex);
-                }
-                double weight = edgeWeight(elevations[currentColumn][currentRow],
-                        elevations[upColumn][upRow]);
-                currentVertex.addOutgoingEdge(
-                        new MazeEdge(currentVertex, upVertex, Direction.UP, weight));
-            }
+    /**
+     * Construct the maze graph corresponding to the tile grid `map`, under the same requirements as
+     * `MazeGraph(GameMap)`.  Builds a next-hop table if it would occupy at most `nextHopBudget`
+     * bytes (so a budget of 0 disables the table).
+     */
+    public MazeGraph(GameMap map, long nextHopBudget) {
+        this(map, nextHopBudget, 0);
+    }
 
-            // Check down neighbor
-            int downColumn = currentColumn;
-            int downRow = (currentRow + 1) % height;
-            if (tileTypes[downColumn][downRow] == MazeGenerator.TileType.PATH) {
-                IPair downLocation = new IPair(downColumn, downRow);
-                MazeVertex downVertex = vertices.get(downLocation);
-                if (downVertex == null) {
-                    downVertex = new MazeVertex(downLocation);
-                    vertices.put(downLocation, downVertex);
-                    vertexQueue.addLast(downVertex);
-                }
-                double weight = edgeWeight(elevations[currentColumn][currentRow],
-                        elevations[downColumn][downRow]);
-                currentVertex.addOutgoingEdge(
-                        new MazeEdge(currentVertex, downVertex, Direction.DOWN, weight));
+    /**
+     * Construct the maze graph corresponding to the tile grid `map`, under the same requirements as
+     * `MazeGraph(GameMap, long)`.  If `clusterSize` is positive, also builds a `ClusterHierarchy`
+     * with clusters of `clusterSize` by `clusterSize` tiles for hierarchical searches.  Requires
+     * `clusterSize >= 0`.
+     */
+    public MazeGraph(GameMap map, long nextHopBudget, int clusterSize) {
+        assert clusterSize >= 0;
+        width = map.types().length;
+        height = map.types()[0].length;
+        assert map.types()[2][2] == MazeGenerator.TileType.PATH;
+
+        // The compact graph performs the BFS over PATH tiles and holds the only copy of the
+        // graph; `MazeVertex` and `MazeEdge` objects are views of it, created as needed.
+        compact = new CompactMazeGraph(map);
+        closestVertex = new int[width * height];
+        for (int j = 0; j < height; j++) {
+            for (int i = 0; i < width; i++) {
+                closestVertex[j * width + i] = findClosestTo(i, j);
             }
         }
+        corners = new MazeVertex[Corner.values().length];
+        // Only private methods are called until construction is done, so that a subclass never
+        // sees a partly built graph
+        corners[Corner.TOP_LEFT.ordinal()] = closestView(2, 2);
+        corners[Corner.TOP_RIGHT.ordinal()] = closestView(width - 3, 2);
+        corners[Corner.BOTTOM_LEFT.ordinal()] = closestView(2, height - 3);
+        corners[Corner.BOTTOM_RIGHT.ordinal()] = closestView(width - 3, height - 3);
+        fixedDestinations = new int[corners.length + 1];
+        for (int k = 0; k < corners.length; k++) {
+            fixedDestinations[k] = corners[k].id();
+        }
+        fixedDestinations[corners.length] = ghostStartVertex();
+        destinationTrees = new AtomicReferenceArray<>(fixedDestinations.length);
+        nextHops = (NextHopTable.estimateBytes(compact) <= nextHopBudget)
+                ? new NextHopTable(compact) : null;
+        junctions = new JunctionGraph(compact);
+        hierarchy = (clusterSize > 0) ? new ClusterHierarchy(compact, clusterSize) : null;
+        workspaces = ThreadLocal.withInitial(() -> new SearchWorkspace(junctions, hierarchy));
     }
 
     /**
@@ -254,9 +304,10 @@ public class MazeGraph {
      */
     static double edgeWeight(double tailElev, double headElev) {
         // Uphill edges should have higher weight
-        double elevDiff = Math.clamp(headElev - tailElev, -0.25, 0.25);
-        double weight = 1 + elevDiff * 3;
-        assert weight >= 0;
+        double elevDiff = Math.clamp(headElev - tailElev, -MAX_ELEVATION_CHANGE,
+                MAX_ELEVATION_CHANGE);
+        double weight = 1 + elevDiff * ELEVATION_WEIGHT_FACTOR;
+        assert weight >= MIN_EDGE_WEIGHT;
         return weight;
     }
 
@@ -267,6 +318,30 @@ public class MazeGraph {
      * ignored.)
      */
     public MazeVertex closestTo(int i, int j) {
+        return closestView(i, j);
+    }
+
+    /**
+     * Compute `closestTo(i, j)` from `closestVertex`.
+     */
+    private MazeVertex closestView(int i, int j) {
+        i = Math.clamp(i, 0, width - 2);
+        j = Math.clamp(j, 0, height - 2);
+        return new MazeVertex(compact, closestVertex[j * width + i]);
+    }
+
+    /**
+     * Return the vertex near corner `corner` of the board, two tiles in from each edge.  Fleeing
+     * ghosts head for these.
+     */
+    public MazeVertex corner(Corner corner) {
+        return corners[corner.ordinal()];
+    }
+
+    /**
+     * Compute the id of `closestTo(i, j)`, for filling in `closestVertex`.
+     */
+    private int findClosestTo(int i, int j) {
         // clamp i,j within maze bounds
         i = Math.clamp(i, 0, width - 2);
         j = Math.clamp(j, 0, height - 2);
@@ -276,36 +351,174 @@ public class MazeGraph {
         int ip = (((i - 1) / 3) * 3 + 2);
         int jp = (((j - 1) / 3) * 3 + 2);
 
-        for (IPair loc : new IPair[]{new IPair(i, j), new IPair(i, jp), new IPair(ip, j),
-                new IPair(ip, jp)}) {
-            if (vertices.containsKey(loc)) {
-                return vertices.get(loc);
+        for (int v : new int[]{compact.vertexAt(i, j), compact.vertexAt(i, jp),
+                compact.vertexAt(ip, j), compact.vertexAt(ip, jp)}) {
+            if (v >= 0) {
+                return v;
             }
         }
 
         // the only time we reach here is if (ip,jp) is inside the ghost box. In this case,
         // (ip,jp+3) is guaranteed to be a path tile outside the ghost box.
-        assert (vertices.get(new IPair(ip, jp + 3)) != null);
-        return vertices.get(new IPair(ip, jp + 3));
+        assert (compact.vertexAt(ip, jp + 3) >= 0);
+        return compact.vertexAt(ip, jp + 3);
+    }
+
+    /**
+     * Return the vertex on tile `(i, j)`, or null if that tile is not a reachable path tile.
+     */
+    public MazeVertex vertexAt(int i, int j) {
+        int v = compact.vertexAt(i, j);
+        return v < 0 ? null : new MazeVertex(compact, v);
+    }
+
+    /**
+     * Return the vertex whose id is `id`.  Requires `0 <= id < vertexCount()`.
+     */
+    public MazeVertex vertex(int id) {
+        assert 0 <= id && id < compact.vertexCount();
+        return new MazeVertex(compact, id);
+    }
+
+    /**
+     * Return the number of vertices in this graph.
+     */
+    public int vertexCount() {
+        return compact.vertexCount();
+    }
+
+    /**
+     * Return the edge whose id in `compact()` is `id`.
+     */
+    public MazeEdge edge(int id) {
+        return new MazeEdge(compact, id);
+    }
+
+    /**
+     * Return the id of `edge` in `compact()`.
+     */
+    public int edgeId(MazeEdge edge) {
+        assert edge.graph() == compact;
+        return edge.id();
+    }
+
+    /**
+     * Return the array-backed representation of this graph.  Vertex ids agree with
+     * `MazeVertex.id()`.
+     */
+    public CompactMazeGraph compact() {
+        return compact;
+    }
+
+    /**
+     * Return the shortest-path tree to vertex `dst` (by id) if `dst` is a fixed destination of
+     * ghosts (a `corner()` or the tail of `ghostStartingEdge()`), or null if it is not.  Each tree
+     * is computed the first time it is asked for and shared from then on, by all threads.
+     */
+    public ReversePathTree treeTo(int dst) {
+        for (int k = 0; k < fixedDestinations.length; k++) {
+            if (fixedDestinations[k] == dst) {
+                ReversePathTree tree = destinationTrees.get(k);
+                if (tree == null) {
+                    // Threads that race here build equal trees, so any one of them may be kept
+                    destinationTrees.compareAndSet(k, null, new ReversePathTree(compact, dst));
+                    tree = destinationTrees.get(k);
+                }
+                return tree;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Return the contraction of `compact()` to its junctions.
+     */
+    public JunctionGraph junctions() {
+        return junctions;
+    }
+
+    /**
+     * Return this graph's cluster hierarchy, or null if it was constructed without one.
+     */
+    public ClusterHierarchy hierarchy() {
+        return hierarchy;
+    }
+
+    /**
+     * Return the calling thread's workspace for searching this graph, whose storage is reused
+     * across calls.  Each thread gets its own, so concurrent games may share a graph.
+     */
+    public SearchWorkspace searchWorkspace() {
+        return workspaces.get();
     }
 
     /**
-     * Return the full collection of vertices in this graph.
+     * Return this graph's next-hop table, or null if it was not built.
+     */
+    public NextHopTable nextHops() {
+        return nextHops;
+    }
+
+    /**
+     * Return the first edge of the shortest non-backtracking path to `dst` for an actor that just
+     * traversed `previousEdge`, as recorded in this graph's next-hop table.  Returns null if there
+     * is no table or it cannot answer the query.  Requires `dst` is not `previousEdge.head()`.
+     */
+    public MazeEdge nextHop(MazeEdge previousEdge, MazeVertex dst) {
+        if (nextHops == null) {
+            return null;
+        }
+        Direction direction = nextHops.nextDirection(edgeId(previousEdge), dst.id());
+        return direction == null ? null : previousEdge.head().edgeInDirection(direction);
+    }
+
+    /**
+     * Return the path to `dst` formed by following this graph's next-hop table from
+     * `previousEdge.head()`, or null if the table cannot answer every step.  Requires `dst` is not
+     * `previousEdge.head()`.
+     */
+    public List<MazeEdge> nextHopPath(MazeEdge previousEdge, MazeVertex dst) {
+        ArrayList<MazeEdge> path = new ArrayList<>();
+        MazeEdge edge = previousEdge;
+        do {
+            edge = nextHop(edge, dst);
+            // A path that traverses more edges than the graph has must repeat one, so give up
+            // rather than loop forever.
+            if (edge == null || path.size() == compact.edgeCount()) {
+                return null;
+            }
+            path.add(edge);
+        } while (!edge.head().equals(dst));
+        return path;
+    }
+
+    /**
+     * Return the full collection of vertices in this graph, ordered by id.
      */
     public Iterable<MazeVertex> vertices() {
-        return vertices.values();
+        int count = compact.vertexCount();
+        return new AbstractList<>() {
+            @Override
+            public MazeVertex get(int v) {
+                return new MazeVertex(compact, v);
+            }
+
+            @Override
+            public int size() {
+                return count;
+            }
+        };
     }
 
     /**
      * Return the first edge that PacMann will traverse at the start of a game.
      */
     public MazeEdge pacMannStartingEdge() {
-        IPair startingLoc = new IPair((width - 1) / 2, 3 * ((3 * (height / 3) - 1) / 4) + 2);
-        MazeVertex t = vertices.get(startingLoc);
-        if (t.edgeMap.containsKey(Direction.LEFT)) {
-            return t.edgeMap.get(Direction.LEFT).reverse();
+        MazeVertex t = vertexAt((width - 1) / 2, 3 * ((3 * (height / 3) - 1) / 4) + 2);
+        if (t.edgeInDirection(Direction.LEFT) != null) {
+            return t.edgeInDirection(Direction.LEFT).reverse();
         } else {
-            return t.edgeMap.get(Direction.UP).reverse();
+            return t.edgeInDirection(Direction.UP).reverse();
         }
     }
 
@@ -314,8 +527,13 @@ public class MazeGraph {
      * CHASE state.
      */
     public MazeEdge ghostStartingEdge() {
-        IPair startingLoc = new IPair((width - 1) / 2, 3 * ((height - 3) / 6) - 1);
-        MazeVertex s = vertices.get(startingLoc);
-        return s.edgeMap.get(Direction.RIGHT);
+        return new MazeVertex(compact, ghostStartVertex()).edgeInDirection(Direction.RIGHT);
+    }
+
+    /**
+     * Return the id of the tail of `ghostStartingEdge()`.
+     */
+    private int ghostStartVertex() {
+        return compact.vertexAt((width - 1) / 2, 3 * ((height - 3) / 6) - 1);
     }
 }
@@ -0,0 +1,154 @@
+package graph;
+
+import graph.MazeGraph.Direction;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * A precomputed routing table for a `CompactMazeGraph` that answers "which way should I go next?"
+ * for navigation along shortest non-backtracking paths in O(1) time.  Entries are keyed by the edge
+ * that was just traversed (which identifies both the current vertex and the direction it was
+ * entered from, and so the one edge that may not be taken next) and the destination vertex.  Each
+ * entry is the direction of the first edge on the path that `DijkstraEngine.search()` would find,
+ * packed into 2 bits.
+ * <p>
+ * The table occupies about `edgeCount * vertexCount / 4` bytes, so it is only practical for small
+ * and medium mazes; see `estimateBytes()`.  Rows are computed independently of each other, so the
+ * table is built in parallel on the common fork/join pool.
+ */
+public class NextHopTable {
+
+    /**
+     * Number of rows computed by each leaf task of the parallel build.
+     */
+    private static final int ROWS_PER_TASK = 32;
+
+    /**
+     * Cached result of `Direction.values()`, to avoid copying the array on every lookup.
+     */
+    private static final Direction[] DIRECTIONS = Direction.values();
+
+    /**
+     * The graph whose paths this table summarizes.
+     */
+    private final CompactMazeGraph graph;
+
+    /**
+     * Number of bytes occupied by each row of `entries`.  Rows are byte-aligned so that they can be
+     * written by different threads without interfering.
+     */
+    private final int rowStride;
+
+    /**
+     * Packed 2-bit direction ordinals.  The entry for previous edge `e` and destination `v` is bits
+     * `2*(v%4)..2*(v%4)+1` of byte `e*rowStride + v/4`.
+     */
+    private final byte[] entries;
+
+    /**
+     * Whether every vertex other than the row's source is reachable along a non-backtracking path
+     * in each row.  Lookups in incomplete rows report that they cannot be answered.
+     */
+    private final boolean[] rowComplete;
+
+    /**
+     * Return the approximate number of bytes that a table for `graph` would occupy.
+     */
+    public static long estimateBytes(CompactMazeGraph graph) {
+        return (long) graph.edgeCount() * ((graph.vertexCount() + 3) / 4) + graph.edgeCount();
+    }
+
+    /**
+     * Build the routing table for `graph`, computing rows in parallel.
+     */
+    public NextHopTable(CompactMazeGraph graph) {
+        this.graph = graph;
+        rowStride = (graph.vertexCount() + 3) / 4;
+        entries = new byte[Math.toIntExact((long) graph.edgeCount() * rowStride)];
+        rowComplete = new boolean[graph.edgeCount()];
+        ForkJoinPool.commonPool().invoke(new BuildRows(0, graph.edgeCount()));
+    }
+
+    /**
+     * Computes the rows `[begin..end)` of the table, splitting the range among subtasks if it is
+     * large.
+     */
+    private class BuildRows extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The first row to compute.
+         */
+        private final int begin;
+
+        /**
+         * One more than the last row to compute.
+         */
+        private final int end;
+
+        /**
+         * Create a task for computing rows `[begin..end)`.
+         */
+        BuildRows(int begin, int end) {
+            this.begin = begin;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - begin > ROWS_PER_TASK) {
+                int mid = (begin + end) >>> 1;
+                invokeAll(new BuildRows(begin, mid), new BuildRows(mid, end));
+                return;
+            }
+            DijkstraEngine engine = new DijkstraEngine(graph);
+            int[] firstEdge = new int[graph.vertexCount()];
+            for (int row = begin; row < end; row++) {
+                buildRow(row, engine, firstEdge);
+            }
+        }
+    }
+
+    /**
+     * Compute the row for previous edge `row` using `engine`, with `firstEdge` as scratch space.
+     */
+    private void buildRow(int row, DijkstraEngine engine, int[] firstEdge) {
+        int src = graph.edgeHead(row);
+        engine.search(src, row);
+
+        // Vertices are settled after every vertex on their path, so a vertex's first edge can be
+        // inherited from its parent's tail.
+        for (int k = 1; k < engine.settledCount(); k++) {
+            int v = engine.settledVertex(k);
+            int parent = engine.parentEdge(v);
+            int tail = graph.edgeTail(parent);
+            firstEdge[v] = (tail == src) ? parent : firstEdge[tail];
+            int direction = graph.edgeDirection(firstEdge[v]).ordinal();
+            entries[row * rowStride + v / 4] |= (byte) (direction << (2 * (v % 4)));
+        }
+        rowComplete[row] = engine.settledCount() == graph.vertexCount();
+    }
+
+    /**
+     * Return the direction of the first edge on the shortest non-backtracking path to vertex `dst`
+     * for an actor that just traversed edge `previousEdge`, or null if the table cannot answer
+     * (because some vertex is unreachable from `previousEdge`).  Requires `dst` is not
+     * `previousEdge`'s head.
+     */
+    public Direction nextDirection(int previousEdge, int dst) {
+        assert dst != graph.edgeHead(previousEdge);
+        if (!rowComplete[previousEdge]) {
+            return null;
+        }
+        int packed = entries[previousEdge * rowStride + dst / 4] >> (2 * (dst % 4));
+        return DIRECTIONS[packed & 0b11];
+    }
+
+    /**
+     * Return the number of bytes occupied by this table's arrays.
+     */
+    public long memoryBytes() {
+        return entries.length + rowComplete.length;
+    }
+}
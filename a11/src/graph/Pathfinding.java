@@ -1,5 +1,8 @@
 package graph;
 
+import graph.MazeGraph.MazeEdge;
+import graph.MazeGraph.MazeVertex;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -28,6 +31,74 @@ public class Pathfinding {
         return paths.containsKey(dst) ? pathTo(paths, src, dst) : null;
     }
 
+    /**
+     * Returns a list of the edges comprising the shortest non-backtracking simple path from vertex
+     * `src` to vertex `dst` in maze graph `graph`, under the same rules as the generic
+     * `shortestNonBacktrackingPath()`.  The search runs over `graph.junctions()` in the calling
+     * thread's `SearchWorkspace` for `graph` and stops as soon as `dst` is reached, so only the
+     * returned list is allocated.  Among equally short paths, may return a different one than the
+     * generic search.  Requires that `src` and `dst` are vertices of `graph` and that if
+     * `previousEdge != null` then `previousEdge.head().equals(src)`.
+     */
+    public static List<MazeEdge> shortestNonBacktrackingPath(MazeGraph graph, MazeVertex src,
+            MazeVertex dst, MazeEdge previousEdge) {
+        SearchWorkspace workspace = graph.searchWorkspace();
+        JunctionSearch search = workspace.junctionSearch();
+        search.searchTo(src.id(), previousEdge == null ? -1 : graph.edgeId(previousEdge), dst.id());
+        return search.found() ? pathTo(graph, workspace) : null;
+    }
+
+    /**
+     * Same as `shortestNonBacktrackingPath(graph, src, dst, previousEdge)`, but searches with A*
+     * guided by the wrap-around Manhattan distance to `dst`.  Settles far fewer junctions when
+     * `dst` is near `src`; among equally short paths, may return a different one.  Such ties are
+     * common, so actors that switch to this search play different games from the same seed.
+     */
+    public static List<MazeEdge> shortestNonBacktrackingPathAStar(MazeGraph graph,
+            MazeVertex src, MazeVertex dst, MazeEdge previousEdge) {
+        SearchWorkspace workspace = graph.searchWorkspace();
+        JunctionSearch search = workspace.junctionSearch();
+        search.aStarSearchTo(src.id(), previousEdge == null ? -1 : graph.edgeId(previousEdge),
+                dst.id());
+        return search.found() ? pathTo(graph, workspace) : null;
+    }
+
+    /**
+     * Same as `shortestNonBacktrackingPath(graph, src, dst, previousEdge)`, but searches over
+     * `graph.hierarchy()`, crossing whole clusters at a time.  Returns a shortest non-backtracking
+     * walk, which may revisit a vertex where that is shorter than every simple path.  Requires
+     * `graph.hierarchy() != null`.
+     */
+    public static List<MazeEdge> shortestNonBacktrackingPathHierarchical(MazeGraph graph,
+            MazeVertex src, MazeVertex dst, MazeEdge previousEdge) {
+        assert graph.hierarchy() != null;
+        HierarchicalSearch search = graph.searchWorkspace().hierarchicalSearch();
+        search.search(src.id(), previousEdge == null ? -1 : graph.edgeId(previousEdge), dst.id());
+        if (!search.found()) {
+            return null;
+        }
+        int[] edges = search.path();
+        ArrayList<MazeEdge> pathEdges = new ArrayList<>(edges.length);
+        for (int e : edges) {
+            pathEdges.add(graph.edge(e));
+        }
+        return pathEdges;
+    }
+
+    /**
+     * Return the list of edges in the path found by the most recent junction search in
+     * `workspace`, a workspace for `graph`.  Requires `workspace.junctionSearch().found()`.
+     */
+    static List<MazeEdge> pathTo(MazeGraph graph, SearchWorkspace workspace) {
+        int[] edges = workspace.pathBuffer();
+        int length = workspace.junctionSearch().pathTo(edges);
+        ArrayList<MazeEdge> pathEdges = new ArrayList<>(length);
+        for (int k = 0; k < length; k++) {
+            pathEdges.add(graph.edge(edges[k]));
+        }
+        return pathEdges;
+    }
+
     /**
      * Returns a map that associates each vertex reachable from `src` along a non-backtracking path
      * with a `PathEnd` object. The `PathEnd` object summarizes relevant information about the
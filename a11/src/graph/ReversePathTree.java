@@ -0,0 +1,113 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * The shortest paths from every vertex of a `CompactMazeGraph` to one destination, found by a
+ * single Dijkstra search outward from the destination along reversed edges.  Navigating toward
+ * the destination then takes one array lookup per vertex instead of a search.
+ * <p>
+ * The tree's path from a vertex is shortest among all walks, and since it is simple it never
+ * backtracks along the way.  So it is also the shortest non-backtracking path, unless its first
+ * edge backtracks the edge just traversed; `firstEdge()` reports that case so that callers can
+ * search for the best legal path instead.
+ * <p>
+ * Lengths are summed from the destination backward, and ties are broken by the order in which
+ * vertices are settled from the destination.  So among equally short paths (which are common,
+ * since edge weights telescope with elevation) a tree may choose a different one than a forward
+ * `DijkstraEngine` search from the traveller, and ghosts navigating by it may take different
+ * routes.
+ * <p>
+ * A tree is immutable once constructed, so any number of threads may read it at once.
+ */
+public final class ReversePathTree {
+
+    /**
+     * The graph whose paths this tree holds.
+     */
+    private final CompactMazeGraph graph;
+
+    /**
+     * The destination of every path in this tree.
+     */
+    private final int destination;
+
+    /**
+     * The id of the first edge of the shortest path from each vertex to `destination`, or -1 for
+     * `destination` itself and for vertices that cannot reach it.
+     */
+    private final int[] nextEdge;
+
+    /**
+     * Compute the shortest paths from every vertex of `graph` to vertex `dst`.
+     */
+    public ReversePathTree(CompactMazeGraph graph, int dst) {
+        this.graph = graph;
+        destination = dst;
+        int n = graph.vertexCount();
+        nextEdge = new int[n];
+        Arrays.fill(nextEdge, -1);
+        double[] dist = new double[n];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        boolean[] settled = new boolean[n];
+        IndexedMinHeap frontier = new IndexedMinHeap(n);
+        dist[dst] = 0.0;
+        frontier.addOrUpdate(dst, 0.0);
+        while (!frontier.isEmpty()) {
+            int current = frontier.remove();
+            settled[current] = true;
+            // Every edge into `current` is the reverse of an edge out of it
+            for (int e = graph.edgeStart(current); e < graph.edgeEnd(current); e++) {
+                int neighbor = graph.edgeHead(e);
+                if (settled[neighbor]) {
+                    continue;
+                }
+                int toCurrent = graph.reverseEdge(e);
+                double newDistance = dist[current] + graph.edgeWeight(toCurrent);
+                if (newDistance < dist[neighbor]) {
+                    dist[neighbor] = newDistance;
+                    nextEdge[neighbor] = toCurrent;
+                    frontier.addOrUpdate(neighbor, newDistance);
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the destination of this tree's paths.
+     */
+    public int destination() {
+        return destination;
+    }
+
+    /**
+     * Return the id of the first edge of the shortest non-backtracking path from vertex `src` to
+     * this tree's destination for a traveller that just traversed edge `previousEdge` (or -1), or
+     * -1 if `src` is the destination, cannot reach it, or would have to backtrack to follow the
+     * tree.  Requires that if `previousEdge != -1` then `graph.edgeHead(previousEdge) == src`.
+     */
+    public int firstEdge(int src, int previousEdge) {
+        assert previousEdge == -1 || graph.edgeHead(previousEdge) == src;
+        int e = nextEdge[src];
+        if (e == -1 || (previousEdge != -1
+                && graph.edgeHead(e) == graph.edgeTail(previousEdge))) {
+            return -1;
+        }
+        return e;
+    }
+
+    /**
+     * Return the id of the edge following edge `e` on this tree's path to its destination, or -1
+     * if `e` ends at the destination.  Requires that `e` is on the tree's path from its tail.
+     */
+    public int edgeAfter(int e) {
+        return nextEdge[graph.edgeHead(e)];
+    }
+
+    /**
+     * Return the number of bytes occupied by this tree's arrays.
+     */
+    public long memoryBytes() {
+        return 4L * nextEdge.length;
+    }
+}
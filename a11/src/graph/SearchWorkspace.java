@@ -0,0 +1,92 @@
+package graph;
+
+/**
+ * Scratch storage for searching one maze graph, so that code that searches on every decision
+ * does not allocate.  Holds a `JunctionSearch` for searches to a single destination and a
+ * `DijkstraEngine` for searches that need a whole tree (both with epoch-stamped arrays that need
+ * no clearing between searches), a `TargetSearch` for travellers sharing a destination, a
+ * `HierarchicalSearch` if the graph has a `ClusterHierarchy`, and a buffer for reading out paths.
+ * <p>
+ * A workspace must only be used by one thread at a time.  `MazeGraph.searchWorkspace()` hands out
+ * one per thread, so games played concurrently on the same graph do not contend for it.  Results
+ * last until the next search on the same thread, so callers should read what they need before
+ * calling code that might search.
+ */
+public final class SearchWorkspace {
+
+    /**
+     * The engine for weighted searches.
+     */
+    private final DijkstraEngine engine;
+
+    /**
+     * The search over the graph's junctions.
+     */
+    private final JunctionSearch junctionSearch;
+
+    /**
+     * The search for several travellers heading to the same destination.
+     */
+    private final TargetSearch targetSearch;
+
+    /**
+     * The search over the graph's cluster hierarchy, or null if it has none.
+     */
+    private final HierarchicalSearch hierarchicalSearch;
+
+    /**
+     * Room for the edge ids of any simple path in the graph.
+     */
+    private final int[] pathEdges;
+
+    /**
+     * Create a workspace for searching `junctions.graph()`, by way of `junctions` where possible
+     * and of `hierarchy` (if not null) when asked.  Requires that `hierarchy` is null or
+     * partitions `junctions.graph()`.
+     */
+    public SearchWorkspace(JunctionGraph junctions, ClusterHierarchy hierarchy) {
+        assert hierarchy == null || hierarchy.graph() == junctions.graph();
+        engine = new DijkstraEngine(junctions.graph());
+        junctionSearch = new JunctionSearch(junctions);
+        targetSearch = new TargetSearch(junctions.graph());
+        hierarchicalSearch = (hierarchy != null) ? new HierarchicalSearch(hierarchy) : null;
+        pathEdges = new int[junctions.graph().vertexCount()];
+    }
+
+    /**
+     * Return the search engine of this workspace.
+     */
+    public DijkstraEngine engine() {
+        return engine;
+    }
+
+    /**
+     * Return the junction search of this workspace.
+     */
+    public JunctionSearch junctionSearch() {
+        return junctionSearch;
+    }
+
+    /**
+     * Return the shared-destination search of this workspace.
+     */
+    public TargetSearch targetSearch() {
+        return targetSearch;
+    }
+
+    /**
+     * Return the hierarchical search of this workspace, or null if its graph has no hierarchy.
+     */
+    public HierarchicalSearch hierarchicalSearch() {
+        return hierarchicalSearch;
+    }
+
+    /**
+     * Return an array with room for the edge ids of any simple path in the graph, such as the
+     * paths written by `DijkstraEngine.pathTo()` and `JunctionSearch.pathTo()`.  Its contents are
+     * only meaningful until the next caller on this thread uses it.
+     */
+    public int[] pathBuffer() {
+        return pathEdges;
+    }
+}
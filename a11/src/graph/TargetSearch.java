@@ -0,0 +1,157 @@
+package graph;
+
+import java.util.Arrays;
+
+/**
+ * Finds, with one search, the first edges of shortest non-backtracking walks from several sources
+ * to a common destination.  The search runs backward from the destination over edges rather than
+ * vertices: the length recorded for an edge is that of the shortest walk to the destination that
+ * starts along it, and such a walk may only continue from its head along an edge that does not
+ * lead straight back.  A traveller who just traversed edge `p` to vertex `v` may take any edge out
+ * of `v` except the one back to `p`'s tail, so its best first edge is the first such edge that the
+ * search settles, and the search stops once every traveller has one.
+ * <p>
+ * Because lengths are kept per edge, the walks found are as short as any non-backtracking walk
+ * (which `DijkstraEngine`, keeping only the best path to each vertex, does not always achieve).
+ * Lengths are summed from the destination backward, so among equally short walks this search may
+ * choose a different one than a forward search.
+ * <p>
+ * A search owns its working storage, which is reused from search to search (with epoch-stamped
+ * arrays that need no clearing), and is not thread-safe; `SearchWorkspace` holds one per thread.
+ */
+public class TargetSearch {
+
+    /**
+     * The graph being searched.
+     */
+    private final CompactMazeGraph graph;
+
+    /**
+     * The length of the shortest-known walk to the destination starting along each edge.  Only
+     * meaningful for edges whose `reachedStamp` is the current epoch.
+     */
+    private final double[] dist;
+
+    /**
+     * The edge following each edge on its shortest-known walk to the destination, or -1 if the
+     * edge ends at the destination.  Only meaningful for edges whose `reachedStamp` is the current
+     * epoch.
+     */
+    private final int[] nextEdge;
+
+    /**
+     * The epoch of the most recent search that found a walk starting along each edge.
+     */
+    private final int[] reachedStamp;
+
+    /**
+     * The frontier of edges of the current search.
+     */
+    private final IndexedMinHeap frontier;
+
+    /**
+     * Identifies the most recent search.  Incremented at the start of every search.
+     */
+    private int epoch;
+
+    /**
+     * The number of edges settled by the most recent search.
+     */
+    private int settledCount;
+
+    /**
+     * Create a search of `graph`.
+     */
+    public TargetSearch(CompactMazeGraph graph) {
+        this.graph = graph;
+        dist = new double[graph.edgeCount()];
+        nextEdge = new int[graph.edgeCount()];
+        reachedStamp = new int[graph.edgeCount()];
+        frontier = new IndexedMinHeap(graph.edgeCount());
+    }
+
+    /**
+     * For each `k` in `[0..count)`, find the shortest non-backtracking walk from vertex
+     * `sources[k]` to vertex `dst` whose first edge does not backtrack `previousEdges[k]` (if it
+     * is not -1), and write the id of its first edge to `firstEdges[k]` (or -1 if there is no such
+     * walk).  Requires `sources[k] != dst`, and that if `previousEdges[k] != -1` then
+     * `graph.edgeHead(previousEdges[k]) == sources[k]`.
+     */
+    public void search(int dst, int[] sources, int[] previousEdges, int[] firstEdges, int count) {
+        epoch += 1;
+        if (epoch == Integer.MAX_VALUE) {
+            Arrays.fill(reachedStamp, 0);
+            epoch = 1;
+        }
+        frontier.clear();
+        settledCount = 0;
+        int unresolved = count;
+        for (int k = 0; k < count; k++) {
+            assert sources[k] != dst;
+            assert previousEdges[k] == -1 || graph.edgeHead(previousEdges[k]) == sources[k];
+            firstEdges[k] = -1;
+        }
+
+        // Every edge into `dst` is the reverse of an edge out of it
+        for (int f = graph.edgeStart(dst); f < graph.edgeEnd(dst); f++) {
+            int e = graph.reverseEdge(f);
+            reach(e, graph.edgeWeight(e), -1);
+        }
+
+        while (!frontier.isEmpty() && unresolved > 0) {
+            int e = frontier.remove();
+            settledCount += 1;
+            int tail = graph.edgeTail(e);
+            int head = graph.edgeHead(e);
+            for (int k = 0; k < count; k++) {
+                if (firstEdges[k] == -1 && sources[k] == tail && (previousEdges[k] == -1
+                        || graph.edgeTail(previousEdges[k]) != head)) {
+                    firstEdges[k] = e;
+                    unresolved -= 1;
+                }
+            }
+            if (tail == dst) {
+                continue; // walks end the first time they arrive
+            }
+            // Extend the walk backward along each edge into `tail` that `e` does not backtrack
+            for (int f = graph.edgeStart(tail); f < graph.edgeEnd(tail); f++) {
+                if (graph.edgeHead(f) == head) {
+                    continue;
+                }
+                int p = graph.reverseEdge(f);
+                double d = dist[e] + graph.edgeWeight(p);
+                if (reachedStamp[p] != epoch || d < dist[p]) {
+                    reach(p, d, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Record that the shortest-known walk to the destination starting along edge `e` has length
+     * `distance` and continues along edge `next` (or -1).
+     */
+    private void reach(int e, double distance, int next) {
+        dist[e] = distance;
+        nextEdge[e] = next;
+        reachedStamp[e] = epoch;
+        frontier.addOrUpdate(e, distance);
+    }
+
+    /**
+     * Return the number of edges settled by the most recent search.
+     */
+    public int settledCount() {
+        return settledCount;
+    }
+
+    /**
+     * Return the id of the edge following edge `e` on the walk found by the most recent search, or
+     * -1 if `e` ends at the destination.  Requires that `e` was written to `firstEdges` by that
+     * search or follows such an edge on its walk.
+     */
+    public int edgeAfter(int e) {
+        assert reachedStamp[e] == epoch;
+        return nextEdge[e];
+    }
+}
@@ -216,12 +216,18 @@ public abstract class Actor {
      * `currentEdge.head()` (accounting for tunnels).
      */
     public DPair getBoundingBoxUL() {
-        MazeEdge currentEdge = location.edge();
+        return boundingBoxUL(location.edge(), location.progress());
+    }
+
+    /**
+     * Return the upper left corner of the bounding box of an actor that is `distanceAlongEdge` of
+     * the way along `currentEdge` (as in `getBoundingBoxUL()`).
+     */
+    static DPair boundingBoxUL(MazeEdge currentEdge, double distanceAlongEdge) {
         IPair loc = currentEdge.tail().loc();
         double x = loc.i() - 0.25;
         double y = loc.j() - 0.25;
 
-        double distanceAlongEdge = location.progress();
         return switch (currentEdge.direction()) {
             case Direction.LEFT -> new DPair(x - distanceAlongEdge, y);
             case Direction.RIGHT -> new DPair(x + distanceAlongEdge, y);
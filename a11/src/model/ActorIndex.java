@@ -0,0 +1,123 @@
+package model;
+
+import graph.CompactMazeGraph;
+import graph.MazeGraph;
+import graph.MazeGraph.MazeEdge;
+import java.util.Arrays;
+
+/**
+ * A spatial index of a game's actors, bucketing them by the undirected edge they are traversing so
+ * that the actors near a given edge or vertex can be found without scanning every actor.  Buckets
+ * are intrusive doubly-linked lists threaded through primitive arrays, so moving an actor between
+ * buckets takes O(1) time and does not allocate.
+ * <p>
+ * An undirected edge is identified by the smaller of the compact ids of its two directed edges.
+ * The index does not observe actors itself; the model must call `update()` whenever an actor's
+ * edge may have changed.
+ */
+class ActorIndex {
+
+    /**
+     * The compact form of the graph the actors move on.
+     */
+    private final CompactMazeGraph graph;
+
+    /**
+     * The graph the actors move on, used to look up the compact ids of edges.
+     */
+    private final MazeGraph mazeGraph;
+
+    /**
+     * The first actor in each undirected edge's bucket, or -1 if the bucket is empty.  Indexed by
+     * undirected edge id.
+     */
+    private final int[] bucketHead;
+
+    /**
+     * The undirected edge id of each actor's bucket, or -1 if the actor has not been indexed yet.
+     */
+    private final int[] actorEdge;
+
+    /**
+     * The next actor in each actor's bucket, or -1 if it is the last.
+     */
+    private final int[] nextActor;
+
+    /**
+     * The previous actor in each actor's bucket, or -1 if it is the first.
+     */
+    private final int[] prevActor;
+
+    /**
+     * Create an empty index for `numActors` actors moving on `graph`.
+     */
+    ActorIndex(MazeGraph graph, int numActors) {
+        mazeGraph = graph;
+        this.graph = graph.compact();
+        bucketHead = new int[this.graph.edgeCount()];
+        Arrays.fill(bucketHead, -1);
+        actorEdge = new int[numActors];
+        Arrays.fill(actorEdge, -1);
+        nextActor = new int[numActors];
+        prevActor = new int[numActors];
+    }
+
+    /**
+     * Return the id of the undirected edge between the endpoints of the directed edge whose
+     * compact id is `e`.
+     */
+    int undirectedEdge(int e) {
+        return Math.min(e, graph.reverseEdge(e));
+    }
+
+    /**
+     * Record that actor `a` is now traversing `edge`, moving it to that edge's bucket if
+     * necessary.
+     */
+    void update(int a, MazeEdge edge) {
+        int key = undirectedEdge(mazeGraph.edgeId(edge));
+        if (actorEdge[a] == key) {
+            return;
+        }
+        if (actorEdge[a] >= 0) {
+            // Unlink from the old bucket
+            if (prevActor[a] >= 0) {
+                nextActor[prevActor[a]] = nextActor[a];
+            } else {
+                bucketHead[actorEdge[a]] = nextActor[a];
+            }
+            if (nextActor[a] >= 0) {
+                prevActor[nextActor[a]] = prevActor[a];
+            }
+        }
+        actorEdge[a] = key;
+        prevActor[a] = -1;
+        nextActor[a] = bucketHead[key];
+        if (nextActor[a] >= 0) {
+            prevActor[nextActor[a]] = a;
+        }
+        bucketHead[key] = a;
+    }
+
+    /**
+     * Return the undirected edge id of the bucket containing actor `a`.
+     */
+    int edgeOf(int a) {
+        return actorEdge[a];
+    }
+
+    /**
+     * Return the first actor on undirected edge `key`, or -1 if there are none.  Further actors
+     * are found with `next()`; the order is unspecified.
+     */
+    int first(int key) {
+        return bucketHead[key];
+    }
+
+    /**
+     * Return the actor after `a` in its bucket, or -1 if there are no more.
+     */
+    int next(int a) {
+        return nextActor[a];
+    }
+}
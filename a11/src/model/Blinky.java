@@ -1,6 +1,8 @@
 package model;
 
 import java.awt.Color;
+import java.util.Random;
+import graph.MazeGraph.Corner;
 import graph.MazeGraph.MazeVertex;
 import graph.MazeGraph.IPair;
 
@@ -19,14 +21,15 @@ public class Blinky extends Ghost {
     }
 
     @Override
-    protected MazeVertex target() {
-        if (state() == GhostState.CHASE) {
-            return model.pacMann().nearestVertex();
+    protected MazeVertex target(BoardView board, GhostState state, MazeVertex position,
+            Random rng) {
+        if (state == GhostState.CHASE) {
+            return board.pacMannVertex();
         }
-        if (state() == GhostState.FLEE) {
-            return model.graph().closestTo(2, 2);
+        if (state == GhostState.FLEE) {
+            return board.graph().corner(Corner.TOP_LEFT);
         }
-        MazeVertex start = model.graph().ghostStartingEdge().tail();
+        MazeVertex start = board.graph().ghostStartingEdge().tail();
         return start;
     }
 }
\ No newline at end of file
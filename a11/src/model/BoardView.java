@@ -0,0 +1,43 @@
+package model;
+
+import graph.MazeGraph;
+import graph.MazeGraph.Direction;
+import graph.MazeGraph.MazeVertex;
+
+/**
+ * The parts of a game's state that ghosts base their targets on.  Implemented both by `GameModel`,
+ * for the game being played, and by `GameSnapshot`, for simulated continuations of it, so that the
+ * same targeting code serves both.
+ */
+public interface BoardView {
+
+    /**
+     * Return the graph of the maze being played on.
+     */
+    MazeGraph graph();
+
+    /**
+     * Return the width of the maze, in tiles.
+     */
+    int width();
+
+    /**
+     * Return the height of the maze, in tiles.
+     */
+    int height();
+
+    /**
+     * Return the vertex nearest to PacMann.
+     */
+    MazeVertex pacMannVertex();
+
+    /**
+     * Return the direction of the edge PacMann is traversing (or has just traversed).
+     */
+    Direction pacMannDirection();
+
+    /**
+     * Return the vertex nearest to Blinky.
+     */
+    MazeVertex blinkyVertex();
+}
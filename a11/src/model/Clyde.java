@@ -2,6 +2,7 @@ package model;
 
 import java.awt.Color;
 import java.util.Random;
+import graph.MazeGraph.Corner;
 import graph.MazeGraph.MazeVertex;
 import graph.MazeGraph.IPair;
 
@@ -25,13 +26,17 @@ public class Clyde extends Ghost {
 
     @Override
     protected MazeVertex target() {
-        int width = model.width();
-        int height = model.height();
-        if (state() == GhostState.FLEE) {
-            return model.graph().closestTo(width - 3, height - 3);
+        return target(model, state, nearestVertex(), rng);
+    }
+
+    @Override
+    protected MazeVertex target(BoardView board, GhostState state, MazeVertex position,
+            Random rng) {
+        if (state == GhostState.FLEE) {
+            return board.graph().corner(Corner.BOTTOM_RIGHT);
         }
-        MazeVertex clydeVertex = nearestVertex();
-        MazeVertex pacMannVertex = model.pacMann().nearestVertex();
+        MazeVertex clydeVertex = position;
+        MazeVertex pacMannVertex = board.pacMannVertex();
         IPair clydeLocation = clydeVertex.loc();
         IPair pacMannLocation = pacMannVertex.loc();
         double distanceX = pacMannLocation.i() - clydeLocation.i();
@@ -40,9 +45,9 @@ public class Clyde extends Ghost {
         if (distanceTotal >= 10.0) {
             return pacMannVertex;
         } else {
-            int randomX = rng.nextInt(width);
-            int randomY = rng.nextInt(height);
-            return model.graph().closestTo(randomX, randomY);
+            int randomX = rng.nextInt(board.width());
+            int randomY = rng.nextInt(board.height());
+            return board.graph().closestTo(randomX, randomY);
         }
     }
 }
\ No newline at end of file
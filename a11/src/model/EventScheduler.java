@@ -0,0 +1,114 @@
+package model;
+
+import graph.IndexedMinHeap;
+import java.util.List;
+
+/**
+ * Keeps track of when each actor of a game next needs attention from the simulation, so that
+ * `GameModel.updateActors()` can jump straight from one event to the next without asking every
+ * actor on every step.  An actor's next event is its next vertex arrival or state change, as
+ * predicted by `Actor.maxPropagationTime()`; it is cached as an absolute game time in a priority
+ * queue.
+ * <p>
+ * Actors move linearly between events, so cached times stay valid until an actor changes edge,
+ * speed, or state.  The model reports such changes with `invalidate()` when it causes them
+ * (starting an edge, fleeing, respawning, resetting), and changes that happen while propagating
+ * are themselves events, so they are picked up when they come due.
+ */
+class EventScheduler {
+
+    /**
+     * How far (in ms) past the current time a cached event may lie and still be treated as due.
+     * Absorbs the rounding error of storing times as absolute values; much smaller than the
+     * minimum timestep `GameModel` takes.
+     */
+    static final double TOLERANCE = 1e-9;
+
+    /**
+     * The actors being scheduled, in the same order as in the game model.
+     */
+    private final List<Actor> actors;
+
+    /**
+     * Orders actors by the absolute time of their next event.
+     */
+    private final IndexedMinHeap queue;
+
+    /**
+     * Whether each actor's next event needs to be recomputed.
+     */
+    private final boolean[] dirty;
+
+    /**
+     * The indices of the dirty actors, in `dirtyList[0..dirtyCount)`.
+     */
+    private final int[] dirtyList;
+
+    /**
+     * The number of dirty actors.
+     */
+    private int dirtyCount;
+
+    /**
+     * Create a scheduler for `actors`, all of which start out needing their events computed.
+     */
+    EventScheduler(List<Actor> actors) {
+        this.actors = actors;
+        queue = new IndexedMinHeap(actors.size());
+        dirty = new boolean[actors.size()];
+        dirtyList = new int[actors.size()];
+        for (int a = 0; a < actors.size(); a++) {
+            invalidate(a);
+        }
+    }
+
+    /**
+     * Record that the motion of actor `a` (by index) has changed in a way that its cached event
+     * does not account for.
+     */
+    void invalidate(int a) {
+        if (!dirty[a]) {
+            dirty[a] = true;
+            dirtyList[dirtyCount++] = a;
+        }
+    }
+
+    /**
+     * Bring the cached events up to date at game time `now`, recomputing the next event of every
+     * actor that has been invalidated or whose event is due.  Return whether any actor's event
+     * was recomputed (in which case predictions involving their trajectories are stale).
+     */
+    boolean refresh(double now) {
+        while (!queue.isEmpty() && queue.minPriority() <= now + TOLERANCE) {
+            invalidate(queue.remove());
+        }
+        if (dirtyCount == 0) {
+            return false;
+        }
+        for (int k = 0; k < dirtyCount; k++) {
+            int a = dirtyList[k];
+            queue.addOrUpdate(a, now + actors.get(a).maxPropagationTime());
+            dirty[a] = false;
+        }
+        dirtyCount = 0;
+        return true;
+    }
+
+    /**
+     * Return how long (in ms) after game time `now` the next actor event occurs, or
+     * POSITIVE_INFINITY if none is expected.  Requires `refresh(now)` has been called since the
+     * actors last moved.
+     */
+    double nextEventDt(double now) {
+        assert dirtyCount == 0;
+        if (queue.isEmpty()) {
+            return Double.POSITIVE_INFINITY;
+        }
+        double cached = queue.minPriority() - now;
+        // Prefer asking the actor directly, so that a moving actor lands exactly on its event
+        // rather than within rounding error of it.  (An actor that is not moving, like a waiting
+        // ghost, reports the same time no matter how long it has waited, so its cached time wins.)
+        double fresh = actors.get(queue.peek()).maxPropagationTime();
+        return (fresh <= cached + TOLERANCE) ? fresh : cached;
+    }
+}
@@ -1,21 +1,23 @@
 package model;
 
+import graph.CompactMazeGraph;
 import graph.MazeGraph;
 import java.util.HashSet;
 import graph.MazeGraph.IPair;
 import graph.MazeGraph.MazeEdge;
 import graph.MazeGraph.MazeVertex;
+import graph.SearchWorkspace;
+import graph.TargetSearch;
 import util.ElevationGenerator;
 import util.MazeGenerator;
 import util.MazeGenerator.TileType;
 import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
 import javax.swing.event.SwingPropertyChangeSupport;
+import model.Actor.Location;
 import model.Ghost.GhostState;
 import graph.MazeGraph.Direction;
 import util.GameMap;
@@ -24,7 +26,7 @@ import util.Randomness;
 /**
  * The underlying state representation of a PacMann game, including the game graph and actors.
  */
-public class GameModel {
+public class GameModel implements BoardView {
 
     /**
      * During its lifetime, the game transitions from READY -> PLAYING -> either VICTORY/DEFEAT
@@ -47,16 +49,31 @@ public class GameModel {
     public enum Item {DOT, PELLET, NONE}
 
     /**
-     * A map from the vertices in the game graph to items positioned on these vertices. `item` only
-     * includes the vertices containing DOTs and PELLETs, not NONE.
+     * The dots and pellets remaining on the vertices of the game graph.
      */
-    private final Map<MazeVertex, Item> items;
+    private final ItemSet items;
 
     /**
      * The graph representation of the game's maze
      */
     private final MazeGraph graph;
 
+    /**
+     * The number of ghosts after which catching another one (since the last pellet) stops
+     * doubling the bonus
+     */
+    private static final int MAX_CAPTURE_DOUBLINGS = 4;
+
+    /**
+     * The points scored for eating a dot
+     */
+    static final int DOT_SCORE = 10;
+
+    /**
+     * The points scored for eating a pellet
+     */
+    static final int PELLET_SCORE = 50;
+
     /**
      * The current score
      */
@@ -78,10 +95,58 @@ public class GameModel {
     private final int height;
 
     /**
-     * The actors in this game, PacMann will be in index 0 and the ghosts will be in indices 1-4
+     * The actors in this game, PacMann will be in index 0 and the ghosts will be in indices 1-4,
+     * followed by any extra ghosts
      */
     private final List<Actor> actors;
 
+    /**
+     * Tracks when each actor next arrives at a vertex or changes state
+     */
+    private final EventScheduler scheduler;
+
+    /**
+     * The absolute game time of the next predicted collision between actors, given their
+     * trajectories when it was computed
+     */
+    private double collisionTime;
+
+    /**
+     * Buckets actors by the undirected edge they are traversing
+     */
+    private final ActorIndex actorIndex;
+
+    /**
+     * Scratch space for `checkCollisions()`: the actors that PacMann may be colliding with
+     */
+    private final int[] collisionCandidates;
+
+    /**
+     * Scratch space for `nextCollisionTime()`: each actor's position along its undirected edge
+     */
+    private final double[] trajectoryP;
+
+    /**
+     * Scratch space for `nextCollisionTime()`: each actor's velocity along its undirected edge
+     */
+    private final double[] trajectoryV;
+
+    /**
+     * Scratch space for `navAndGuide()`: the indices of the ghosts whose next edges need a search,
+     * and the ids of their targets (-1 once a ghost's edge has been chosen)
+     */
+    private final int[] searchingGhosts;
+    private final int[] searchTargets;
+
+    /**
+     * Scratch space for `navAndGuide()`: for the ghosts sharing a search, their positions in
+     * `searchingGhosts`, their vertices, the edges they just traversed, and their first edges
+     */
+    private final int[] sharers;
+    private final int[] sharerSources;
+    private final int[] sharerPreviousEdges;
+    private final int[] sharerFirstEdges;
+
     /**
      * The number of ghosts that were caught during the current FLEE cycle
      */
@@ -110,12 +175,41 @@ public class GameModel {
      * Construct a new game model using the given arrays of tile types and elevations
      */
     public GameModel(GameMap map, Randomness randomness, boolean withAI) {
+        this(map, randomness, withAI, 0);
+    }
+
+    /**
+     * Construct a new game model using the given arrays of tile types and elevations, with
+     * `extraGhosts` ghosts in addition to the usual four.  Extra ghosts cycle through the
+     * behaviors of Blinky, Pinky, Inky, and Clyde.  Requires `extraGhosts >= 0`.
+     */
+    public GameModel(GameMap map, Randomness randomness, boolean withAI, int extraGhosts) {
+        this(map, randomness, withAI, extraGhosts, MazeGraph.DEFAULT_NEXT_HOP_BUDGET);
+    }
+
+    /**
+     * Construct a new game model as by `GameModel(GameMap, Randomness, boolean, int)`, whose maze
+     * graph builds a next-hop table if it would occupy at most `nextHopBudget` bytes.
+     */
+    public GameModel(GameMap map, Randomness randomness, boolean withAI, int extraGhosts,
+            long nextHopBudget) {
+        this(map, randomness, withAI, extraGhosts, nextHopBudget, 0);
+    }
+
+    /**
+     * Construct a new game model as by `GameModel(GameMap, Randomness, boolean, int, long)`, whose
+     * maze graph also builds a cluster hierarchy with clusters of `clusterSize` by `clusterSize`
+     * tiles if `clusterSize` is positive.  Ghosts search the hierarchy when they cannot look up
+     * their paths.  Requires `clusterSize >= 0`.
+     */
+    public GameModel(GameMap map, Randomness randomness, boolean withAI, int extraGhosts,
+            long nextHopBudget, int clusterSize) {
         this.map = map;
         width = map.types().length;
         height = map.types()[0].length;
-        graph = new MazeGraph(map);
+        graph = new MazeGraph(map, nextHopBudget, clusterSize);
 
-        items = new HashMap<>();
+        items = new ItemSet(graph.compact());
         placeDotsAndPellets();
 
         score = 0;
@@ -135,8 +229,30 @@ public class GameModel {
         actors.add(new Inky(this));
         // Uncomment the following line after completing TODO 4d
         actors.add(new Clyde(this, randomness.generatorFor("Clyde")));
-
-        boolean notifyOnEdit = false; // no threads, so false is okay
+        for (int k = 1; k <= extraGhosts; k++) {
+            actors.add(switch (k % 4) {
+                case 1 -> new Blinky(this);
+                case 2 -> new Pinky(this);
+                case 3 -> new Inky(this);
+                default -> new Clyde(this, randomness.generatorFor("Clyde" + k));
+            });
+        }
+        scheduler = new EventScheduler(actors);
+        actorIndex = new ActorIndex(graph, actors.size());
+        for (int i = 0; i < actors.size(); i++) {
+            actorIndex.update(i, actors.get(i).currentEdge());
+        }
+        collisionCandidates = new int[actors.size()];
+        trajectoryP = new double[actors.size()];
+        trajectoryV = new double[actors.size()];
+        searchingGhosts = new int[actors.size()];
+        searchTargets = new int[actors.size()];
+        sharers = new int[actors.size()];
+        sharerSources = new int[actors.size()];
+        sharerPreviousEdges = new int[actors.size()];
+        sharerFirstEdges = new int[actors.size()];
+
+        boolean notifyOnEdit = false; // observers are notified on whichever thread updates us
         propSupport = new SwingPropertyChangeSupport(this, notifyOnEdit);
     }
 
@@ -144,6 +260,36 @@ public class GameModel {
      * Static method to construct a GameModel object associated with a new random maze
      */
     public static GameModel newGame(int width, int height, boolean withAI, Randomness randomness) {
+        return newGame(width, height, withAI, randomness, 0);
+    }
+
+    /**
+     * Static method to construct a GameModel object associated with a new random maze, with
+     * `extraGhosts` ghosts in addition to the usual four
+     */
+    public static GameModel newGame(int width, int height, boolean withAI, Randomness randomness,
+            int extraGhosts) {
+        return newGame(width, height, withAI, randomness, extraGhosts,
+                MazeGraph.DEFAULT_NEXT_HOP_BUDGET);
+    }
+
+    /**
+     * Static method to construct a GameModel object associated with a new random maze, with
+     * `extraGhosts` ghosts in addition to the usual four, whose maze graph builds a next-hop table
+     * if it would occupy at most `nextHopBudget` bytes
+     */
+    public static GameModel newGame(int width, int height, boolean withAI, Randomness randomness,
+            int extraGhosts, long nextHopBudget) {
+        return newGame(width, height, withAI, randomness, extraGhosts, nextHopBudget, 0);
+    }
+
+    /**
+     * Static method to construct a GameModel object associated with a new random maze, as by
+     * `newGame(int, int, boolean, Randomness, int, long)`, whose maze graph also builds a cluster
+     * hierarchy with clusters of `clusterSize` by `clusterSize` tiles if `clusterSize` is positive
+     */
+    public static GameModel newGame(int width, int height, boolean withAI, Randomness randomness,
+            int extraGhosts, long nextHopBudget, int clusterSize) {
         TileType[][] types = new MazeGenerator(width, height,
                 randomness.generatorFor("MazeGenerator")).generateMaze();
         int tilesAcross = 3 * width + 2;
@@ -151,7 +297,7 @@ public class GameModel {
         double[][] elevations = ElevationGenerator.generateElevations(tilesAcross, tilesHigh,
                 randomness.generatorFor("ElevationGenerator"));
         return new GameModel(new GameMap(types, elevations), randomness.randomnessFor("GameModel"),
-                withAI);
+                withAI, extraGhosts, nextHopBudget, clusterSize);
     }
 
     /**
@@ -171,7 +317,7 @@ public class GameModel {
 
         for (MazeVertex v : graph.vertices()) {
             if (pelletLocs.contains(v.loc())) {
-                items.put(v, Item.PELLET);
+                items.add(v.id(), Item.PELLET);
                 continue;
             }
 
@@ -180,7 +326,7 @@ public class GameModel {
 
             // place pellets at all interior vertices
             if (i >= 2 && i < width - 2 && j >= 2 && j < height - 2) {
-                items.put(v, Item.DOT);
+                items.add(v.id(), Item.DOT);
             }
         }
     }
@@ -217,6 +363,14 @@ public class GameModel {
         return graph;
     }
 
+    /**
+     * Return the calling thread's workspace for searching this game's graph, which actors can use
+     * instead of allocating their own storage for each search.
+     */
+    public SearchWorkspace searchWorkspace() {
+        return graph.searchWorkspace();
+    }
+
     /**
      * Return the actors associated with this game instance
      */
@@ -231,6 +385,21 @@ public class GameModel {
         return (PacMann) actors.getFirst();
     }
 
+    @Override
+    public MazeVertex pacMannVertex() {
+        return pacMann().nearestVertex();
+    }
+
+    @Override
+    public Direction pacMannDirection() {
+        return pacMann().currentEdge().direction();
+    }
+
+    @Override
+    public MazeVertex blinkyVertex() {
+        return blinky().nearestVertex();
+    }
+
     /**
      * Return a reference to this game instance's Blinky Actor object
      */
@@ -273,14 +442,106 @@ public class GameModel {
         return time;
     }
 
+    /**
+     * Return the number of times so far this game that a ghost has found its path by repairing its
+     * previous search tree.  (Paths looked up in the graph's next-hop table are not counted.)
+     */
+    public long pathRepairs() {
+        long total = 0;
+        for (Actor actor : actors) {
+            if (actor instanceof Ghost ghost) {
+                total += ghost.pathRepairs();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Return the number of times so far this game that a ghost has had to search for its path from
+     * scratch.  (Paths looked up in the graph's next-hop table are not counted.)
+     */
+    public long pathRecomputes() {
+        long total = 0;
+        for (Actor actor : actors) {
+            if (actor instanceof Ghost ghost) {
+                total += ghost.pathRecomputes();
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Return the number of times so far this game that a ghost has taken its path from a search
+     * shared with the other ghosts heading for the same vertex (see `navAndGuide()`).
+     */
+    public long pathShares() {
+        long total = 0;
+        for (Actor actor : actors) {
+            if (actor instanceof Ghost ghost) {
+                total += ghost.pathShares();
+            }
+        }
+        return total;
+    }
+
     /**
      * Return the item located at the given Vertex `v`, possibly NONE. This method will never return
      * null.
      */
     public Item itemAt(MazeVertex v) {
-        return items.getOrDefault(v, Item.NONE);
+        return items.get(v.id());
+    }
+
+    /**
+     * Return the number of dots and pellets remaining.
+     */
+    public int itemsRemaining() {
+        return items.remaining();
+    }
+
+    /**
+     * Return a vertex holding a dot or pellet whose tile is as close as possible to `v`'s (by
+     * Manhattan distance, ignoring walls and tunnels), or null if none remain.
+     */
+    public MazeVertex nearestItem(MazeVertex v) {
+        int nearest = items.nearest(v.loc().i(), v.loc().j());
+        return (nearest == -1) ? null : graph.vertex(nearest);
+    }
+
+    /**
+     * Return the items remaining in this game, for taking snapshots.
+     */
+    ItemSet items() {
+        return items;
+    }
+
+
+    /**
+     * Return a copy of the current state of this game that can be simulated forward (for example,
+     * by an AI trying out moves) without affecting it.
+     */
+    public GameSnapshot snapshot() {
+        return new GameSnapshot(this);
     }
 
+    /**
+     * Return the points earned for catching the `n`th fleeing ghost since the last pellet was
+     * eaten: 200, 400, 800, then 1600 for the fourth and every later ghost.  The bonus stops
+     * doubling there so that boards with many extra ghosts cannot overflow the score.  Requires
+     * `n >= 1`.
+     */
+    static int ghostCaptureBonus(int n) {
+        assert n >= 1;
+        return 100 << Math.min(n, MAX_CAPTURE_DOUBLINGS);
+    }
+
+    /**
+     * Return the number of ghosts caught since the last pellet was eaten, which determines how many
+     * points the next one is worth.
+     */
+    int numGhostsCaught() {
+        return numGhostsCaught;
+    }
 
     /**
      * Return the current state of this game.
@@ -313,7 +574,7 @@ public class GameModel {
     private void addToScore(int points) {
         int oldScore = score;
         score += points;
-        propSupport.firePropertyChange("score", oldScore, score);
+        firePropertyChange("score", oldScore, score);
     }
 
     /**
@@ -324,6 +585,7 @@ public class GameModel {
         numGhostsCaught = 0;
         for (int i = 1; i < actors.size(); i++) {
             ((Ghost) actors.get(i)).startFlee();
+            actorChanged(i);
         }
     }
 
@@ -332,15 +594,14 @@ public class GameModel {
      */
     public void processPacMannArrival() {
         MazeVertex v = pacMann().nearestVertex();
-        Item item = itemAt(v);
+        Item item = items.remove(v.id());
         if (item == Item.NONE) {
             return;
         }
-        items.remove(v);
         if (item == Item.DOT) {
-            addToScore(10);
+            addToScore(DOT_SCORE);
         } else if (item == Item.PELLET) {
-            addToScore(50);
+            addToScore(PELLET_SCORE);
             startFlee();
         }
     }
@@ -351,7 +612,7 @@ public class GameModel {
     private void setState(GameState newState) {
         GameState oldState = state;
         state = newState;
-        propSupport.firePropertyChange("game_state", oldState, state);
+        firePropertyChange("game_state", oldState, state);
     }
 
     /**
@@ -359,8 +620,9 @@ public class GameModel {
      * to the READY state.
      */
     public void resetActors() {
-        for (Actor a : actors) {
-            a.reset();
+        for (int i = 0; i < actors.size(); i++) {
+            actors.get(i).reset();
+            actorChanged(i);
         }
         setState(GameState.READY);
     }
@@ -371,7 +633,7 @@ public class GameModel {
     public void useLife() {
         int oldLives = numLives;
         numLives -= 1;
-        propSupport.firePropertyChange("lives", oldLives, numLives);
+        firePropertyChange("lives", oldLives, numLives);
     }
 
     /**
@@ -390,6 +652,17 @@ public class GameModel {
         }
     }
 
+    /**
+     * Replace this game's PacMann with `pacMann`, so that a different kind of PacMann (such as
+     * `PacMannRolloutAI`) can play.  Requires that `pacMann` was constructed for this game and that
+     * play has not started.
+     */
+    public void replacePacMann(PacMann pacMann) {
+        assert pacMann.model == this && state == GameState.READY && time == 0;
+        actors.set(0, pacMann);
+        actorChanged(0);
+    }
+
     /**
      * Update the player's most recent direction command with Direction 'd'.
      */
@@ -427,6 +700,26 @@ public class GameModel {
         propSupport.removePropertyChangeListener(propertyName, listener);
     }
 
+    /**
+     * Notify observers of `propertyName` that it changed from `oldValue` to `newValue`.  Nothing is
+     * allocated when no one is observing it, as in batch runs.
+     */
+    private void firePropertyChange(String propertyName, int oldValue, int newValue) {
+        if (propSupport.hasListeners(propertyName)) {
+            propSupport.firePropertyChange(propertyName, oldValue, newValue);
+        }
+    }
+
+    /**
+     * Notify observers of `propertyName` that it changed from `oldValue` to `newValue`, unless no
+     * one is observing it.
+     */
+    private void firePropertyChange(String propertyName, Object oldValue, Object newValue) {
+        if (propSupport.hasListeners(propertyName)) {
+            propSupport.firePropertyChange(propertyName, oldValue, newValue);
+        }
+    }
+
     /**
      * Removes all property change listeners from this game model.
      */
@@ -459,13 +752,14 @@ public class GameModel {
     /**
      * Handle a PacMann-Ghost collision.  Score and respawn ghosts if they are fleeing; otherwise,
      * throw `PacMannCaught`.  Fleeing ghosts earn points exponential in the number of ghosts caught
-     * since the last pellet was consumed.
+     * since the last pellet was consumed (see `ghostCaptureBonus()`).
      */
     private void collideWithGhost(Ghost g) throws PacMannCaught {
         if (g.state() == GhostState.FLEE) {
             numGhostsCaught += 1;
-            addToScore((int) (100 * Math.pow(2, numGhostsCaught)));
+            addToScore(ghostCaptureBonus(numGhostsCaught));
             g.respawn();
+            actorChanged(actors.indexOf(g));
         } else if (g.state() == GhostState.CHASE) {
             throw new PacMannCaught();
         }
@@ -487,26 +781,21 @@ public class GameModel {
             double t = 0;
             while (t < totalDt) {
                 navAndGuide();
+                updateEvents();
                 double dt = nextDt(totalDt - t);
 //                System.err.println("Stepping " + dt + " from " + t + " (goal: " + ms + ")");
 
                 // Propagate actors
                 t += dt;
                 time += dt;
-                for (Actor a : actors) {
-                    a.propagate(dt);
+                for (int i = 0; i < actors.size(); i++) {
+                    actors.get(i).propagate(dt);
+                    // A ghost leaving its WAIT state is put back on its starting edge, which may be
+                    //  mid-step rather than at a vertex where `navAndGuide()` would re-index it
+                    actorIndex.update(i, actors.get(i).currentEdge());
                 }
 
-                // Check for collisions
-                for (int i = 0; i < actors.size(); i += 1) {
-                    Actor a = actors.get(i);
-                    for (int j = i + 1; j < actors.size(); j += 1) {
-                        Actor b = actors.get(j);
-                        if (a.location().collidesWith(b.location())) {
-                            processCollision(a, b);
-                        }
-                    }
-                }
+                checkCollisions();
 
                 // Vertex events
                 for (Actor a : actors) {
@@ -515,7 +804,7 @@ public class GameModel {
                     }
                 }
                 // Check for end game condition
-                if (items.isEmpty()) {
+                if (items.remaining() == 0) {
                     victory();
                     break;
                 }
@@ -524,39 +813,171 @@ public class GameModel {
             defeat();
         }
 
-        propSupport.firePropertyChange("board_state", null, null);
+        firePropertyChange("board_state", null, null);
+    }
+
+    /**
+     * Process collisions between PacMann and any actors he currently overlaps, in order of actor
+     * index.  Ghost-ghost collisions have no effect, so only the actors sharing PacMann's edge
+     * (or, if he is standing on a vertex, any of its edges) need to be checked.
+     */
+    private void checkCollisions() throws PacMannCaught {
+        Actor pacMann = actors.getFirst();
+        Location loc = pacMann.location();
+        CompactMazeGraph compact = graph.compact();
+        int numCandidates = 0;
+        if (loc.atVertex()) {
+            int v = loc.nearestVertex().id();
+            for (int e = compact.edgeStart(v); e < compact.edgeEnd(v); e++) {
+                numCandidates = addEdgemates(actorIndex.undirectedEdge(e), numCandidates);
+            }
+        } else {
+            numCandidates = addEdgemates(actorIndex.edgeOf(0), numCandidates);
+        }
+        Arrays.sort(collisionCandidates, 0, numCandidates);
+
+        // Processing a collision can move the ghost involved, so check each one just before it is
+        //  processed.
+        for (int k = 0; k < numCandidates; k++) {
+            Actor other = actors.get(collisionCandidates[k]);
+            if (pacMann.location().collidesWith(other.location())) {
+                processCollision(pacMann, other);
+            }
+        }
+    }
+
+    /**
+     * Append the actors other than PacMann on undirected edge `key` to `collisionCandidates`,
+     * starting at index `count`.  Return the new number of candidates.
+     */
+    private int addEdgemates(int key, int count) {
+        for (int a = actorIndex.first(key); a != -1; a = actorIndex.next(a)) {
+            if (a != 0) {
+                collisionCandidates[count++] = a;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Record that actor `i` has changed edge, speed, or state other than by propagating along its
+     * edge, so that cached events and the spatial index reflect its new motion.
+     */
+    private void actorChanged(int i) {
+        scheduler.invalidate(i);
+        actorIndex.update(i, actors.get(i).currentEdge());
     }
 
     /**
      * Give any actor currently standing on a vertex an opportunity to decide which edge to traverse
      * next.  Enforces that their next edge starts at their current location.
+     * <p>
+     * Each ghost's target is computed once, in actor order (targets may consume randomness).
+     * Ghosts whose next edge cannot simply be looked up are deferred, and those heading for the
+     * same vertex (such as Blinky and a distant Clyde, both chasing PacMann) share one search
+     * back from it instead of searching from each of their positions.  The shared search is exact
+     * over non-backtracking walks, so it sometimes finds a shorter route than a ghost's own search
+     * would, and among equally short routes it may choose a different one.
      */
     private void navAndGuide() {
-        for (Actor a : actors) {
-            if (a.location().atVertex()) {
-                MazeVertex start = a.location().nearestVertex();
-                MazeEdge e = a.nextEdge();
-                if (e != null) {
-                    if (!e.tail().equals(start)) {
-                        throw new RuntimeException("Illegal next edge");
+        int numSearching = 0;
+        for (int i = 0; i < actors.size(); i++) {
+            Actor a = actors.get(i);
+            if (!a.location().atVertex()) {
+                continue;
+            }
+            if (a instanceof Ghost ghost) {
+                MazeVertex dst = ghost.target();
+                if (!dst.equals(ghost.nearestVertex())) {
+                    MazeEdge e = ghost.lookUpNextEdge(dst);
+                    if (e == null) {
+                        searchingGhosts[numSearching] = i;
+                        searchTargets[numSearching] = dst.id();
+                        numSearching += 1;
+                    } else {
+                        traverse(i, e);
                     }
-                    a.traverseEdge(e);
+                    continue;
+                }
+                traverse(i, ghost.nextEdge(dst));
+            } else {
+                traverse(i, a.nextEdge());
+            }
+        }
+
+        for (int k = 0; k < numSearching; k++) {
+            int dst = searchTargets[k];
+            if (dst == -1) {
+                continue; // shared the search of an earlier ghost
+            }
+            int numSharers = 0;
+            for (int l = k; l < numSearching; l++) {
+                if (searchTargets[l] == dst) {
+                    sharers[numSharers] = l;
+                    numSharers += 1;
+                    searchTargets[l] = -1;
                 }
             }
+            if (numSharers == 1) {
+                Ghost ghost = (Ghost) actors.get(searchingGhosts[k]);
+                traverse(searchingGhosts[k], ghost.nextEdge(graph.vertex(dst)));
+                continue;
+            }
+            for (int m = 0; m < numSharers; m++) {
+                Location loc = actors.get(searchingGhosts[sharers[m]]).location();
+                sharerSources[m] = loc.nearestVertex().id();
+                sharerPreviousEdges[m] = (loc.progress() == 1) ? graph.edgeId(loc.edge()) : -1;
+            }
+            TargetSearch search = searchWorkspace().targetSearch();
+            search.search(dst, sharerSources, sharerPreviousEdges, sharerFirstEdges,
+                    numSharers);
+            for (int m = 0; m < numSharers; m++) {
+                int i = searchingGhosts[sharers[m]];
+                Ghost ghost = (Ghost) actors.get(i);
+                traverse(i, ghost.followSharedSearch(search, sharerFirstEdges[m]));
+            }
+        }
+    }
+
+    /**
+     * Start actor `i`, standing on a vertex, along edge `e` if it is not null.  Throws
+     * RuntimeException if `e` does not start at the actor's vertex.
+     */
+    private void traverse(int i, MazeEdge e) {
+        if (e != null) {
+            Actor a = actors.get(i);
+            if (!e.tail().equals(a.location().nearestVertex())) {
+                throw new RuntimeException("Illegal next edge");
+            }
+            a.traverseEdge(e);
+            actorChanged(i);
+        }
+    }
+
+    /**
+     * Bring the cached times of upcoming events up to date.  Actor events are recomputed by
+     * `scheduler` when they come due or are invalidated; the collision prediction depends on every
+     * actor's trajectory, so it is recomputed whenever any of them changed or when it comes due.
+     */
+    private void updateEvents() {
+        boolean trajectoriesChanged = scheduler.refresh(time);
+        if (trajectoriesChanged || collisionTime <= time + EventScheduler.TOLERANCE) {
+            collisionTime = time + nextCollisionTime();
         }
     }
 
     /**
      * Return the largest timestep that the engine can propagate the actors by, up to `maxDt`.
-     * Timestep is constrained by actor vertex arrivals, actor state changes, and actor collisions.
-     * A minimum timestep is imposed to ensure forward progress.
+     * Timestep is constrained by actor vertex arrivals, actor state changes, and actor collisions,
+     * as cached by `updateEvents()`.  A minimum timestep is imposed to ensure forward progress.
      */
     private double nextDt(double maxDt) {
-        double minDt = maxDt;
-        for (Actor a : actors) {
-            minDt = Math.min(minDt, a.maxPropagationTime());
+        double minDt = Math.min(maxDt, scheduler.nextEventDt(time));
+        if (collisionTime - time < minDt) {
+            // Predict the collision afresh, so that the actors meet exactly rather than within
+            // rounding error of the cached time.
+            minDt = Math.min(minDt, nextCollisionTime());
         }
-        minDt = Math.min(minDt, nextCollisionTime());
         final double minAllowedDt = 1e-7;
         return Math.max(minDt, minAllowedDt);
     }
@@ -564,58 +985,46 @@ public class GameModel {
     /**
      * Return the earliest timestep at which two actors will collide, given their current
      * trajectories.  Actors may cross each other along an edge or may meet at a vertex. Returns
-     * POSITIVE_INFINITY if no actors will collide along their current edge trajectories.
+     * POSITIVE_INFINITY if no actors will collide along their current edge trajectories.  Only
+     * actors in the same `actorIndex` bucket are compared, and no memory is allocated.
      */
     private double nextCollisionTime() {
         double minDt = Double.POSITIVE_INFINITY;
+        int n = actors.size();
 
-        // The current location and velocity of each actor, associated with the _undirected_ edge
-        //  they are currently traversing.
-        Map<UnorderedPair<MazeVertex>, List<Trajectory>> movements = new HashMap<>();
-
-        for (Actor a : actors) {
-            // Determine the unordered edge that `a` is currently traversing, and query any
-            //  previously seen actors traversing that same edge (in either direction)
+        // Record the position and velocity of each actor along the _undirected_ edge they are
+        //  currently traversing.  RIGHT and DOWN are considered the "positive" directions.
+        for (int k = 0; k < n; k++) {
+            Actor a = actors.get(k);
             MazeEdge e = a.location().edge();
-            UnorderedPair<MazeVertex> ue = new UnorderedPair<>(e.tail(), e.head());
-            List<Trajectory> edgemates = movements.computeIfAbsent(ue,
-                    k -> new LinkedList<>());
-
-            // Compute the intersection time between this actor and any already-seen actor
-            //  traversing the same edge
-            var myAm = Trajectory.fromActor(a);
-            for (Trajectory am : edgemates) {
-                // Don't trigger if starting from the same place
-//                if (myAm.p() == am.p()) { continue; }
-                double s = (myAm.p() - am.p()) / (am.v() - myAm.v());
+            assert actorIndex.edgeOf(k) == actorIndex.undirectedEdge(graph.edgeId(e));
+            if (e.direction() == Direction.RIGHT || e.direction() == Direction.DOWN) {
+                trajectoryP[k] = a.location().progress();
+                trajectoryV[k] = a.edgeSpeed();
+            } else {
+                trajectoryP[k] = 1 - a.location().progress();
+                trajectoryV[k] = -a.edgeSpeed();
+            }
+        }
+
+        // Compute the intersection time between each pair of actors traversing the same edge
+        for (int earlier = 0; earlier < n; earlier++) {
+            for (int later = actorIndex.first(actorIndex.edgeOf(earlier)); later != -1;
+                    later = actorIndex.next(later)) {
+                if (later <= earlier) {
+                    continue;
+                }
+                double s = (trajectoryP[later] - trajectoryP[earlier])
+                        / (trajectoryV[earlier] - trajectoryV[later]);
                 // Note: inequality skips NaNs
                 if (s > 0 && s < minDt) {
                     minDt = s;
                 }
             }
-
-            // Add our trajectory to the map, to be seen by subsequent actors
-            edgemates.add(myAm);
         }
         return minDt;
     }
 
-    /**
-     * The position and velocity of an actor on an associated _undirected_ edge.  RIGHT and DOWN are
-     * considered the "positive" directions.
-     */
-    private record Trajectory(double p, double v) {
-
-        public static Trajectory fromActor(Actor actor) {
-            MazeEdge e = actor.location().edge();
-            if (e.direction() == Direction.RIGHT || e.direction() == Direction.DOWN) {
-                return new Trajectory(actor.location().progress(), actor.edgeSpeed());
-            } else {
-                return new Trajectory(1 - actor.location().progress(), -actor.edgeSpeed());
-            }
-        }
-    }
-
     /**
      * Indicates that a collision between PacMann and a CHASING ghost was detected, meaning that the
      * current round should end.
@@ -623,46 +1032,4 @@ public class GameModel {
     private static class PacMannCaught extends Exception {
 
     }
-
-    /**
-     * An unordered pair of values of type `T`.  Equality and hash code are independent of the order
-     * of constructor parameters or fields.
-     */
-    private static final class UnorderedPair<T> {
-
-        // elem1.hashCode() <= elem2.hashCode()
-        private final T elem1;
-        private final T elem2;
-
-        public UnorderedPair(T a, T b) {
-            // Impose a preferred ordering to make toString more consistent
-            if (a.hashCode() <= b.hashCode()) {
-                elem1 = a;
-                elem2 = b;
-            } else {
-                elem1 = b;
-                elem2 = a;
-            }
-        }
-
-        @Override
-        public boolean equals(Object other) {
-            if (other instanceof UnorderedPair<?> op) {
-                // Still need to check both orderings in case of hash collisions
-                return elem1.equals(op.elem1) && elem2.equals(op.elem2) ||
-                        elem1.equals(op.elem2) && elem2.equals(op.elem1);
-            }
-            return false;
-        }
-
-        @Override
-        public int hashCode() {
-            return elem1.hashCode() ^ elem2.hashCode();
-        }
-
-        @Override
-        public String toString() {
-            return "{" + elem1 + "," + elem2 + "}";
-        }
-    }
 }
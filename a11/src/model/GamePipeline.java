@@ -0,0 +1,139 @@
+package model;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import util.Randomness;
+
+/**
+ * Supplies a sequence of new games, building upcoming ones on background threads while earlier
+ * ones are played, so that generating a maze and its graph does not pause the caller between
+ * games.  Game `i` (counting from 0) is built by `builder` from `first.advance(i)`, the source of
+ * randomness `i` steps after `first` in the sequence produced by `Randomness.next()`.  Which thread
+ * builds a game, and when, does not affect it, so the sequence is the same as building each game
+ * when it is needed.
+ * <p>
+ * Games are handed out by index (`take()`), so that concurrent players each get the game their
+ * index calls for, or in order (`get()`).  Taking a game ensures that the `lookahead` games after
+ * it are being built.  A pipeline's threads are daemons, but `close()` should be called to stop
+ * building games that will not be taken.
+ */
+public final class GamePipeline implements Supplier<GameModel>, AutoCloseable {
+
+    /**
+     * The source of randomness of game 0.
+     */
+    private final Randomness first;
+
+    /**
+     * The number of games in the sequence; games past the last one are never built.
+     */
+    private final int count;
+
+    /**
+     * How many games past the latest one taken are built ahead of time.
+     */
+    private final int lookahead;
+
+    /**
+     * Builds the game for a source of randomness.
+     */
+    private final Function<Randomness, GameModel> builder;
+
+    /**
+     * The threads that build games.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * The games that have been started but not taken yet, by index.
+     */
+    private final Map<Integer, CompletableFuture<GameModel>> pending;
+
+    /**
+     * The number of games started so far (games `[0..started)`).
+     */
+    private int started;
+
+    /**
+     * The index of the game that `get()` will return next.
+     */
+    private int nextIndex;
+
+    /**
+     * Create a pipeline of `count` games built by `builder` from `first` and the sources of
+     * randomness after it, keeping `lookahead` games ahead of the latest one taken and building
+     * them on `threads` background threads.  Starts building the first `lookahead + 1` games (or
+     * all of them, if fewer) right away.  Pass `Integer.MAX_VALUE` as `count` for a sequence with
+     * no end.  Requires `count >= 0`, `lookahead >= 0` and `threads >= 1`.
+     */
+    public GamePipeline(Randomness first, int count, int lookahead, int threads,
+            Function<Randomness, GameModel> builder) {
+        assert count >= 0 && lookahead >= 0 && threads >= 1;
+        this.first = first;
+        this.count = count;
+        this.lookahead = lookahead;
+        this.builder = builder;
+        executor = Executors.newFixedThreadPool(threads,
+                Thread.ofPlatform().name("PacMann game builder ", 0).daemon().factory());
+        pending = new HashMap<>();
+        startThrough(lookahead);
+    }
+
+    /**
+     * Return game `index`, waiting for it to be built if necessary, and make sure the `lookahead`
+     * games after it are being built.  Throws CompletionException if building it threw.  Requires
+     * `0 <= index < count`, that game `index` has not been taken before, and that this pipeline is
+     * open.  May be called from any thread.
+     */
+    public GameModel take(int index) {
+        assert 0 <= index && index < count;
+        CompletableFuture<GameModel> game;
+        synchronized (this) {
+            startThrough((long) index + lookahead);
+            game = pending.remove(index);
+        }
+        assert game != null : "game " + index + " was already taken";
+        return game.join();
+    }
+
+    /**
+     * Return the game after the one this method returned last (or game 0 on the first call).
+     * Must not be mixed with `take()`.
+     */
+    @Override
+    public GameModel get() {
+        int index;
+        synchronized (this) {
+            index = nextIndex;
+            nextIndex += 1;
+        }
+        return take(index);
+    }
+
+    /**
+     * Start building every game up to and including game `last` (or the last game, if that comes
+     * sooner) that has not been started yet.
+     */
+    private void startThrough(long last) {
+        long end = Math.min(last, count - 1L);
+        for (; started <= end; started++) {
+            Randomness randomness = first.advance(started);
+            pending.put(started,
+                    CompletableFuture.supplyAsync(() -> builder.apply(randomness), executor));
+        }
+    }
+
+    /**
+     * Stop building games.  Games that have not started building are abandoned; one that is being
+     * built finishes in the background and is discarded.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+    }
+}
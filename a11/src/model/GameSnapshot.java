@@ -0,0 +1,615 @@
+package model;
+
+import graph.CompactMazeGraph;
+import graph.DijkstraEngine;
+import graph.HierarchicalSearch;
+import graph.MazeGraph;
+import graph.MazeGraph.Direction;
+import graph.MazeGraph.MazeVertex;
+import graph.NextHopTable;
+import graph.ReversePathTree;
+import java.util.Random;
+import model.Actor.DPair;
+import model.GameModel.GameState;
+import model.GameModel.Item;
+import model.Ghost.GhostState;
+
+/**
+ * A copy of a game in progress that can be simulated forward without affecting the `GameModel` it
+ * was taken from.  Actor positions, ghost states, and timers are held in primitive arrays indexed
+ * like the model's actors (PacMann first), and the remaining items in an `ItemSet`, so copying
+ * one snapshot onto another takes a few array copies and no allocation.  Snapshots notify no one
+ * and involve no Swing classes, so search-based AIs (and other headless code) can step them many
+ * times over at the cost of the simulation alone.  `GameModel.snapshot()` takes one.
+ * <p>
+ * `step()` follows the rules of `GameModel.updateActors()` for the rest of the current life:
+ * ghosts choose targets with their own `Ghost.target()` logic and follow shortest non-backtracking
+ * paths to them, PacMann eats items and makes ghosts flee, and fleeing ghosts that PacMann catches
+ * respawn.  The simulation ends when PacMann is caught or clears the board.  A snapshot is faithful
+ * to the game but not an exact replay of it: ghosts that cannot use the graph's next-hop table
+ * search afresh (in the graph's cluster hierarchy if it has one, as real ghosts do) rather than
+ * repairing the trees of earlier searches, so they may break ties between equally short paths
+ * differently than the real ghosts, and timesteps are only limited by collisions that involve
+ * PacMann.
+ * <p>
+ * PacMann's moves are chosen by the `Navigator` passed to `step()`.  A snapshot must only be used
+ * by one thread at a time, but snapshots of the same game may be stepped concurrently.  Snapshots
+ * that are never stepped after being handed to another thread (such as those the graphical app
+ * paints) are effectively immutable and may be read by any number of threads.
+ */
+public final class GameSnapshot implements BoardView {
+
+    /**
+     * Chooses PacMann's moves in a simulation.
+     */
+    @FunctionalInterface
+    public interface Navigator {
+
+        /**
+         * Return the id of the edge that PacMann should traverse next from the vertex he is
+         * standing on in `snapshot`, or -1 for him to stay where he is.
+         */
+        int nextEdge(GameSnapshot snapshot);
+    }
+
+    /**
+     * Whether a simulation is still going, and if not, how it ended.
+     */
+    public enum Outcome {PLAYING, CAUGHT, CLEARED}
+
+    /**
+     * The smallest timestep taken, to ensure forward progress (as in `GameModel`).
+     */
+    private static final double MIN_DT = 1e-7;
+
+    /**
+     * How close (in edge progress) two actors must be to collide (as in `Actor.Location`).
+     */
+    private static final double COLLISION_TOLERANCE = 1e-6;
+
+    private final MazeGraph graph;
+    private final CompactMazeGraph compact;
+
+    /**
+     * The graph's next-hop table, or null if it has none.
+     */
+    private final NextHopTable nextHops;
+
+    /**
+     * The ghost whose targeting rules each actor follows (null for PacMann, at index 0).  Only
+     * `Ghost.target(BoardView, ...)` is called on these, which does not touch the ghosts' state.
+     */
+    private final Ghost[] ghosts;
+
+    /**
+     * The id of the edge that ghosts enter the maze on.
+     */
+    private final int ghostStartingEdge;
+
+    /**
+     * The id of the edge each actor is traversing and its progress along it.
+     */
+    private final int[] edge;
+    private final double[] progress;
+
+    /**
+     * The state and timers of each ghost (unused for PacMann).
+     */
+    private final GhostState[] ghostState;
+    private final double[] waitTimeRemaining;
+    private final double[] fleeTimeRemaining;
+
+    /**
+     * The dots and pellets remaining.
+     */
+    private final ItemSet items;
+
+    private int score;
+    private double time;
+    private int numGhostsCaught;
+    private Outcome outcome;
+
+    /**
+     * The source of Clyde's random choices.  Not copied by `copyFrom()`, so that each simulation
+     * can be seeded separately.
+     */
+    private final Random rng;
+
+    /**
+     * Take a snapshot of the current state of `model`.
+     */
+    public GameSnapshot(GameModel model) {
+        graph = model.graph();
+        compact = graph.compact();
+        nextHops = graph.nextHops();
+        ghostStartingEdge = graph.edgeId(graph.ghostStartingEdge());
+
+        int numActors = 0;
+        for (Actor ignored : model.actors()) {
+            numActors += 1;
+        }
+        ghosts = new Ghost[numActors];
+        edge = new int[numActors];
+        progress = new double[numActors];
+        ghostState = new GhostState[numActors];
+        waitTimeRemaining = new double[numActors];
+        fleeTimeRemaining = new double[numActors];
+        int k = 0;
+        for (Actor actor : model.actors()) {
+            edge[k] = graph.edgeId(actor.currentEdge());
+            progress[k] = actor.location().progress();
+            if (actor instanceof Ghost ghost) {
+                ghosts[k] = ghost;
+                ghostState[k] = ghost.state();
+                waitTimeRemaining[k] = ghost.waitTimeRemaining();
+                fleeTimeRemaining[k] = ghost.fleeTimeRemaining();
+            }
+            k += 1;
+        }
+
+        items = new ItemSet(model.items());
+
+        score = model.score();
+        time = model.time();
+        numGhostsCaught = model.numGhostsCaught();
+        outcome = switch (model.state()) {
+            case VICTORY -> Outcome.CLEARED;
+            case DEFEAT -> Outcome.CAUGHT;
+            default -> Outcome.PLAYING;
+        };
+        assert model.state() != GameState.VICTORY || items.remaining() == 0;
+        rng = new Random();
+    }
+
+    /**
+     * Create an independent copy of `other`.
+     */
+    private GameSnapshot(GameSnapshot other) {
+        graph = other.graph;
+        compact = other.compact;
+        nextHops = other.nextHops;
+        ghosts = other.ghosts;
+        ghostStartingEdge = other.ghostStartingEdge;
+        edge = other.edge.clone();
+        progress = other.progress.clone();
+        ghostState = other.ghostState.clone();
+        waitTimeRemaining = other.waitTimeRemaining.clone();
+        fleeTimeRemaining = other.fleeTimeRemaining.clone();
+        items = new ItemSet(other.items);
+        score = other.score;
+        time = other.time;
+        numGhostsCaught = other.numGhostsCaught;
+        outcome = other.outcome;
+        rng = new Random();
+    }
+
+    /**
+     * Return an independent copy of this snapshot.
+     */
+    public GameSnapshot copy() {
+        return new GameSnapshot(this);
+    }
+
+    /**
+     * Overwrite this snapshot's state with that of `other`, without allocating.  Requires that
+     * both were taken from the same game.
+     */
+    public void copyFrom(GameSnapshot other) {
+        assert other.graph == graph && other.ghosts == ghosts;
+        int n = edge.length;
+        System.arraycopy(other.edge, 0, edge, 0, n);
+        System.arraycopy(other.progress, 0, progress, 0, n);
+        System.arraycopy(other.ghostState, 0, ghostState, 0, n);
+        System.arraycopy(other.waitTimeRemaining, 0, waitTimeRemaining, 0, n);
+        System.arraycopy(other.fleeTimeRemaining, 0, fleeTimeRemaining, 0, n);
+        items.copyFrom(other.items);
+        score = other.score;
+        time = other.time;
+        numGhostsCaught = other.numGhostsCaught;
+        outcome = other.outcome;
+    }
+
+    /* ****************************************************************
+     * Accessor methods                                               *
+     **************************************************************** */
+
+    @Override
+    public MazeGraph graph() {
+        return graph;
+    }
+
+    @Override
+    public int width() {
+        return compact.width();
+    }
+
+    @Override
+    public int height() {
+        return compact.height();
+    }
+
+    @Override
+    public MazeVertex pacMannVertex() {
+        return graph.vertex(nearestVertex(0));
+    }
+
+    @Override
+    public Direction pacMannDirection() {
+        return compact.edgeDirection(edge[0]);
+    }
+
+    @Override
+    public MazeVertex blinkyVertex() {
+        return graph.vertex(nearestVertex(1));
+    }
+
+    /**
+     * Return the number of actors, including PacMann.
+     */
+    public int actorCount() {
+        return edge.length;
+    }
+
+    /**
+     * Return the id of the edge that actor `k` is traversing (or has just traversed).
+     */
+    public int edge(int k) {
+        return edge[k];
+    }
+
+    /**
+     * Return actor `k`'s progress along its edge.
+     */
+    public double progress(int k) {
+        return progress[k];
+    }
+
+    /**
+     * Return the id of the vertex nearest to actor `k`.
+     */
+    public int nearestVertex(int k) {
+        return (progress[k] < 0.5) ? compact.edgeTail(edge[k]) : compact.edgeHead(edge[k]);
+    }
+
+    /**
+     * Return the direction of the edge that actor `k` is traversing.
+     */
+    public Direction direction(int k) {
+        return compact.edgeDirection(edge[k]);
+    }
+
+    /**
+     * Return the upper left corner of actor `k`'s bounding box, as `Actor.getBoundingBoxUL()`
+     * would for the actor itself.
+     */
+    public DPair boundingBoxUL(int k) {
+        if (k > 0 && ghostState[k] == GhostState.WAIT) {
+            return Ghost.waitingBoundingBoxUL(graph.edge(edge[k]), waitTimeRemaining[k]);
+        }
+        return Actor.boundingBoxUL(graph.edge(edge[k]), progress[k]);
+    }
+
+    /**
+     * Return the state of ghost `k`.  Requires `1 <= k < actorCount()`.
+     */
+    public GhostState ghostState(int k) {
+        return ghostState[k];
+    }
+
+    /**
+     * Return how much longer (in ms) ghost `k` will flee.  Requires `1 <= k < actorCount()`.
+     */
+    public double fleeTimeRemaining(int k) {
+        return fleeTimeRemaining[k];
+    }
+
+    /**
+     * Return the item on vertex `v`, possibly NONE.
+     */
+    public Item itemAt(int v) {
+        return items.get(v);
+    }
+
+    /**
+     * Return whether vertex `v` holds a dot or a pellet.
+     */
+    public boolean hasFood(int v) {
+        return items.hasItem(v);
+    }
+
+    /**
+     * Return the id of a vertex holding a dot or pellet whose tile is as close as possible to
+     * vertex `v`'s (by Manhattan distance, ignoring walls and tunnels), or -1 if none remain.
+     */
+    public int nearestFood(int v) {
+        return items.nearest(compact.column(v), compact.row(v));
+    }
+
+    /**
+     * Return the number of dots and pellets remaining.
+     */
+    public int itemsLeft() {
+        return items.remaining();
+    }
+
+    public int score() {
+        return score;
+    }
+
+    public double time() {
+        return time;
+    }
+
+    public Outcome outcome() {
+        return outcome;
+    }
+
+    /**
+     * Return the source of random choices for this simulation, which navigators may share.
+     */
+    public Random random() {
+        return rng;
+    }
+
+    /* ****************************************************************
+     * Simulation                                                     *
+     **************************************************************** */
+
+    /**
+     * Simulate `totalDt` ms of play, or until PacMann is caught or clears the board, with PacMann
+     * moving as directed by `navigator`.
+     */
+    public void step(double totalDt, Navigator navigator) {
+        double t = 0;
+        while (t < totalDt && outcome == Outcome.PLAYING) {
+            navigate(navigator);
+            double dt = Math.max(Math.min(totalDt - t, nextEventDt()), MIN_DT);
+            if (dt == Double.POSITIVE_INFINITY) {
+                // Nobody is moving, so nothing will ever happen
+                return;
+            }
+            t += dt;
+            time += dt;
+            for (int k = 0; k < edge.length; k++) {
+                propagate(k, dt);
+            }
+
+            checkCollisions();
+            if (outcome != Outcome.PLAYING) {
+                return;
+            }
+            if (progress[0] == 1) {
+                eat(compact.edgeHead(edge[0]));
+            }
+            if (items.remaining() == 0) {
+                outcome = Outcome.CLEARED;
+            }
+        }
+    }
+
+    /**
+     * Start each actor standing on a vertex along its next edge, if it has one.  Waiting ghosts
+     * are skipped, since they do not move until they enter the maze.
+     */
+    private void navigate(Navigator navigator) {
+        for (int k = 0; k < edge.length; k++) {
+            if (progress[k] != 0 && progress[k] != 1) {
+                continue;
+            }
+            int next;
+            if (k == 0) {
+                next = navigator.nextEdge(this);
+            } else if (ghostState[k] != GhostState.WAIT) {
+                next = ghostNextEdge(k);
+            } else {
+                continue;
+            }
+            if (next != -1) {
+                assert compact.edgeTail(next) == nearestVertex(k);
+                edge[k] = next;
+                progress[k] = 0;
+            }
+        }
+    }
+
+    /**
+     * Return the id of the first edge on the shortest non-backtracking path from ghost `k`'s
+     * vertex to its target, or -1 if it is already there or cannot get there.  Flee corners and the
+     * ghost box are answered from the graph's cached trees where their paths do not backtrack.
+     */
+    private int ghostNextEdge(int k) {
+        int prevEdge = (progress[k] == 1) ? edge[k] : -1;
+        int src = nearestVertex(k);
+        int dst = ghosts[k].target(this, ghostState[k], graph.vertex(src), rng).id();
+        if (src == dst) {
+            return -1;
+        }
+        if (prevEdge != -1 && nextHops != null) {
+            Direction direction = nextHops.nextDirection(prevEdge, dst);
+            if (direction != null) {
+                return compact.edgeInDirection(src, direction);
+            }
+        }
+        ReversePathTree tree = graph.treeTo(dst);
+        if (tree != null) {
+            int first = tree.firstEdge(src, prevEdge);
+            if (first != -1) {
+                return first;
+            }
+        }
+        HierarchicalSearch hierarchical = graph.searchWorkspace().hierarchicalSearch();
+        if (hierarchical != null) {
+            hierarchical.search(src, prevEdge, dst);
+            return hierarchical.firstEdge();
+        }
+        // As in `Ghost.recomputedFirstEdge()`, only forbid backtracking where the path does it
+        DijkstraEngine engine = graph.searchWorkspace().engine();
+        engine.searchTo(src, -1, dst);
+        int first = engineFirstEdge(engine, dst);
+        if (first != -1 && prevEdge != -1
+                && compact.edgeHead(first) == compact.edgeTail(prevEdge)) {
+            engine.searchTo(src, prevEdge, dst);
+            first = engineFirstEdge(engine, dst);
+        }
+        return first;
+    }
+
+    /**
+     * Return the id of the first edge of the path to vertex `dst` found by `engine`'s most recent
+     * search, or -1 if it did not reach `dst`.  Requires that `dst` is not the search's source.
+     */
+    private int engineFirstEdge(DijkstraEngine engine, int dst) {
+        if (!engine.settled(dst)) {
+            return -1;
+        }
+        int[] path = graph.searchWorkspace().pathBuffer();
+        engine.pathTo(dst, path);
+        return path[0];
+    }
+
+    /**
+     * Return the speed of actor `k` along its edge, in edge progress per ms (as in `Actor`).
+     */
+    private double edgeSpeed(int k) {
+        double baseSpeed;
+        if (k == 0) {
+            baseSpeed = PacMann.BASE_SPEED;
+        } else if (ghostState[k] == GhostState.FLEE) {
+            baseSpeed = Ghost.FLEE_SPEED_FACTOR * Ghost.BASE_SPEED;
+        } else {
+            baseSpeed = Ghost.BASE_SPEED;
+        }
+        return baseSpeed / compact.edgeWeight(edge[k]);
+    }
+
+    /**
+     * Return the time until the next vertex arrival, ghost state change, or collision involving
+     * PacMann.
+     */
+    private double nextEventDt() {
+        double minDt = Double.POSITIVE_INFINITY;
+        for (int k = 0; k < edge.length; k++) {
+            if (progress[k] < 1) {
+                minDt = Math.min(minDt, (1.0 - progress[k]) / edgeSpeed(k));
+            }
+            if (k != 0 && ghostState[k] == GhostState.WAIT) {
+                minDt = Math.min(minDt, waitTimeRemaining[k]);
+            } else if (k != 0 && ghostState[k] == GhostState.FLEE) {
+                minDt = Math.min(minDt, fleeTimeRemaining[k]);
+            }
+        }
+
+        // Actors on the same undirected edge, measured in its RIGHT or DOWN direction
+        double p0 = undirectedPosition(0);
+        double v0 = undirectedVelocity(0);
+        int reverse = compact.reverseEdge(edge[0]);
+        for (int k = 1; k < edge.length; k++) {
+            if (edge[k] == edge[0] || edge[k] == reverse) {
+                double s = (undirectedPosition(k) - p0) / (v0 - undirectedVelocity(k));
+                // Note: inequality skips NaNs
+                if (s > 0 && s < minDt) {
+                    minDt = s;
+                }
+            }
+        }
+        return minDt;
+    }
+
+    /**
+     * Return whether actor `k`'s edge runs in the positive (RIGHT or DOWN) direction.
+     */
+    private boolean positive(int k) {
+        Direction direction = compact.edgeDirection(edge[k]);
+        return direction == Direction.RIGHT || direction == Direction.DOWN;
+    }
+
+    private double undirectedPosition(int k) {
+        return positive(k) ? progress[k] : 1 - progress[k];
+    }
+
+    private double undirectedVelocity(int k) {
+        return positive(k) ? edgeSpeed(k) : -edgeSpeed(k);
+    }
+
+    /**
+     * Advance actor `k` by `dt` ms, updating ghost timers as `Ghost.propagate()` does.
+     */
+    private void propagate(int k, double dt) {
+        if (k != 0 && ghostState[k] == GhostState.WAIT) {
+            waitTimeRemaining[k] -= dt;
+            if (waitTimeRemaining[k] > 0) {
+                return;
+            }
+            ghostState[k] = GhostState.CHASE;
+            edge[k] = ghostStartingEdge;
+            progress[k] = 0;
+            dt = -waitTimeRemaining[k];
+        }
+        if (k != 0 && ghostState[k] == GhostState.FLEE) {
+            fleeTimeRemaining[k] -= dt;
+            if (fleeTimeRemaining[k] <= 0) {
+                ghostState[k] = GhostState.CHASE;
+            }
+        }
+        progress[k] = Math.clamp(progress[k] + edgeSpeed(k) * dt, 0.0, 1.0);
+    }
+
+    /**
+     * Process collisions between PacMann and the ghosts he overlaps, in order of actor index.
+     */
+    private void checkCollisions() {
+        for (int k = 1; k < edge.length; k++) {
+            if (ghostState[k] == GhostState.WAIT || !collides(k)) {
+                continue;
+            }
+            if (ghostState[k] == GhostState.CHASE) {
+                outcome = Outcome.CAUGHT;
+                return;
+            }
+            numGhostsCaught += 1;
+            score += GameModel.ghostCaptureBonus(numGhostsCaught);
+            ghostState[k] = GhostState.WAIT;
+            waitTimeRemaining[k] = Ghost.RESPAWN_WAIT_TIME;
+            fleeTimeRemaining[k] = 0;
+            edge[k] = ghostStartingEdge;
+            progress[k] = 0;
+        }
+    }
+
+    /**
+     * Return whether PacMann and actor `k` are in the same place (as `Location.collidesWith()`).
+     */
+    private boolean collides(int k) {
+        if (edge[k] == edge[0]) {
+            return Math.abs(progress[0] - progress[k]) < COLLISION_TOLERANCE;
+        } else if (edge[k] == compact.reverseEdge(edge[0])) {
+            return Math.abs(progress[0] - (1 - progress[k])) < COLLISION_TOLERANCE;
+        } else {
+            boolean atVertices = (progress[0] == 0 || progress[0] == 1)
+                    && (progress[k] == 0 || progress[k] == 1);
+            return atVertices && nearestVertex(0) == nearestVertex(k);
+        }
+    }
+
+    /**
+     * Remove the item (if any) at vertex `v` and score it, making the ghosts flee if it is a
+     * pellet.
+     */
+    private void eat(int v) {
+        Item item = items.remove(v);
+        if (item == Item.DOT) {
+            score += GameModel.DOT_SCORE;
+        } else if (item == Item.PELLET) {
+            score += GameModel.PELLET_SCORE;
+            numGhostsCaught = 0;
+            for (int k = 1; k < edge.length; k++) {
+                if (ghostState[k] != GhostState.WAIT) {
+                    ghostState[k] = GhostState.FLEE;
+                    fleeTimeRemaining[k] = Ghost.FLEE_TIME;
+                    edge[k] = compact.reverseEdge(edge[k]);
+                    progress[k] = 1 - progress[k];
+                }
+            }
+        }
+    }
+}
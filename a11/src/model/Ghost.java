@@ -1,12 +1,20 @@
 package model;
 
 import java.awt.Color;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
+import graph.CompactMazeGraph;
+import graph.DijkstraEngine;
+import graph.HierarchicalSearch;
+import graph.MazeGraph;
 import graph.MazeGraph.MazeEdge;
 import graph.MazeGraph.IPair;
 import graph.MazeGraph.MazeVertex;
-import graph.Pathfinding;
+import graph.ReversePathTree;
+import graph.TargetSearch;
 
 // TODO 4a-d: Extend this class by defining (non-abstract) subclasses `Blinky`, `Pinky`, `Inky`,
 //  and `Clyde`, each in separate files "model/<Ghost name>.java", that model these ghosts' unique
@@ -25,7 +33,7 @@ import graph.Pathfinding;
  * to this ghost, it will leave the board and enter its WAIT state.
  * <p>
  * Subclasses are responsible for specifying the `target()` vertices of that ghost in its CHASE and
- * FLEE states.
+ * FLEE states, in terms of a `BoardView` so that simulations can reuse them.
  */
 public abstract class Ghost extends Actor {
 
@@ -62,10 +70,115 @@ public abstract class Ghost extends Actor {
     private final Color ghostColor;
 
     /**
-     * The edges comprising the most recently calculated path to this ghost's `target()`
+     * The edges comprising the most recently calculated path to this ghost's `target()`, or null if
+     * only the path's first edge was needed and the rest has not been read out yet
      */
     private List<MazeEdge> guidancePath;
 
+    /**
+     * Whether the most recent path that has not been read out yet is in `pathTree` (rather than in
+     * the graph's next-hop table)
+     */
+    private boolean guidanceInTree;
+
+    /**
+     * Whether the most recent path that has not been read out yet was found by searching the
+     * graph's cluster hierarchy, in which case it is refined again when it is read
+     */
+    private boolean guidanceInHierarchy;
+
+    /**
+     * The graph's shortest-path tree to a fixed destination that the most recent path that has not
+     * been read out yet is in, or null if it is not in one
+     */
+    private ReversePathTree guidanceDestinationTree;
+
+    /**
+     * The first edge of the most recent path read from `guidanceDestinationTree`
+     */
+    private MazeEdge guidanceFirstEdge;
+
+    /**
+     * The edge ids of the most recent path taken from a search shared with other ghosts, copied
+     * out before the search could be reused; only the first `sharedPathLength` are meaningful
+     */
+    private int[] sharedPathEdges;
+
+    /**
+     * The number of edges of the most recent path that has not been read out yet if it was taken
+     * from a shared search, or 0 if it was not
+     */
+    private int sharedPathLength;
+
+    /**
+     * The edge this ghost had just traversed when its next edge was last looked up in the graph's
+     * next-hop table or found in its cluster hierarchy (null if none)
+     */
+    private MazeEdge guidancePrevEdge;
+
+    /**
+     * The start of the most recent path read from `pathTree` or found in the cluster hierarchy
+     */
+    private MazeVertex guidanceSource;
+
+    /**
+     * The target of the most recent path lookup
+     */
+    private MazeVertex guidanceTarget;
+
+    /**
+     * How much farther than its target (in edge weight) a path search continues, so that the
+     * resulting tree still covers the target after it moves a few vertices away
+     */
+    private static final double PATH_TREE_MARGIN = 8;
+
+    /**
+     * The base speed of a ghost that is not fleeing (see `Actor.baseSpeed()`)
+     */
+    static final double BASE_SPEED = 1.0 / 200.0;
+
+    /**
+     * The fraction of `BASE_SPEED` at which a fleeing ghost moves
+     */
+    static final double FLEE_SPEED_FACTOR = 0.5;
+
+    /**
+     * How long (in ms) ghosts flee after PacMann eats a pellet
+     */
+    static final double FLEE_TIME = 8000;
+
+    /**
+     * How long (in ms) a caught ghost waits in the ghost box before leaving it again
+     */
+    static final double RESPAWN_WAIT_TIME = 3000;
+
+    /**
+     * The shortest-path tree of this ghost's most recent search, or null if it has not searched
+     * yet.  Created on first use, since ghosts on boards with a next-hop table never search.
+     */
+    private DijkstraEngine pathTree;
+
+    /**
+     * The compact id of the edge this ghost had just traversed when `pathTree` was computed, or -1
+     * if it was not at the end of an edge
+     */
+    private int pathTreePrevEdge;
+
+    /**
+     * The number of times this ghost has read its path from an existing search tree
+     */
+    private long pathRepairs;
+
+    /**
+     * The number of times this ghost has had to search for its path from scratch
+     */
+    private long pathRecomputes;
+
+    /**
+     * The number of times this ghost has taken its path from a search shared with other ghosts
+     */
+    private long pathShares;
+
     /**
      * Construct a ghost associated to the given `model` with specified color and initial delay
      */
@@ -84,7 +197,18 @@ public abstract class Ghost extends Actor {
     /**
      * Return the vertex that this ghost is targeting
      */
-    protected abstract MazeVertex target();
+    protected MazeVertex target() {
+        return target(model, state, nearestVertex(), null);
+    }
+
+    /**
+     * Return the vertex that a ghost of this kind would target on `board` if it were in state
+     * `state` and nearest to vertex `position`, drawing any random choices from `rng`.  Depends
+     * only on its arguments, not on this ghost's own state, so simulations of the game may call it
+     * from other threads for ghosts other than the one being played.
+     */
+    protected abstract MazeVertex target(BoardView board, GhostState state, MazeVertex position,
+            Random rng);
 
     /* ****************************************************************
      * Accessor methods                                               *
@@ -118,6 +242,29 @@ public abstract class Ghost extends Actor {
         return waitTimeRemaining;
     }
 
+    /**
+     * Return the number of times this ghost has found its path by repairing its previous search
+     * tree instead of searching again
+     */
+    public long pathRepairs() {
+        return pathRepairs;
+    }
+
+    /**
+     * Return the number of times this ghost has searched for its path from scratch
+     */
+    public long pathRecomputes() {
+        return pathRecomputes;
+    }
+
+    /**
+     * Return the number of times this ghost has taken its path from a search shared with other
+     * ghosts
+     */
+    public long pathShares() {
+        return pathShares;
+    }
+
     /**
      * In their WAIT state, the ghosts move from side to side in their box, otherwise, their
      * bounding box location is delegated up to `Actor.getBoundingBoxUL`.
@@ -125,15 +272,23 @@ public abstract class Ghost extends Actor {
     @Override
     public DPair getBoundingBoxUL() {
         if (state == GhostState.WAIT) {
-            IPair gStartLoc = location.edge().tail().loc();
-            double x = gStartLoc.i() + 0.25 + (1.5 * Math.sin(waitTimeRemaining() / 500));
-            double y = gStartLoc.j() + 2.75;
-            return new DPair(x, y);
+            return waitingBoundingBoxUL(location.edge(), waitTimeRemaining());
         } else {
             return super.getBoundingBoxUL();
         }
     }
 
+    /**
+     * Return the upper left corner of the bounding box of a waiting ghost whose current edge is
+     * `startingEdge` and who will wait `waitTimeRemaining` ms longer.
+     */
+    static DPair waitingBoundingBoxUL(MazeEdge startingEdge, double waitTimeRemaining) {
+        IPair gStartLoc = startingEdge.tail().loc();
+        double x = gStartLoc.i() + 0.25 + (1.5 * Math.sin(waitTimeRemaining / 500));
+        double y = gStartLoc.j() + 2.75;
+        return new DPair(x, y);
+    }
+
     /* ****************************************************************
      * Implemented abstract methods of Actor                          *
      **************************************************************** */
@@ -147,21 +302,337 @@ public abstract class Ghost extends Actor {
 
     /**
      * Returns the first edge along the shortest path from this ghost's `currentVertex()` to its
-     * `target()`.
+     * `target()`; see `nextEdge(MazeVertex)`.
      */
     @Override
     public MazeEdge nextEdge() {
+        return nextEdge(target());
+    }
+
+    /**
+     * Returns the first edge along the shortest path from this ghost's `currentVertex()` to vertex
+     * `dst`, or null if it is already there or cannot get there.  Uses `lookUpNextEdge()` when it
+     * can answer.  Otherwise searches the graph's cluster hierarchy if it has one.  If not, reads
+     * the path from the tree of this ghost's previous search if that tree still applies, and
+     * searches again only if it does not.
+     */
+    MazeEdge nextEdge(MazeVertex dst) {
+        MazeVertex src = nearestVertex();
+        if (src.equals(dst)) {
+            guidancePath = List.of();
+            return null;
+        }
+        MazeEdge next = lookUpNextEdge(dst);
+        if (next != null) {
+            return next;
+        }
+        MazeGraph graph = model.graph();
+        int prevId = (location.progress() == 1) ? graph.edgeId(location.edge()) : -1;
+        HierarchicalSearch hierarchical = model.searchWorkspace().hierarchicalSearch();
+        if (hierarchical != null) {
+            return hierarchicalNextEdge(hierarchical, src, prevId, dst);
+        }
+        int first = repairedFirstEdge(src.id(), prevId, dst.id());
+        if (first != -1) {
+            pathRepairs += 1;
+        } else {
+            first = recomputedFirstEdge(src.id(), prevId, dst.id());
+            pathRecomputes += 1;
+        }
+        if (first == -1) {
+            guidancePath = List.of();
+            return null;
+        }
+        guidancePath = null;
+        guidanceDestinationTree = null;
+        sharedPathLength = 0;
+        guidanceInTree = true;
+        guidanceInHierarchy = false;
+        guidanceSource = src;
+        guidanceTarget = dst;
+        return graph.edge(first);
+    }
+
+    /**
+     * Returns the first edge of the shortest path that `search` finds from vertex `src` to vertex
+     * `dst` for a ghost that just traversed the edge with id `prevEdge` (or -1), or null if there
+     * is none.  Only the first edge is read out; the rest of the path is refined if
+     * `guidancePath()` asks for it.  Requires `src != dst`.
+     */
+    private MazeEdge hierarchicalNextEdge(HierarchicalSearch search, MazeVertex src, int prevEdge,
+            MazeVertex dst) {
+        search.search(src.id(), prevEdge, dst.id());
+        pathRecomputes += 1;
+        int first = search.firstEdge();
+        if (first == -1) {
+            guidancePath = List.of();
+            return null;
+        }
+        MazeGraph graph = model.graph();
+        guidancePath = null;
+        guidanceDestinationTree = null;
+        sharedPathLength = 0;
+        guidanceInTree = false;
+        guidanceInHierarchy = true;
+        guidanceSource = src;
+        guidancePrevEdge = (prevEdge == -1) ? null : graph.edge(prevEdge);
+        guidanceTarget = dst;
+        return graph.edge(first);
+    }
+
+    /**
+     * Returns the first edge along the shortest path from this ghost's `currentVertex()` to vertex
+     * `dst` if it can be looked up without searching, or null if it cannot.  Uses the graph's
+     * next-hop table when it can answer, and otherwise the graph's cached tree when `dst` is a
+     * fixed destination (a flee corner or the ghost box) and the tree's path does not backtrack.
+     * The tree's path is as short as a search's but may be a different one among equally short
+     * paths.  Requires `dst != nearestVertex()`.
+     */
+    MazeEdge lookUpNextEdge(MazeVertex dst) {
+        assert !dst.equals(nearestVertex());
         MazeEdge prevEdge = (location.progress() == 1) ? location.edge() : null;
-        guidancePath = Pathfinding.shortestNonBacktrackingPath(nearestVertex(), target(),
-                prevEdge);
-        return guidancePath == null || guidancePath.isEmpty() ? null : guidancePath.getFirst();
+        MazeGraph graph = model.graph();
+        if (prevEdge != null) {
+            MazeEdge next = graph.nextHop(prevEdge, dst);
+            if (next != null) {
+                guidancePath = null;
+                guidanceDestinationTree = null;
+                sharedPathLength = 0;
+                guidanceInTree = false;
+                guidanceInHierarchy = false;
+                guidancePrevEdge = prevEdge;
+                guidanceTarget = dst;
+                return next;
+            }
+        }
+        ReversePathTree destinationTree = graph.treeTo(dst.id());
+        if (destinationTree != null) {
+            int prevId = (prevEdge == null) ? -1 : graph.edgeId(prevEdge);
+            int first = destinationTree.firstEdge(nearestVertex().id(), prevId);
+            if (first != -1) {
+                guidancePath = null;
+                guidanceDestinationTree = destinationTree;
+                sharedPathLength = 0;
+                guidanceFirstEdge = graph.edge(first);
+                return guidanceFirstEdge;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Returns the edge with id `first`, which `search` (the most recent search of its workspace)
+     * found to start the shortest path from this ghost's `currentVertex()` to its destination, or
+     * null if `first` is -1 because it found none.  Lets ghosts heading for the same vertex share
+     * one search.  The path's edge ids are copied out before the search can be reused, and only
+     * turned into edges if `guidancePath()` asks for them.
+     */
+    MazeEdge followSharedSearch(TargetSearch search, int first) {
+        if (first == -1) {
+            guidancePath = List.of();
+            return null;
+        }
+        if (sharedPathEdges == null) {
+            sharedPathEdges = new int[64];
+        }
+        int n = 0;
+        for (int e = first; e != -1; e = search.edgeAfter(e)) {
+            if (n == sharedPathEdges.length) {
+                sharedPathEdges = Arrays.copyOf(sharedPathEdges, 2 * n);
+            }
+            sharedPathEdges[n++] = e;
+        }
+        guidancePath = null;
+        guidanceDestinationTree = null;
+        sharedPathLength = n;
+        pathShares += 1;
+        return model.graph().edge(first);
+    }
+
+    /**
+     * Search for the shortest path from vertex `src` to vertex `dst` (by compact id) for a ghost
+     * that just traversed edge `prevEdge` (or -1), replacing `pathTree`.  Return the id of the
+     * path's first edge, or -1 if there is no path.
+     * <p>
+     * The tree is grown without forbidding `prevEdge`'s reverse at the root when the path to `dst`
+     * does not start that way, since such a tree stays exact wherever the ghost goes next (see
+     * `repairedPath()`).  Otherwise the search is repeated with the restriction.
+     */
+    private int recomputedFirstEdge(int src, int prevEdge, int dst) {
+        if (pathTree == null) {
+            pathTree = new DijkstraEngine(model.graph().compact());
+        }
+        pathTree.searchBeyond(src, -1, dst, PATH_TREE_MARGIN);
+        pathTreePrevEdge = -1;
+        int first = treeFirstEdge(src, dst);
+        if (first != -1 && backtracks(first, prevEdge)) {
+            pathTree.searchBeyond(src, prevEdge, dst, PATH_TREE_MARGIN);
+            pathTreePrevEdge = prevEdge;
+            first = treeFirstEdge(src, dst);
+        }
+        return first;
+    }
+
+    /**
+     * Return the id of the first edge of the shortest path from vertex `src` to vertex `dst` (by
+     * compact id) recorded in `pathTree`, for a ghost that just traversed edge `prevEdge` (or -1),
+     * or -1 if the tree does not apply.
+     * <p>
+     * The tree applies at its root if its path does not backtrack `prevEdge`.  Elsewhere it
+     * applies if this ghost arrived at `src` along the tree's own edge: shortest paths from the
+     * root pass through `src` this way, so their continuations from `src` are shortest paths that
+     * respect the no-backtracking rule.  It also requires `dst` to be settled below `src`; a
+     * target that jumps elsewhere (or a ghost that reverses to flee) falls outside the tree.
+     * <p>
+     * One kind of path is missing from a tree whose root search was forbidden from leaving the way
+     * the ghost had come: a ghost that has moved on could loop back through the root and leave it
+     * that way.  Such a loop takes at least three edges, so the tree's path is only used if it is
+     * no longer than a lower bound on that detour.
+     */
+    private int repairedFirstEdge(int src, int prevEdge, int dst) {
+        if (pathTree == null || !pathTree.settled(src) || !pathTree.settled(dst)) {
+            return -1;
+        }
+        if (src == pathTree.source()) {
+            if (pathTreePrevEdge != -1 && prevEdge != pathTreePrevEdge) {
+                return -1;
+            }
+            int first = treeFirstEdge(src, dst);
+            return (first == -1 || backtracks(first, prevEdge)) ? -1 : first;
+        }
+        if (prevEdge == -1 || pathTree.parentEdge(src) != prevEdge) {
+            return -1;
+        }
+        if (pathTreePrevEdge != -1) {
+            CompactMazeGraph compact = pathTree.graph();
+            int behind = compact.edgeTail(pathTreePrevEdge);
+            double detour = 3 * MazeGraph.MIN_EDGE_WEIGHT
+                    + compact.edgeWeight(compact.reverseEdge(pathTreePrevEdge))
+                    + pathTree.heuristic(behind, dst);
+            if (pathTree.distance(dst) - pathTree.distance(src) > detour) {
+                return -1;
+            }
+        }
+        return treeFirstEdge(src, dst);
+    }
+
+    /**
+     * Return whether edge `first` reverses edge `prevEdge` (which may be -1), both given by compact
+     * id.
+     */
+    private boolean backtracks(int first, int prevEdge) {
+        CompactMazeGraph compact = pathTree.graph();
+        return prevEdge != -1 && compact.edgeHead(first) == compact.edgeTail(prevEdge);
+    }
+
+    /**
+     * Return the id of the first edge of the path from vertex `src` to vertex `dst` in `pathTree`,
+     * or -1 if `dst` is not settled below `src`.  Requires `src != dst`.
+     */
+    private int treeFirstEdge(int src, int dst) {
+        if (!pathTree.settled(dst)) {
+            return -1;
+        }
+        CompactMazeGraph compact = pathTree.graph();
+        for (int v = dst; ; ) {
+            int e = pathTree.parentEdge(v);
+            if (e == -1) {
+                return -1; // reached the root without passing through `src`
+            }
+            v = compact.edgeTail(e);
+            if (v == src) {
+                return e;
+            }
+        }
     }
 
     @Override
     public List<MazeEdge> guidancePath() {
+        if (guidancePath == null && sharedPathLength > 0) {
+            guidancePath = sharedPath();
+        } else if (guidancePath == null && guidanceDestinationTree != null) {
+            guidancePath = destinationTreePath();
+        } else if (guidancePath == null && guidanceInHierarchy) {
+            guidancePath = hierarchyPath();
+        } else if (guidancePath == null) {
+            guidancePath = guidanceInTree ? treePath(guidanceSource.id(), guidanceTarget.id())
+                    : model.graph().nextHopPath(guidancePrevEdge, guidanceTarget);
+            if (guidancePath == null) {
+                guidancePath = List.of();
+            }
+        }
         return Collections.unmodifiableList(guidancePath);
     }
 
+    /**
+     * Return the path whose edge ids were copied into `sharedPathEdges` from a shared search.
+     */
+    private List<MazeEdge> sharedPath() {
+        MazeGraph graph = model.graph();
+        MazeEdge[] path = new MazeEdge[sharedPathLength];
+        for (int k = 0; k < sharedPathLength; k++) {
+            path[k] = graph.edge(sharedPathEdges[k]);
+        }
+        return Arrays.asList(path);
+    }
+
+    /**
+     * Return the path that starts with `guidanceFirstEdge` and follows `guidanceDestinationTree`
+     * from there to its destination.
+     */
+    private List<MazeEdge> destinationTreePath() {
+        MazeGraph graph = model.graph();
+        ArrayList<MazeEdge> path = new ArrayList<>();
+        for (int e = graph.edgeId(guidanceFirstEdge); e != -1;
+                e = guidanceDestinationTree.edgeAfter(e)) {
+            path.add(graph.edge(e));
+        }
+        return path;
+    }
+
+    /**
+     * Return the path from `guidanceSource` to `guidanceTarget` found by searching the graph's
+     * cluster hierarchy again, as the search that chose this ghost's next edge did.
+     */
+    private List<MazeEdge> hierarchyPath() {
+        MazeGraph graph = model.graph();
+        HierarchicalSearch search = model.searchWorkspace().hierarchicalSearch();
+        int prevId = (guidancePrevEdge == null) ? -1 : graph.edgeId(guidancePrevEdge);
+        search.search(guidanceSource.id(), prevId, guidanceTarget.id());
+        int[] edges = search.path();
+        MazeEdge[] path = new MazeEdge[edges.length];
+        for (int k = 0; k < edges.length; k++) {
+            path[k] = graph.edge(edges[k]);
+        }
+        return Arrays.asList(path);
+    }
+
+    /**
+     * Return the path from vertex `src` to vertex `dst` in `pathTree`, or null if `dst` is not
+     * settled below `src`.  Requires `src != dst`.
+     */
+    private List<MazeEdge> treePath(int src, int dst) {
+        if (!pathTree.settled(dst)) {
+            return null;
+        }
+        CompactMazeGraph compact = pathTree.graph();
+        int[] edges = model.searchWorkspace().pathBuffer();
+        int n = 0;
+        for (int v = dst; v != src; v = compact.edgeTail(edges[n - 1])) {
+            int e = pathTree.parentEdge(v);
+            if (e == -1) {
+                return null; // reached the root without passing through `src`
+            }
+            edges[n++] = e;
+        }
+        MazeGraph graph = model.graph();
+        MazeEdge[] path = new MazeEdge[n];
+        for (int k = 0; k < n; k++) {
+            path[k] = graph.edge(edges[n - 1 - k]);
+        }
+        return Arrays.asList(path);
+    }
+
     /**
      * Transition this ghost to its WAIT state and reset the `waitTimeRemaining` to this ghost's
      * `INITIAL_DELAY`
@@ -176,11 +647,10 @@ public abstract class Ghost extends Actor {
 
     @Override
     public double baseSpeed() {
-        double baseSpeed = 1.0 / 200.0;
         if (state == GhostState.FLEE) {
-            return 0.5 * baseSpeed;
+            return FLEE_SPEED_FACTOR * BASE_SPEED;
         }
-        return baseSpeed;
+        return BASE_SPEED;
     }
 
     /* ****************************************************************
@@ -194,7 +664,7 @@ public abstract class Ghost extends Actor {
     public void startFlee() {
         if (state != GhostState.WAIT) {
             state = GhostState.FLEE;
-            fleeTimeRemaining = 8000;
+            fleeTimeRemaining = FLEE_TIME;
 
             location = location.reversed();
         }
@@ -207,7 +677,7 @@ public abstract class Ghost extends Actor {
     public void respawn() {
         assert state == GhostState.FLEE;
         state = GhostState.WAIT;
-        waitTimeRemaining = 3000;
+        waitTimeRemaining = RESPAWN_WAIT_TIME;
         fleeTimeRemaining = 0;
         location = new Location(model.graph().ghostStartingEdge(), 0);
     }
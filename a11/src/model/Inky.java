@@ -1,6 +1,8 @@
 package model;
 
 import java.awt.Color;
+import java.util.Random;
+import graph.MazeGraph.Corner;
 import graph.MazeGraph.MazeVertex;
 import graph.MazeGraph.IPair;
 
@@ -20,13 +22,13 @@ public class Inky extends Ghost {
     }
 
     @Override
-    protected MazeVertex target() {
-        int height = model.height();
-        if (state() == GhostState.FLEE) {
-            return model.graph().closestTo(2, height - 3);
+    protected MazeVertex target(BoardView board, GhostState state, MazeVertex position,
+            Random rng) {
+        if (state == GhostState.FLEE) {
+            return board.graph().corner(Corner.BOTTOM_LEFT);
         }
-        MazeVertex pacMannVertex = model.pacMann().nearestVertex();
-        MazeVertex inkyVertex = model.blinky().nearestVertex();
+        MazeVertex pacMannVertex = board.pacMannVertex();
+        MazeVertex inkyVertex = board.blinkyVertex();
         IPair pacMannLocation = pacMannVertex.loc();
         IPair inkyLocation = inkyVertex.loc();
         int pacMannXCoordinate = pacMannLocation.i();
@@ -35,6 +37,6 @@ public class Inky extends Ghost {
         int inkyYCoordinate = inkyLocation.j();
         int targetXCoordinate = 2 * pacMannXCoordinate - inkyXCoordinate;
         int targetYCoordinate = 2 * pacMannYCoordinate - inkyYCoordinate;
-        return model.graph().closestTo(targetXCoordinate, targetYCoordinate);
+        return board.graph().closestTo(targetXCoordinate, targetYCoordinate);
     }
 }
\ No newline at end of file
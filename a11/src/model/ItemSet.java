@@ -0,0 +1,200 @@
+package model;
+
+import graph.CompactMazeGraph;
+import model.GameModel.Item;
+
+/**
+ * The dots and pellets remaining in a maze, as two bitsets indexed by vertex id, so that looking up
+ * a vertex's item is a bit test.  Also keeps the number of items remaining and how many lie in each
+ * `BLOCK` x `BLOCK` block of tiles, so that the nearest item to a tile can be found by searching
+ * outward through the blocks that still hold any.
+ * <p>
+ * Copying one set onto another from the same maze takes a few array copies and no allocation.
+ */
+final class ItemSet {
+
+    /**
+     * The side length (in tiles) of the blocks whose items are counted, as a power of 2.
+     */
+    private static final int BLOCK_SHIFT = 3;
+    private static final int BLOCK = 1 << BLOCK_SHIFT;
+
+    private final CompactMazeGraph graph;
+
+    /**
+     * The vertices holding dots and pellets.
+     */
+    private final long[] dots;
+    private final long[] pellets;
+
+    /**
+     * The number of blocks across and down the maze.
+     */
+    private final int blocksAcross;
+    private final int blocksDown;
+
+    /**
+     * The number of items remaining in each block, in row-major order.
+     */
+    private final int[] blockCount;
+
+    /**
+     * The number of items remaining.
+     */
+    private int remaining;
+
+    /**
+     * Create an empty set of items for the maze with graph `graph`.
+     */
+    ItemSet(CompactMazeGraph graph) {
+        this.graph = graph;
+        dots = new long[(graph.vertexCount() + 63) >>> 6];
+        pellets = new long[dots.length];
+        blocksAcross = (graph.width() + BLOCK - 1) >>> BLOCK_SHIFT;
+        blocksDown = (graph.height() + BLOCK - 1) >>> BLOCK_SHIFT;
+        blockCount = new int[blocksAcross * blocksDown];
+    }
+
+    /**
+     * Create an independent copy of `other`.
+     */
+    ItemSet(ItemSet other) {
+        graph = other.graph;
+        dots = other.dots.clone();
+        pellets = other.pellets.clone();
+        blocksAcross = other.blocksAcross;
+        blocksDown = other.blocksDown;
+        blockCount = other.blockCount.clone();
+        remaining = other.remaining;
+    }
+
+    /**
+     * Overwrite this set with the items of `other`, without allocating.  Requires that both are
+     * for the same maze.
+     */
+    void copyFrom(ItemSet other) {
+        assert other.graph == graph;
+        System.arraycopy(other.dots, 0, dots, 0, dots.length);
+        System.arraycopy(other.pellets, 0, pellets, 0, pellets.length);
+        System.arraycopy(other.blockCount, 0, blockCount, 0, blockCount.length);
+        remaining = other.remaining;
+    }
+
+    /**
+     * Place `item` (a DOT or PELLET) on vertex `v`.  Requires that `v` holds no item.
+     */
+    void add(int v, Item item) {
+        assert item != Item.NONE && !hasItem(v);
+        long[] bits = (item == Item.DOT) ? dots : pellets;
+        bits[v >>> 6] |= 1L << v;
+        blockCount[block(v)] += 1;
+        remaining += 1;
+    }
+
+    /**
+     * Remove the item on vertex `v`, returning what it was (NONE if there was none).
+     */
+    Item remove(int v) {
+        long bit = 1L << v;
+        Item item;
+        if ((dots[v >>> 6] & bit) != 0) {
+            dots[v >>> 6] &= ~bit;
+            item = Item.DOT;
+        } else if ((pellets[v >>> 6] & bit) != 0) {
+            pellets[v >>> 6] &= ~bit;
+            item = Item.PELLET;
+        } else {
+            return Item.NONE;
+        }
+        blockCount[block(v)] -= 1;
+        remaining -= 1;
+        return item;
+    }
+
+    /**
+     * Return the item on vertex `v`, possibly NONE.
+     */
+    Item get(int v) {
+        long bit = 1L << v;
+        if ((dots[v >>> 6] & bit) != 0) {
+            return Item.DOT;
+        } else if ((pellets[v >>> 6] & bit) != 0) {
+            return Item.PELLET;
+        }
+        return Item.NONE;
+    }
+
+    /**
+     * Return whether vertex `v` holds a dot or a pellet.
+     */
+    boolean hasItem(int v) {
+        return ((dots[v >>> 6] | pellets[v >>> 6]) & (1L << v)) != 0;
+    }
+
+    /**
+     * Return the number of items remaining.
+     */
+    int remaining() {
+        return remaining;
+    }
+
+    /**
+     * Return the id of a vertex holding an item whose tile is as close as possible to tile
+     * `(i, j)`, by Manhattan distance ignoring walls and tunnels, or -1 if no items remain.
+     * <p>
+     * Searches rings of blocks around `(i, j)`'s block, skipping empty blocks, and stops once the
+     * next ring cannot hold anything closer than the best item found.
+     */
+    int nearest(int i, int j) {
+        if (remaining == 0) {
+            return -1;
+        }
+        int bi = i >>> BLOCK_SHIFT;
+        int bj = j >>> BLOCK_SHIFT;
+        int maxRing = Math.max(Math.max(bi, blocksAcross - 1 - bi),
+                Math.max(bj, blocksDown - 1 - bj));
+        int best = -1;
+        int bestDistance = Integer.MAX_VALUE;
+        for (int r = 0; r <= maxRing; r++) {
+            for (int y = bj - r; y <= bj + r; y++) {
+                if (y < 0 || y >= blocksDown) {
+                    continue;
+                }
+                // Only the first and last rows of the ring are full; the rest contribute two blocks
+                int step = (y == bj - r || y == bj + r) ? 1 : Math.max(2 * r, 1);
+                for (int x = bi - r; x <= bi + r; x += step) {
+                    if (x < 0 || x >= blocksAcross || blockCount[y * blocksAcross + x] == 0) {
+                        continue;
+                    }
+                    int rowEnd = Math.min((y + 1) << BLOCK_SHIFT, graph.height());
+                    int columnEnd = Math.min((x + 1) << BLOCK_SHIFT, graph.width());
+                    for (int tj = y << BLOCK_SHIFT; tj < rowEnd; tj++) {
+                        for (int ti = x << BLOCK_SHIFT; ti < columnEnd; ti++) {
+                            int v = graph.vertexAt(ti, tj);
+                            if (v < 0 || !hasItem(v)) {
+                                continue;
+                            }
+                            int distance = Math.abs(ti - i) + Math.abs(tj - j);
+                            if (distance < bestDistance) {
+                                best = v;
+                                bestDistance = distance;
+                            }
+                        }
+                    }
+                }
+            }
+            // Every tile in ring `r + 1` is at least `r * BLOCK + 1` away
+            if (bestDistance <= r * BLOCK + 1) {
+                break;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Return the index of the block holding vertex `v`'s tile.
+     */
+    private int block(int v) {
+        return (graph.row(v) >>> BLOCK_SHIFT) * blocksAcross + (graph.column(v) >>> BLOCK_SHIFT);
+    }
+}
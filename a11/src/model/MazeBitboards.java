@@ -0,0 +1,277 @@
+package model;
+
+import graph.CompactMazeGraph;
+
+/**
+ * Operations on sets of a maze's tiles represented as bitboards: arrays of `long` words in which
+ * bit `t % 64` of word `t / 64` stands for the tile with row-major index `t = j * width + i`.
+ * Moving a set of tiles one step in every direction takes a few shifts and masks per word, so a
+ * breadth-first search can advance a whole frontier at once.
+ * <p>
+ * Frontiers stay small compared to the board, so operations only visit a window of words around
+ * their input, given as an inclusive range of word indices, and report the window of their output
+ * with `low()` and `high()` (`low() > high()` if the output is empty).  Words outside a window may
+ * hold stale bits and are never read.  An instance keeps the window of its last result, so it must
+ * only be used by one thread at a time.
+ */
+final class MazeBitboards {
+
+    /**
+     * The number of columns of tiles.
+     */
+    private final int width;
+
+    /**
+     * The number of words in a bitboard of this maze.
+     */
+    private final int words;
+
+    /**
+     * The tiles that are vertices of the maze graph.
+     */
+    private final long[] vertices;
+
+    /**
+     * The tiles not in the first column, which can move left without wrapping around.
+     */
+    private final long[] notFirstColumn;
+
+    /**
+     * The tiles not in the last column, which can move right without wrapping around.
+     */
+    private final long[] notLastColumn;
+
+    /**
+     * The tail and head tiles of each edge that wraps around the board through a tunnel.  Shifts
+     * cannot express these edges, so they are followed one at a time.
+     */
+    private final int[] wrapTails;
+    private final int[] wrapHeads;
+
+    /**
+     * How many words away from a set bit its neighbors may lie (not counting wrapping edges).
+     */
+    private final int margin;
+
+    /**
+     * The window of the most recent result.
+     */
+    private int low;
+    private int high;
+
+    /**
+     * Create bitboard operations for the maze with compact graph `graph`.
+     */
+    MazeBitboards(CompactMazeGraph graph) {
+        width = graph.width();
+        int tiles = width * graph.height();
+        words = (tiles + 63) >>> 6;
+        margin = (width >>> 6) + 2;
+
+        vertices = new long[words];
+        notFirstColumn = new long[words];
+        notLastColumn = new long[words];
+        int numWraps = 0;
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            int t = graph.tile(v);
+            add(vertices, t);
+            if (t % width != 0) {
+                add(notFirstColumn, t);
+            }
+            if (t % width != width - 1) {
+                add(notLastColumn, t);
+            }
+            for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e++) {
+                if (isWrap(graph, e)) {
+                    numWraps += 1;
+                }
+            }
+        }
+        wrapTails = new int[numWraps];
+        wrapHeads = new int[numWraps];
+        int k = 0;
+        for (int e = 0; e < graph.edgeCount(); e++) {
+            if (isWrap(graph, e)) {
+                wrapTails[k] = graph.tile(graph.edgeTail(e));
+                wrapHeads[k] = graph.tile(graph.edgeHead(e));
+                k += 1;
+            }
+        }
+    }
+
+    /**
+     * Return whether edge `e` of `graph` joins tiles on opposite borders of the board.
+     */
+    private static boolean isWrap(CompactMazeGraph graph, int e) {
+        int tail = graph.edgeTail(e);
+        int head = graph.edgeHead(e);
+        return Math.abs(graph.column(tail) - graph.column(head)) > 1
+                || Math.abs(graph.row(tail) - graph.row(head)) > 1;
+    }
+
+    /**
+     * Return the number of words in a bitboard of this maze.
+     */
+    int words() {
+        return words;
+    }
+
+    /**
+     * Return a new, empty bitboard for this maze.
+     */
+    long[] newBoard() {
+        return new long[words];
+    }
+
+    /**
+     * Return the first word of the most recent result's window.
+     */
+    int low() {
+        return low;
+    }
+
+    /**
+     * Return the last word of the most recent result's window.
+     */
+    int high() {
+        return high;
+    }
+
+    /**
+     * Return whether tile `t` is in `board`.
+     */
+    static boolean contains(long[] board, int t) {
+        return (board[t >>> 6] & (1L << t)) != 0;
+    }
+
+    /**
+     * Return whether tile `t` is in `board`, whose window is `lo..hi`.
+     */
+    static boolean contains(long[] board, int lo, int hi, int t) {
+        int w = t >>> 6;
+        return w >= lo && w <= hi && (board[w] & (1L << t)) != 0;
+    }
+
+    /**
+     * Add tile `t` to `board`.
+     */
+    static void add(long[] board, int t) {
+        board[t >>> 6] |= 1L << t;
+    }
+
+    /**
+     * Remove tile `t` from `board`.
+     */
+    static void remove(long[] board, int t) {
+        board[t >>> 6] &= ~(1L << t);
+    }
+
+    /**
+     * Set `next` to the vertices adjacent to the tiles of `frontier` (with window `lo..hi`) that
+     * are not in `visited`, and add them to `visited`.  `visited` must be valid in every word.
+     */
+    void advance(long[] frontier, int lo, int hi, long[] visited, long[] next) {
+        int from = Math.max(0, lo - margin);
+        int to = Math.min(words - 1, hi + margin);
+        for (int w = from; w <= to; w++) {
+            long word = neighbors(frontier, lo, hi, w) & vertices[w] & ~visited[w];
+            next[w] = word;
+            visited[w] |= word;
+        }
+        for (int k = 0; k < wrapTails.length; k++) {
+            int head = wrapHeads[k];
+            if (contains(frontier, lo, hi, wrapTails[k]) && !contains(visited, head)) {
+                int w = head >>> 6;
+                for (; to < w; to++) {
+                    next[to + 1] = 0;
+                }
+                for (; from > w; from--) {
+                    next[from - 1] = 0;
+                }
+                add(next, head);
+                add(visited, head);
+            }
+        }
+        trim(next, from, to);
+    }
+
+    /**
+     * Set `prev` to the tiles of `layer` (with window `layerLo..layerHi`) adjacent to the tiles of
+     * `set` (with window `lo..hi`).  Since maze edges come in opposite pairs, these are the tiles
+     * of `layer` with an edge into `set`.
+     */
+    void retreat(long[] set, int lo, int hi, long[] layer, int layerLo, int layerHi,
+            long[] prev) {
+        int from = Math.max(layerLo, lo - margin);
+        int to = Math.min(layerHi, hi + margin);
+        for (int w = from; w <= to; w++) {
+            prev[w] = neighbors(set, lo, hi, w) & layer[w];
+        }
+        for (int k = 0; k < wrapTails.length; k++) {
+            int head = wrapHeads[k];
+            if (contains(set, lo, hi, wrapTails[k]) && contains(layer, layerLo, layerHi, head)) {
+                int w = head >>> 6;
+                if (from > to) {
+                    from = w;
+                    to = w;
+                    prev[w] = 0;
+                }
+                for (; to < w; to++) {
+                    prev[to + 1] = 0;
+                }
+                for (; from > w; from--) {
+                    prev[from - 1] = 0;
+                }
+                add(prev, head);
+            }
+        }
+        trim(prev, from, to);
+    }
+
+    /**
+     * Return word `w` of the set of tiles one non-wrapping step away from the tiles of `board`
+     * (with window `lo..hi`).
+     */
+    private long neighbors(long[] board, int lo, int hi, int w) {
+        int q = width >>> 6;
+        int r = width & 63;
+        // Moving left takes tile t + 1 to t; moving right takes t - 1 to t
+        long left = (word(board, lo, hi, w) & notFirstColumn[w]) >>> 1;
+        if (w + 1 < words) {
+            left |= (word(board, lo, hi, w + 1) & notFirstColumn[w + 1]) << 63;
+        }
+        long right = (word(board, lo, hi, w) & notLastColumn[w]) << 1;
+        if (w > 0) {
+            right |= (word(board, lo, hi, w - 1) & notLastColumn[w - 1]) >>> 63;
+        }
+        // Moving up takes tile t + width to t; moving down takes t - width to t
+        long up = word(board, lo, hi, w + q) >>> r;
+        long down = word(board, lo, hi, w - q) << r;
+        if (r != 0) {
+            up |= word(board, lo, hi, w + q + 1) << (64 - r);
+            down |= word(board, lo, hi, w - q - 1) >>> (64 - r);
+        }
+        return left | right | up | down;
+    }
+
+    /**
+     * Return word `w` of `board`, whose window is `lo..hi`, or 0 if it is outside the window.
+     */
+    private static long word(long[] board, int lo, int hi, int w) {
+        return (w >= lo && w <= hi) ? board[w] : 0;
+    }
+
+    /**
+     * Record the window of `board` as the smallest part of `from..to` holding all its bits.
+     */
+    private void trim(long[] board, int from, int to) {
+        while (from <= to && board[from] == 0) {
+            from += 1;
+        }
+        while (to >= from && board[to] == 0) {
+            to -= 1;
+        }
+        low = from;
+        high = to;
+    }
+}
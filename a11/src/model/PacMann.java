@@ -19,6 +19,11 @@ import graph.MazeGraph.MazeVertex;
  */
 public abstract class PacMann extends Actor {
 
+    /**
+     * PacMann's base speed, which does not change (see `Actor.baseSpeed()`)
+     */
+    static final double BASE_SPEED = 1.0 / 200.0;
+
     /**
      * Construct a PacMann character associated to the given `model`.
      */
@@ -60,6 +65,6 @@ public abstract class PacMann extends Actor {
 
     @Override
     public final double baseSpeed() {
-        return 1.0 / 200.0;
+        return BASE_SPEED;
     }
 }
@@ -1,208 +1,457 @@
 package model;
 
+import graph.CompactMazeGraph;
 import graph.MazeGraph.MazeEdge;
 import graph.MazeGraph.MazeVertex;
+import java.util.Arrays;
 
-import java.util.*;
-
+/**
+ * A PacMann that heads for the most attractive food (or fleeing ghost) within reach, avoiding
+ * tiles close to chasing ghosts when it can.
+ * <p>
+ * Its searches represent sets of tiles as bitboards (see `MazeBitboards`), so each breadth-first
+ * layer is computed a word at a time, and all of their storage is allocated once per game.
+ */
 public class PacMannAI extends PacMann {
 
+    /**
+     * How many steps away from PacMann targets may be.
+     */
+    private static final int MAX_DEPTH = 60;
+
+    /**
+     * How far ghost distances need to be known for scoring; larger distances count the same.
+     */
+    private static final int GHOST_DISTANCE_CAP = 10;
+
+    /**
+     * The ghost distance of tiles no chasing ghost can reach.
+     */
+    private static final int UNREACHABLE = 1000;
+
+    /**
+     * Values returned by `chooseFirstEdge()` instead of an edge id.
+     */
+    private static final int NO_TARGET = -1;
+    private static final int TARGET_HERE = -2;
+
+    private final CompactMazeGraph graph;
+    private final MazeBitboards boards;
+    private final int width;
+
+    /**
+     * The tiles holding dots and pellets, filled in on the first decision and kept in step with
+     * the model as PacMann eats.
+     */
+    private final long[] dots;
+    private final long[] pellets;
+    private boolean foodInitialized;
+
+    /**
+     * The distance from each tile to the nearest chasing ghost, valid for the tiles in
+     * `ghostVisited`.
+     */
+    private final int[] ghostDistance;
+    private final long[] ghostVisited;
+    private final long[] ghostFrontier;
+    private final long[] ghostNext;
+
+    /**
+     * The tiles within 2 and 3 steps of a chasing ghost, with their windows.
+     */
+    private final long[] danger2;
+    private final long[] danger3;
+    private int danger2Lo;
+    private int danger2Hi;
+    private int danger3Lo;
+    private int danger3Hi;
+
+    /**
+     * The tiles first reached after each number of steps by the most recent target search, and
+     * the cones of those tiles leading to its best targets, with their windows.
+     */
+    private final long[][] layers;
+    private final int[] layerLo;
+    private final int[] layerHi;
+    private final long[][] cone;
+    private final int[] coneLo;
+    private final int[] coneHi;
+    private final long[] targetVisited;
+
+    /**
+     * The tiles of the best-scoring targets of the current search, all the same number of steps
+     * away.
+     */
+    private final int[] bestTiles;
+
+    /**
+     * The columns and rows of fleeing ghosts.
+     */
+    private int[] fleeColumns;
+    private int[] fleeRows;
+
     public PacMannAI(GameModel model) {
         super(model);
+        graph = model.graph().compact();
+        boards = new MazeBitboards(graph);
+        width = graph.width();
+        dots = boards.newBoard();
+        pellets = boards.newBoard();
+        ghostDistance = new int[width * graph.height()];
+        ghostVisited = boards.newBoard();
+        ghostFrontier = boards.newBoard();
+        ghostNext = boards.newBoard();
+        danger2 = boards.newBoard();
+        danger3 = boards.newBoard();
+        layers = new long[MAX_DEPTH + 1][];
+        cone = new long[MAX_DEPTH + 1][];
+        for (int d = 0; d <= MAX_DEPTH; d++) {
+            layers[d] = boards.newBoard();
+            cone[d] = boards.newBoard();
+        }
+        layerLo = new int[MAX_DEPTH + 1];
+        layerHi = new int[MAX_DEPTH + 1];
+        coneLo = new int[MAX_DEPTH + 1];
+        coneHi = new int[MAX_DEPTH + 1];
+        targetVisited = boards.newBoard();
+        bestTiles = new int[graph.vertexCount()];
+        fleeColumns = new int[0];
+        fleeRows = new int[0];
     }
 
-    private Map<MazeVertex, MazeEdge> lastParentEdge;
-
     @Override
     public MazeEdge nextEdge() {
         MazeVertex start = nearestVertex();
         if (!location().atVertex()) {
             return currentEdge();
         }
-        List<Ghost> ghosts = new ArrayList<>();
-        boolean anyGhostsFleeing = false;
-        List<MazeVertex> fleeingGhostVertices = new ArrayList<>();
+        updateFood(start);
+        int startTile = graph.tile(start.id());
+
+        int numFleeing = 0;
+        long[] sources = ghostFrontier;
+        Arrays.fill(sources, 0);
+        boolean anySources = false;
         for (Actor actor : model.actors()) {
             if (actor instanceof Ghost ghost) {
-                ghosts.add(ghost);
                 if (ghost.state() == Ghost.GhostState.FLEE) {
-                    anyGhostsFleeing = true;
-                    fleeingGhostVertices.add(ghost.nearestVertex());
+                    if (numFleeing == fleeColumns.length) {
+                        fleeColumns = Arrays.copyOf(fleeColumns, 2 * numFleeing + 1);
+                        fleeRows = Arrays.copyOf(fleeRows, 2 * numFleeing + 1);
+                    }
+                    MazeVertex v = ghost.nearestVertex();
+                    fleeColumns[numFleeing] = v.loc().i();
+                    fleeRows[numFleeing] = v.loc().j();
+                    numFleeing += 1;
+                } else if (ghost.state() == Ghost.GhostState.CHASE) {
+                    MazeBitboards.add(sources, graph.tile(ghost.nearestVertex().id()));
+                    anySources = true;
                 }
             }
         }
-        Map<MazeVertex, Integer> ghostDistanceMap = computeGhostDistances(ghosts);
-        Set<MazeVertex> dangerous = createDangerSet(start, ghostDistanceMap);
-        MazeVertex target = chooseBestTargetViaBfs(start, dangerous, ghostDistanceMap,
-                fleeingGhostVertices, anyGhostsFleeing);
-        if (target == null) {
-            target = chooseBestTargetViaBfs(start, Collections.emptySet(), ghostDistanceMap,
-                    fleeingGhostVertices, anyGhostsFleeing);
-        }
-        if (target == null) {
-            MazeEdge fallback = safestNeighborEdge(start, ghostDistanceMap);
-            if (fallback != null) {
-                return fallback;
-            }
-            for (MazeEdge edge : start.outgoingEdges()) {
-                return edge;
-            }
-            return currentEdge();
+        computeGhostDistances(anySources, startTile);
+
+        int first = chooseFirstEdge(start.id(), startTile, true, numFleeing);
+        if (first == NO_TARGET) {
+            first = chooseFirstEdge(start.id(), startTile, false, numFleeing);
         }
-        MazeEdge first = firstEdgeOnPath(start, target, lastParentEdge);
-        if (first == null) {
-            MazeEdge fallback = safestNeighborEdge(start, ghostDistanceMap);
-            if (fallback != null) {
-                return fallback;
-            }
-            for (MazeEdge edge : start.outgoingEdges()) {
-                return edge;
-            }
-            return currentEdge();
+        if (first >= 0) {
+            return model.graph().edge(first);
+        }
+        // No target, or the best target is where PacMann already stands
+        MazeEdge fallback = safestNeighborEdge(start);
+        if (fallback != null) {
+            return fallback;
+        }
+        for (MazeEdge edge : start.outgoingEdges()) {
+            return edge;
         }
-        return first;
+        return currentEdge();
     }
 
-    private Map<MazeVertex, Integer> computeGhostDistances(List<Ghost> ghosts) {
-        Map<MazeVertex, Integer> distanceMap = new HashMap<>();
-        Queue<MazeVertex> queue = new ArrayDeque<>();
-        for (Ghost ghost : ghosts) {
-            if (ghost.state() == Ghost.GhostState.CHASE) {
-                MazeVertex ghostVertex = ghost.nearestVertex();
-                if (!distanceMap.containsKey(ghostVertex)) {
-                    distanceMap.put(ghostVertex, 0);
-                    queue.add(ghostVertex);
+    /**
+     * Bring `dots` and `pellets` up to date with the model, given that PacMann is at `start`.
+     * Items are only removed when PacMann arrives at a vertex, and he decides where to go next at
+     * every vertex he arrives at, so only `start` can have changed since the last decision.
+     */
+    private void updateFood(MazeVertex start) {
+        if (!foodInitialized) {
+            for (MazeVertex v : model.graph().vertices()) {
+                GameModel.Item item = model.itemAt(v);
+                if (item == GameModel.Item.DOT) {
+                    MazeBitboards.add(dots, graph.tile(v.id()));
+                } else if (item == GameModel.Item.PELLET) {
+                    MazeBitboards.add(pellets, graph.tile(v.id()));
                 }
             }
+            foodInitialized = true;
+        } else if (model.itemAt(start) == GameModel.Item.NONE) {
+            int t = graph.tile(start.id());
+            MazeBitboards.remove(dots, t);
+            MazeBitboards.remove(pellets, t);
         }
-        while (!queue.isEmpty()) {
-            MazeVertex vertex = queue.remove();
-            int distance = distanceMap.get(vertex);
-            for (MazeEdge edge : vertex.outgoingEdges()) {
-                MazeVertex next = edge.head();
-                if (!distanceMap.containsKey(next)) {
-                    distanceMap.put(next, distance + 1);
-                    queue.add(next);
+    }
+
+    /**
+     * Compute the distance from the tiles in `ghostFrontier` (the nearest vertices of chasing
+     * ghosts, if `anySources`) to every tile within `GHOST_DISTANCE_CAP` of them, and to
+     * `startTile` and its neighbors, and record the tiles within 2 and 3 steps of them.
+     */
+    private void computeGhostDistances(boolean anySources, int startTile) {
+        long[] frontier = ghostFrontier;
+        long[] next = ghostNext;
+        System.arraycopy(frontier, 0, ghostVisited, 0, frontier.length);
+        int lo = 0;
+        int hi = anySources ? frontier.length - 1 : -1;
+        for (int w = lo; w <= hi; w++) {
+            for (long bits = frontier[w]; bits != 0; bits &= bits - 1) {
+                ghostDistance[(w << 6) + Long.numberOfTrailingZeros(bits)] = 0;
+            }
+        }
+        int visitedLo = lo;
+        int visitedHi = hi;
+        int depth = 0;
+        int startDistance = MazeBitboards.contains(ghostVisited, startTile) ? 0 : -1;
+        // Neighbors of PacMann are at most one step farther than he is
+        while (lo <= hi && (depth < GHOST_DISTANCE_CAP || startDistance < 0
+                || depth <= startDistance)) {
+            if (depth == 2) {
+                copyDanger(danger2, visitedLo, visitedHi);
+                danger2Lo = visitedLo;
+                danger2Hi = visitedHi;
+            } else if (depth == 3) {
+                copyDanger(danger3, visitedLo, visitedHi);
+                danger3Lo = visitedLo;
+                danger3Hi = visitedHi;
+            }
+            boards.advance(frontier, lo, hi, ghostVisited, next);
+            lo = boards.low();
+            hi = boards.high();
+            depth += 1;
+            for (int w = lo; w <= hi; w++) {
+                for (long bits = next[w]; bits != 0; bits &= bits - 1) {
+                    int t = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    ghostDistance[t] = depth;
+                    if (t == startTile) {
+                        startDistance = depth;
+                    }
                 }
             }
+            visitedLo = Math.min(visitedLo, lo);
+            visitedHi = Math.max(visitedHi, hi);
+            long[] swap = frontier;
+            frontier = next;
+            next = swap;
+        }
+        if (depth < 2) {
+            copyDanger(danger2, visitedLo, visitedHi);
+            danger2Lo = visitedLo;
+            danger2Hi = visitedHi;
+        }
+        if (depth < 3) {
+            copyDanger(danger3, visitedLo, visitedHi);
+            danger3Lo = visitedLo;
+            danger3Hi = visitedHi;
         }
-        return distanceMap;
     }
 
-    private Set<MazeVertex> createDangerSet(MazeVertex start,
-            Map<MazeVertex, Integer> ghostDistanceMap) {
-        int startGhostDistance = ghostDistanceMap.getOrDefault(start, 1000);
-        int radius = startGhostDistance <= 5 ? 3 : 2;
-        Set<MazeVertex> dangerous = new HashSet<>();
-        for (Map.Entry<MazeVertex, Integer> entry : ghostDistanceMap.entrySet()) {
-            MazeVertex vertex = entry.getKey();
-            int distance = entry.getValue();
-            if (distance <= radius) {
-                dangerous.add(vertex);
-            }
+    /**
+     * Copy words `lo..hi` of `ghostVisited` into `danger`.
+     */
+    private void copyDanger(long[] danger, int lo, int hi) {
+        if (lo <= hi) {
+            System.arraycopy(ghostVisited, lo, danger, lo, hi - lo + 1);
         }
-        return dangerous;
     }
 
-    private MazeVertex chooseBestTargetViaBfs(MazeVertex start, Set<MazeVertex> blocked,
-            Map<MazeVertex, Integer> ghostDistanceMap, List<MazeVertex> fleeingGhostVertices,
-            boolean anyGhostsFleeing) {
-        Map<MazeVertex, MazeEdge> parentEdge = new HashMap<>();
-        Map<MazeVertex, Integer> stepsMap = new HashMap<>();
-        Queue<MazeVertex> queue = new ArrayDeque<>();
-        queue.add(start);
-        stepsMap.put(start, 0);
-        parentEdge.put(start, null);
-        double bestScore = Double.NEGATIVE_INFINITY;
-        MazeVertex bestTarget = null;
-        int maxDepth = 60;
-        int startGhostDistance = ghostDistanceMap.getOrDefault(start, 1000);
-        int pelletBaseScore = startGhostDistance <= 6 ? 30 : 18;
-        while (!queue.isEmpty()) {
-            MazeVertex vertex = queue.remove();
-            int steps = stepsMap.get(vertex);
-            if (steps > maxDepth) {
-                continue;
+    /**
+     * Return the distance from tile `t` to the nearest chasing ghost, or a large value if it is
+     * beyond the distances that were computed.
+     */
+    private int ghostDistance(int t) {
+        return MazeBitboards.contains(ghostVisited, t) ? ghostDistance[t] : UNREACHABLE;
+    }
+
+    /**
+     * Search up to `MAX_DEPTH` steps from PacMann's vertex `startVertex` (on tile `startTile`) for
+     * the best-scoring food or fleeing ghost, avoiding tiles near chasing ghosts if `avoidDanger`.
+     * Return the id of the first edge of a shortest path to it, `TARGET_HERE` if the best target is
+     * PacMann's own vertex, or `NO_TARGET` if nothing reachable scores.
+     * <p>
+     * Ties go to the target found first by a FIFO breadth-first search that tries edges in graph
+     * order, and the path is the one that search would record.  Both are the lexicographically
+     * smallest shortest path by edge order, which `firstEdgeTowardBest()` finds from the layers.
+     */
+    private int chooseFirstEdge(int startVertex, int startTile, boolean avoidDanger,
+            int numFleeing) {
+        int startGhostDistance = ghostDistance(startTile);
+        Arrays.fill(targetVisited, 0);
+        if (avoidDanger) {
+            boolean wide = startGhostDistance <= 5;
+            long[] danger = wide ? danger3 : danger2;
+            int lo = wide ? danger3Lo : danger2Lo;
+            int hi = wide ? danger3Hi : danger2Hi;
+            for (int w = lo; w <= hi; w++) {
+                targetVisited[w] = danger[w];
             }
-            int ghostDistance = ghostDistanceMap.getOrDefault(vertex, 1000);
-            if (ghostDistance <= 0) {
-                for (MazeEdge edge : vertex.outgoingEdges()) {
-                    MazeVertex next = edge.head();
-                    if (!stepsMap.containsKey(next)) {
-                        if (blocked.contains(next) && !next.equals(start)) {
-                            continue;
-                        }
-                        stepsMap.put(next, steps + 1);
-                        parentEdge.put(next, edge);
-                        queue.add(next);
+        }
+        MazeBitboards.add(targetVisited, startTile);
+        layerLo[0] = startTile >>> 6;
+        layerHi[0] = startTile >>> 6;
+        layers[0][layerLo[0]] = 0;
+        MazeBitboards.add(layers[0], startTile);
+
+        int pelletBaseScore = startGhostDistance <= 6 ? 30 : 18;
+        double bestScore = Double.NEGATIVE_INFINITY;
+        int bestDepth = -1;
+        int numBest = 0;
+        for (int depth = 0; depth <= MAX_DEPTH; depth++) {
+            long[] layer = layers[depth];
+            for (int w = layerLo[depth]; w <= layerHi[depth]; w++) {
+                long bits = (numFleeing > 0) ? layer[w] : layer[w] & (dots[w] | pellets[w]);
+                for (; bits != 0; bits &= bits - 1) {
+                    int t = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    double score = score(t, depth, pelletBaseScore, numFleeing);
+                    if (score > bestScore) {
+                        bestScore = score;
+                        bestDepth = depth;
+                        bestTiles[0] = t;
+                        numBest = 1;
+                    } else if (score == bestScore && depth == bestDepth) {
+                        bestTiles[numBest++] = t;
                     }
                 }
-                continue;
             }
-            GameModel.Item item = model.itemAt(vertex);
-            int foodScore = 0;
-            if (item == GameModel.Item.DOT) {
-                foodScore = 5;
-            } else if (item == GameModel.Item.PELLET) {
-                foodScore = pelletBaseScore;
+            if (depth == MAX_DEPTH) {
+                break;
             }
+            boards.advance(layer, layerLo[depth], layerHi[depth], targetVisited,
+                    layers[depth + 1]);
+            layerLo[depth + 1] = boards.low();
+            layerHi[depth + 1] = boards.high();
+            if (boards.low() > boards.high()) {
+                break;
+            }
+        }
+        if (bestDepth < 0) {
+            return NO_TARGET;
+        }
+        if (bestDepth == 0) {
+            return TARGET_HERE;
+        }
+        return firstEdgeTowardBest(startVertex, bestDepth, numBest);
+    }
+
+    /**
+     * Return how attractive tile `t`, `steps` steps from PacMann, is as a target, or
+     * NEGATIVE_INFINITY if it is not a target at all.
+     */
+    private double score(int t, int steps, int pelletBaseScore, int numFleeing) {
+        int ghostDistance = ghostDistance(t);
+        if (ghostDistance <= 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        assert foodMatchesModel(t);
+        int foodScore = 0;
+        if (MazeBitboards.contains(dots, t)) {
+            foodScore = 5;
+        } else if (MazeBitboards.contains(pellets, t)) {
+            foodScore = pelletBaseScore;
+        }
 
-            int fleeKillScore = 0;
-            if (anyGhostsFleeing && !fleeingGhostVertices.isEmpty()) {
-                int vertexI = vertex.loc().i();
-                int vertexJ = vertex.loc().j();
-                for (MazeVertex fleeVertex : fleeingGhostVertices) {
-                    int fleeI = fleeVertex.loc().i();
-                    int fleeJ = fleeVertex.loc().j();
-                    int manhattanDistance = Math.abs(vertexI - fleeI) + Math.abs(vertexJ - fleeJ);
-                    if (manhattanDistance <= 6 && ghostDistance >= 3) {
-                        int localScore = 120 - manhattanDistance * 15;
-                        if (localScore > fleeKillScore) {
-                            fleeKillScore = localScore;
-                        }
+        int fleeKillScore = 0;
+        if (numFleeing > 0 && ghostDistance >= 3) {
+            int vertexI = t % width;
+            int vertexJ = t / width;
+            for (int k = 0; k < numFleeing; k++) {
+                int manhattanDistance = Math.abs(vertexI - fleeColumns[k])
+                        + Math.abs(vertexJ - fleeRows[k]);
+                if (manhattanDistance <= 6) {
+                    int localScore = 120 - manhattanDistance * 15;
+                    if (localScore > fleeKillScore) {
+                        fleeKillScore = localScore;
                     }
                 }
             }
-            if (foodScore > 0 || fleeKillScore > 0) {
-                int cappedGhostDistance = Math.min(ghostDistance, 10);
-                double score =
-                        foodScore * 10.0 + fleeKillScore * 1.2 + cappedGhostDistance * 2.5 - steps;
-                if (score > bestScore) {
-                    bestScore = score;
-                    bestTarget = vertex;
-                }
+        }
+        if (foodScore == 0 && fleeKillScore == 0) {
+            return Double.NEGATIVE_INFINITY;
+        }
+        int cappedGhostDistance = Math.min(ghostDistance, GHOST_DISTANCE_CAP);
+        return foodScore * 10.0 + fleeKillScore * 1.2 + cappedGhostDistance * 2.5 - steps;
+    }
+
+    /**
+     * Return whether the food recorded on tile `t` agrees with the model.
+     */
+    private boolean foodMatchesModel(int t) {
+        GameModel.Item item = model.itemAt(model.graph().vertex(graph.vertexOnTile(t)));
+        return MazeBitboards.contains(dots, t) == (item == GameModel.Item.DOT)
+                && MazeBitboards.contains(pellets, t) == (item == GameModel.Item.PELLET);
+    }
+
+    /**
+     * Return the first edge of the lexicographically smallest (by edge order) shortest path from
+     * `startVertex` to any of `bestTiles[0..numBest)`, which are `depth` steps away in `layers`.
+     * <p>
+     * Works back from the targets to find, in each layer, the tiles on some shortest path to one
+     * of them, then walks forward from PacMann taking the first edge that stays on such a path.
+     */
+    private int firstEdgeTowardBest(int startVertex, int depth, int numBest) {
+        long[] targets = cone[depth];
+        int lo = bestTiles[0] >>> 6;
+        int hi = lo;
+        for (int k = 0; k < numBest; k++) {
+            int w = bestTiles[k] >>> 6;
+            lo = Math.min(lo, w);
+            hi = Math.max(hi, w);
+        }
+        Arrays.fill(targets, lo, hi + 1, 0);
+        for (int k = 0; k < numBest; k++) {
+            MazeBitboards.add(targets, bestTiles[k]);
+        }
+        coneLo[depth] = lo;
+        coneHi[depth] = hi;
+        for (int d = depth - 1; d >= 1; d--) {
+            boards.retreat(cone[d + 1], coneLo[d + 1], coneHi[d + 1], layers[d], layerLo[d],
+                    layerHi[d], cone[d]);
+            coneLo[d] = boards.low();
+            coneHi[d] = boards.high();
+        }
+
+        int v = startVertex;
+        int firstEdge = -1;
+        for (int d = 1; d <= depth; d++) {
+            int e = graph.edgeStart(v);
+            while (!MazeBitboards.contains(cone[d], coneLo[d], coneHi[d],
+                    graph.tile(graph.edgeHead(e)))) {
+                e += 1;
+                assert e < graph.edgeEnd(v);
             }
-            for (MazeEdge edge : vertex.outgoingEdges()) {
-                MazeVertex next = edge.head();
-                if (!stepsMap.containsKey(next)) {
-                    if (blocked.contains(next) && !next.equals(start)) {
-                        continue;
-                    }
-                    stepsMap.put(next, steps + 1);
-                    parentEdge.put(next, edge);
-                    queue.add(next);
-                }
+            if (d == 1) {
+                firstEdge = e;
             }
+            v = graph.edgeHead(e);
         }
-        lastParentEdge = parentEdge;
-        return bestTarget;
+        return firstEdge;
     }
 
-    private MazeEdge safestNeighborEdge(MazeVertex start,
-            Map<MazeVertex, Integer> ghostDistanceMap) {
+    /**
+     * Return the edge from `start` toward the neighbor farthest from the chasing ghosts, favoring
+     * food, or null if `start` has no edges.
+     */
+    private MazeEdge safestNeighborEdge(MazeVertex start) {
         MazeEdge best = null;
         double bestScore = Double.NEGATIVE_INFINITY;
         for (MazeEdge edge : start.outgoingEdges()) {
-            MazeVertex next = edge.head();
-            int ghostDistance = ghostDistanceMap.getOrDefault(next, 1000);
-            GameModel.Item item = model.itemAt(next);
+            int t = graph.tile(edge.head().id());
             int foodBonus = 0;
-            if (item == GameModel.Item.DOT) {
+            if (MazeBitboards.contains(dots, t)) {
                 foodBonus = 1;
-            } else if (item == GameModel.Item.PELLET) {
+            } else if (MazeBitboards.contains(pellets, t)) {
                 foodBonus = 3;
             }
-            double score = ghostDistance * 2.0 + foodBonus;
+            double score = ghostDistance(t) * 2.0 + foodBonus;
             if (score > bestScore) {
                 bestScore = score;
                 best = edge;
@@ -210,21 +459,4 @@ public class PacMannAI extends PacMann {
         }
         return best;
     }
-
-    private MazeEdge firstEdgeOnPath(MazeVertex start, MazeVertex target,
-            Map<MazeVertex, MazeEdge> parentEdge) {
-        if (target == null || parentEdge == null) {
-            return null;
-        }
-        MazeVertex current = target;
-        MazeEdge edgeOnPath = null;
-        while (!current.equals(start)) {
-            edgeOnPath = parentEdge.get(current);
-            if (edgeOnPath == null) {
-                return null;
-            }
-            current = edgeOnPath.tail();
-        }
-        return edgeOnPath;
-    }
-}
\ No newline at end of file
+}
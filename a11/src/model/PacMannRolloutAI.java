@@ -0,0 +1,309 @@
+package model;
+
+import graph.CompactMazeGraph;
+import graph.MazeGraph.MazeEdge;
+import graph.MazeGraph.MazeVertex;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import model.GameSnapshot.Outcome;
+import model.Ghost.GhostState;
+
+/**
+ * A PacMann that checks `PacMannAI`'s choices by simulation.  When a chasing ghost is near, it
+ * takes a `GameSnapshot` of the game and plays many short continuations ("rollouts") starting with
+ * each possible move, in parallel on the common `ForkJoinPool`.  It then takes the move whose
+ * rollouts do best on average, keeping `PacMannAI`'s move unless another is clearly better (or
+ * the ghosts have kept PacMann from scoring for too long).
+ * <p>
+ * In the rollouts, ghosts follow their own targeting rules (Clyde's random choices are drawn
+ * afresh in each one), and PacMann wanders towards food without turning back.
+ * Rollouts are played in rounds until the per-decision time budget is spent or `MAX_ROLLOUTS`
+ * have been played for each move.  Rollout `r` of every move uses the same seed, derived from the
+ * game time and PacMann's vertex, so moves are compared under the same ghost choices and a
+ * decision depends only on the game and on how many rounds fit in the budget.
+ */
+public class PacMannRolloutAI extends PacMannAI {
+
+    /**
+     * The default time budget per decision, in ns of wall-clock time.
+     */
+    public static final long DEFAULT_BUDGET_NANOS = 2_000_000;
+
+    /**
+     * How much game time (in ms) each rollout simulates.
+     */
+    private static final double HORIZON = 3000;
+
+    /**
+     * How close (in tiles, ignoring walls) a chasing ghost must be for rollouts to be worthwhile.
+     * Ghosts farther away than they can travel in `HORIZON` cannot catch PacMann in a rollout.
+     */
+    private static final int LOOKAHEAD_TILES = 16;
+
+    /**
+     * How long (in ms of game time) PacMann may go without scoring before rollouts are skipped.
+     * Ghosts can herd a cautious PacMann away from the last few dots indefinitely; once he has
+     * been kept from scoring this long, he follows `PacMannAI` and risks a life instead.
+     */
+    private static final double PATIENCE = 20000;
+
+    /**
+     * How many rollouts of each move are played per round, and at most per decision.
+     */
+    private static final int ROLLOUTS_PER_ROUND = 8;
+    private static final int MAX_ROLLOUTS = 64;
+
+    /**
+     * The most rollouts one fork-join task plays without splitting.
+     */
+    private static final int ROLLOUTS_PER_TASK = 4;
+
+    /**
+     * How a rollout's outcome adds to the points it scored.
+     */
+    private static final double CAUGHT_PENALTY = 3000;
+    private static final double CLEARED_BONUS = 1000;
+
+    /**
+     * How much better (in average rollout value) a move must be to override `PacMannAI`'s choice.
+     */
+    private static final double OVERRIDE_MARGIN = 50;
+
+    private final CompactMazeGraph graph;
+    private final long budgetNanos;
+
+    /**
+     * The value of each rollout of the current decision, with rollout `r` of move `c` at index
+     * `c * MAX_ROLLOUTS + r`.
+     */
+    private final double[] values;
+
+    /**
+     * The ids of the edges PacMann may take from the current decision's vertex.
+     */
+    private final int[] moves;
+
+    /**
+     * The score when PacMann last scored, and the game time at which he did.
+     */
+    private int lastScore;
+    private double lastScoreTime;
+
+    /**
+     * Create a rollout AI for `model` with the default time budget.
+     */
+    public PacMannRolloutAI(GameModel model) {
+        this(model, DEFAULT_BUDGET_NANOS);
+    }
+
+    /**
+     * Create a rollout AI for `model` that spends about `budgetNanos` ns of wall-clock time on each
+     * decision (but always plays at least one round of rollouts).  Requires `budgetNanos >= 0`.
+     */
+    public PacMannRolloutAI(GameModel model, long budgetNanos) {
+        super(model);
+        graph = model.graph().compact();
+        this.budgetNanos = budgetNanos;
+        moves = new int[4];
+        values = new double[moves.length * MAX_ROLLOUTS];
+    }
+
+    @Override
+    public MazeEdge nextEdge() {
+        MazeEdge proposed = super.nextEdge();
+        MazeVertex start = nearestVertex();
+        int numMoves = 0;
+        for (int e = graph.edgeStart(start.id()); e < graph.edgeEnd(start.id()); e++) {
+            moves[numMoves++] = e;
+        }
+        if (model.score() != lastScore) {
+            lastScore = model.score();
+            lastScoreTime = model.time();
+        }
+        if (proposed == null || numMoves < 2 || model.time() - lastScoreTime > PATIENCE
+                || !chaserNearby(start.id())) {
+            return proposed;
+        }
+
+        GameSnapshot root = model.snapshot();
+        long seed = Double.doubleToLongBits(model.time()) * 0x9E3779B97F4A7C15L + start.id();
+        long deadline = System.nanoTime() + budgetNanos;
+        int played = 0;
+        do {
+            ForkJoinPool.commonPool().invoke(new Rollouts(root, numMoves, seed,
+                    played * numMoves, (played + ROLLOUTS_PER_ROUND) * numMoves));
+            played += ROLLOUTS_PER_ROUND;
+        } while (played < MAX_ROLLOUTS && System.nanoTime() < deadline);
+
+        int proposedId = model.graph().edgeId(proposed);
+        int best = proposedId;
+        double proposedValue = Double.NEGATIVE_INFINITY;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int c = 0; c < numMoves; c++) {
+            double total = 0;
+            for (int r = 0; r < played; r++) {
+                total += values[c * MAX_ROLLOUTS + r];
+            }
+            double mean = total / played;
+            if (moves[c] == proposedId) {
+                proposedValue = mean;
+            }
+            if (mean > bestValue) {
+                bestValue = mean;
+                best = moves[c];
+            }
+        }
+        return (bestValue > proposedValue + OVERRIDE_MARGIN) ? model.graph().edge(best) : proposed;
+    }
+
+    /**
+     * Return whether a chasing ghost is within `LOOKAHEAD_TILES` of vertex `v`, allowing for
+     * tunnels.
+     */
+    private boolean chaserNearby(int v) {
+        for (Actor actor : model.actors()) {
+            if (actor instanceof Ghost ghost && ghost.state() == GhostState.CHASE) {
+                int g = ghost.nearestVertex().id();
+                int di = Math.abs(graph.column(g) - graph.column(v));
+                int dj = Math.abs(graph.row(g) - graph.row(v));
+                di = Math.min(di, graph.width() - di);
+                dj = Math.min(dj, graph.height() - dj);
+                if (di + dj <= LOOKAHEAD_TILES) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Plays rollouts `lo..hi-1` of the current decision, where rollout `j` is rollout number
+     * `j / numMoves` of move `j % numMoves`, recording their values in `values`.
+     */
+    private class Rollouts extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient GameSnapshot root;
+        private final int numMoves;
+        private final long seed;
+        private final int lo;
+        private final int hi;
+
+        Rollouts(GameSnapshot root, int numMoves, long seed, int lo, int hi) {
+            this.root = root;
+            this.numMoves = numMoves;
+            this.seed = seed;
+            this.lo = lo;
+            this.hi = hi;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo > ROLLOUTS_PER_TASK) {
+                int mid = (lo + hi) >>> 1;
+                invokeAll(new Rollouts(root, numMoves, seed, lo, mid),
+                        new Rollouts(root, numMoves, seed, mid, hi));
+                return;
+            }
+            GameSnapshot sim = root.copy();
+            Wanderer wanderer = new Wanderer(graph);
+            for (int j = lo; j < hi; j++) {
+                int c = j % numMoves;
+                int r = j / numMoves;
+                sim.copyFrom(root);
+                sim.random().setSeed(seed + r * 0xBF58476D1CE4E5B9L);
+                wanderer.firstEdge = moves[c];
+                sim.step(HORIZON, wanderer);
+                double value = sim.score() - root.score();
+                if (sim.outcome() == Outcome.CAUGHT) {
+                    value -= CAUGHT_PENALTY;
+                } else if (sim.outcome() == Outcome.CLEARED) {
+                    value += CLEARED_BONUS;
+                }
+                values[c * MAX_ROLLOUTS + r] = value;
+            }
+        }
+    }
+
+    /**
+     * Moves PacMann along `firstEdge`, then at random without turning back (unless at a dead end),
+     * preferring edges to vertices with food, or else edges towards the nearest food.
+     */
+    private static class Wanderer implements GameSnapshot.Navigator {
+
+        private final CompactMazeGraph graph;
+
+        /**
+         * The edge to take at the next decision, or -1 to choose at random.
+         */
+        int firstEdge;
+
+        Wanderer(CompactMazeGraph graph) {
+            this.graph = graph;
+            firstEdge = -1;
+        }
+
+        @Override
+        public int nextEdge(GameSnapshot snapshot) {
+            if (firstEdge != -1) {
+                int e = firstEdge;
+                firstEdge = -1;
+                return e;
+            }
+            int v = snapshot.nearestVertex(0);
+            int back = graph.reverseEdge(snapshot.edge(0));
+            int numOptions = 0;
+            int numFood = 0;
+            for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e++) {
+                if (e != back) {
+                    numOptions += 1;
+                    if (snapshot.hasFood(graph.edgeHead(e))) {
+                        numFood += 1;
+                    }
+                }
+            }
+            if (numOptions == 0) {
+                return back;
+            }
+
+            // Without food next door, prefer edges that get closer to the nearest food
+            int target = -1;
+            int numPreferred = numFood;
+            if (numFood == 0) {
+                target = snapshot.nearestFood(v);
+                for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e++) {
+                    if (e != back && target != -1 && approaches(e, target)) {
+                        numPreferred += 1;
+                    }
+                }
+            }
+            boolean preferredOnly = numPreferred > 0;
+            int pick = snapshot.random().nextInt(preferredOnly ? numPreferred : numOptions);
+            for (int e = graph.edgeStart(v); e < graph.edgeEnd(v); e++) {
+                boolean preferred = (numFood > 0) ? snapshot.hasFood(graph.edgeHead(e))
+                        : target != -1 && approaches(e, target);
+                if (e != back && (!preferredOnly || preferred)) {
+                    if (pick == 0) {
+                        return e;
+                    }
+                    pick -= 1;
+                }
+            }
+            throw new AssertionError("unreachable");
+        }
+
+        /**
+         * Return whether edge `e` leads closer to vertex `target`, by Manhattan distance between
+         * tiles (ignoring walls and tunnels).
+         */
+        private boolean approaches(int e, int target) {
+            return manhattan(graph.edgeHead(e), target) < manhattan(graph.edgeTail(e), target);
+        }
+
+        private int manhattan(int v, int w) {
+            return Math.abs(graph.column(v) - graph.column(w))
+                    + Math.abs(graph.row(v) - graph.row(w));
+        }
+    }
+}
@@ -1,7 +1,9 @@
 package model;
 
 import java.awt.Color;
+import java.util.Random;
 import graph.MazeGraph.Direction;
+import graph.MazeGraph.Corner;
 import graph.MazeGraph.MazeVertex;
 import graph.MazeGraph.IPair;
 
@@ -20,22 +22,22 @@ public class Pinky extends Ghost {
     }
 
     @Override
-    protected MazeVertex target() {
-        int width = model.width();
-        if (state() == GhostState.FLEE) {
-            return model.graph().closestTo(width - 3, 2);
+    protected MazeVertex target(BoardView board, GhostState state, MazeVertex position,
+            Random rng) {
+        if (state == GhostState.FLEE) {
+            return board.graph().corner(Corner.TOP_RIGHT);
         }
-        MazeVertex pacMannVertex = model.pacMann().nearestVertex();
+        MazeVertex pacMannVertex = board.pacMannVertex();
         IPair pacMannLocation = pacMannVertex.loc();
         int xCoordinate = pacMannLocation.i();
         int yCoordinate = pacMannLocation.j();
-        Direction facing = model.pacMann().currentEdge().direction();
+        Direction facing = board.pacMannDirection();
         switch (facing) {
             case LEFT -> xCoordinate -= 3;
             case RIGHT -> xCoordinate += 3;
             case UP -> yCoordinate -= 3;
             case DOWN -> yCoordinate += 3;
         }
-        return model.graph().closestTo(xCoordinate, yCoordinate);
+        return board.graph().closestTo(xCoordinate, yCoordinate);
     }
 }
\ No newline at end of file
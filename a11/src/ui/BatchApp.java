@@ -1,11 +1,30 @@
 package ui;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import graph.MazeGraph;
 import model.GameModel;
 import model.GameModel.GameState;
+import model.GamePipeline;
+import model.PacMannRolloutAI;
 import util.Randomness;
 
 /**
  * Run a sequence of non-interactive Pac-Mann games and report final scores and other metrics.
+ * Games can be played concurrently (`threads=<##>`, or `threads=virtual` for one virtual thread
+ * per game); each game is seeded from the base seed and its index, so results do not depend on the
+ * number of threads.  Upcoming games' mazes and graphs are built on background threads (see
+ * `GamePipeline`) while earlier games are played.  `ai=rollout` has PacMann played by
+ * `PacMannRolloutAI` instead of the default `PacMannAI`; its decisions depend on how many rollouts
+ * fit in its time budget, so its results can vary from run to run.  `clusters=<##>` gives each
+ * game's graph a `ClusterHierarchy` with clusters of that many tiles across, which ghosts search
+ * when they cannot look up their paths.
  */
 public class BatchApp {
 
@@ -33,7 +52,42 @@ public class BatchApp {
         return model.state();
     }
 
-    public static void main(String[] args) {
+    /**
+     * The outcome of one game of a batch.
+     */
+    private record GameResult(GameState state, int score, double time, int numLives,
+            long pathRepairs, long pathRecomputes, long pathShares) {
+
+    }
+
+    /**
+     * Play game number `index` (counting from 0) of a batch, taken from `games`, played by
+     * `PacMannRolloutAI` if `rollouts` is true.  Since each game's randomness depends only on its
+     * index, the outcome does not depend on which thread plays it or on what order games are
+     * played in.
+     */
+    private static GameResult playGame(GamePipeline games, boolean rollouts, int index) {
+        GameModel game = games.take(index);
+        if (rollouts) {
+            game.replacePacMann(new PacMannRolloutAI(game));
+        }
+        var controller = new BatchApp(game);
+        controller.play();
+        var model = controller.model();
+        return new GameResult(model.state(), model.score(), model.time(), model.numLives(),
+                model.pathRepairs(), model.pathRecomputes(), model.pathShares());
+    }
+
+    /**
+     * Return an executor that runs tasks on `threads` platform threads, or on a new virtual thread
+     * per task if `threads` is 0.
+     */
+    private static ExecutorService newExecutor(int threads) {
+        return (threads == 0) ? Executors.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(threads);
+    }
+
+    public static void main(String[] args) throws InterruptedException, ExecutionException {
 
         // Default configuration parameters
         int width = 10;
@@ -41,6 +95,16 @@ public class BatchApp {
         int numGames = 20;
         // Default to a different seed every time
         long seed = System.currentTimeMillis();
+        // Number of games to play at once (0 means one virtual thread per game)
+        int threads = 1;
+        // Number of ghosts to add to the usual four (for measuring how the simulation scales)
+        int extraGhosts = 0;
+        // Whether PacMann is played by `PacMannRolloutAI` rather than `PacMannAI`
+        boolean rollouts = false;
+        // Largest next-hop table (in bytes) to build for each game's graph (0 means none)
+        long nextHopBudget = MazeGraph.SMALL_BOARD_NEXT_HOP_BUDGET;
+        // Size (in tiles) of the clusters of each game's graph hierarchy (0 means no hierarchy)
+        int clusterSize = 0;
 
         for (String arg : args) {
             if (arg.startsWith("w=")) {
@@ -57,9 +121,39 @@ public class BatchApp {
                 seed = Long.parseLong(arg.substring(5));
             } else if (arg.startsWith("n=")) {
                 numGames = Integer.parseInt(arg.substring(2));
+            } else if (arg.startsWith("ghosts=")) {
+                extraGhosts = Integer.parseInt(arg.substring(7));
+                if (extraGhosts < 0) {
+                    throw new IllegalArgumentException(
+                            "Number of extra ghosts must not be negative.");
+                }
+            } else if (arg.startsWith("nexthops=")) {
+                nextHopBudget = Long.parseLong(arg.substring(9));
+                if (nextHopBudget < 0) {
+                    throw new IllegalArgumentException(
+                            "Next-hop table budget must not be negative.");
+                }
+            } else if (arg.startsWith("clusters=")) {
+                clusterSize = Integer.parseInt(arg.substring(9));
+                if (clusterSize < 0) {
+                    throw new IllegalArgumentException("Cluster size must not be negative.");
+                }
+            } else if (arg.equals("ai=rollout")) {
+                rollouts = true;
+            } else if (arg.equals("ai=greedy")) {
+                rollouts = false;
+            } else if (arg.equals("threads=virtual")) {
+                threads = 0;
+            } else if (arg.startsWith("threads=")) {
+                threads = Integer.parseInt(arg.substring(8));
+                if (threads < 1) {
+                    throw new IllegalArgumentException("Number of threads must be at least 1.");
+                }
             } else {
                 throw new IllegalArgumentException("Unable to interpret argument: " + arg +
-                        "\n Usage: java BatchApp [h=<##>] [w=<##>] [seed=<##>] [n=<##>]");
+                        "\n Usage: java BatchApp [h=<##>] [w=<##>] [seed=<##>] [n=<##>]" +
+                        " [threads=<##>|virtual] [ghosts=<##>] [ai=greedy|rollout]" +
+                        " [nexthops=<##>] [clusters=<##>]");
             }
         }
 
@@ -67,41 +161,77 @@ public class BatchApp {
         System.out.println("Randomness seed: " + seed);
 
         Randomness randomness = new Randomness(seed);
-        var controller = new BatchApp(null);
-
-        // Track statistics
-        int numWins = 0;
-        int totalScore = 0;
-        int maxScore = 0;
-        long bestSeed = randomness.seed();
-
-        System.out.printf("%4s  %7s  %5s  %8s  %5s\n",
-                "Game", "Result", "Score", "Time [s]", "Lives");
-        for (int i = 0; i < numGames; i += 1) {
-            controller.setModel(GameModel.newGame(width, height, true, randomness));
-            controller.play();
-            var model = controller.model();
-
-            // Update statistics
-            if (model.state() == GameState.VICTORY) {
-                numWins += 1;
-            }
-            totalScore += model.score();
-            if (model.score() > maxScore) {
-                maxScore = model.score();
-                bestSeed = randomness.seed();
+
+        // Track statistics.  Games update these as they finish, in whatever order that happens.
+        LongAdder numWins = new LongAdder();
+        LongAdder totalScore = new LongAdder();
+        LongAdder totalRepairs = new LongAdder();
+        LongAdder totalRecomputes = new LongAdder();
+        LongAdder totalShares = new LongAdder();
+        // The best score is packed into the high bits and the complement of its game's index into
+        // the low bits, so that ties are won by the earliest game, as in a sequential run.
+        LongAccumulator best = new LongAccumulator(Math::max, packBest(0, 0));
+
+        // Mazes and graphs are built in the background, enough games ahead that each player's next
+        // game is usually ready when it finishes one
+        int builders = (threads == 0) ? Runtime.getRuntime().availableProcessors() : threads;
+        int w = width;
+        int h = height;
+        int g = extraGhosts;
+        long b = nextHopBudget;
+        int c = clusterSize;
+        List<Future<GameResult>> results = new ArrayList<>(numGames);
+        try (GamePipeline games = new GamePipeline(randomness, numGames, builders, builders,
+                r -> GameModel.newGame(w, h, true, r, g, b, c));
+                ExecutorService executor = newExecutor(threads)) {
+            for (int i = 0; i < numGames; i += 1) {
+                int index = i;
+                boolean r = rollouts;
+                results.add(executor.submit(() -> {
+                    GameResult result = playGame(games, r, index);
+
+                    // Update statistics
+                    if (result.state() == GameState.VICTORY) {
+                        numWins.increment();
+                    }
+                    totalScore.add(result.score());
+                    totalRepairs.add(result.pathRepairs());
+                    totalRecomputes.add(result.pathRecomputes());
+                    totalShares.add(result.pathShares());
+                    best.accumulate(packBest(result.score(), index));
+                    return result;
+                }));
             }
-            System.out.printf("%4d  %7s  %5d  %8.3f  %5d\n",
-                    i+1, model.state(), model.score(), model.time() / 1000.0, model.numLives());
 
-            randomness = randomness.next();
+            // Report games in order, waiting for each as needed
+            System.out.printf("%4s  %7s  %5s  %8s  %5s\n",
+                    "Game", "Result", "Score", "Time [s]", "Lives");
+            for (int i = 0; i < numGames; i += 1) {
+                GameResult result = results.get(i).get();
+                System.out.printf("%4d  %7s  %5d  %8.3f  %5d\n",
+                        i+1, result.state(), result.score(), result.time() / 1000.0,
+                        result.numLives());
+            }
         }
 
         // Report statistics
+        int maxScore = (int) (best.get() >>> 32);
+        long bestSeed = randomness.advance(0xFFFFFFFFL - (best.get() & 0xFFFFFFFFL)).seed();
         System.out.println();
         System.out.printf("Number of wins: %d / %d (%.1f %%)\n",
-                numWins, numGames, 100.0 * numWins / numGames);
-        System.out.printf("Average score: %.1f\n", (double) totalScore / numGames);
+                numWins.sum(), numGames, 100.0 * numWins.sum() / numGames);
+        System.out.printf("Average score: %.1f\n", (double) totalScore.sum() / numGames);
         System.out.printf("Best score: %d (seed: %d)\n", maxScore, bestSeed);
+        System.out.printf("Ghost paths per game: %.1f repaired, %.1f recomputed, %.1f shared\n",
+                (double) totalRepairs.sum() / numGames, (double) totalRecomputes.sum() / numGames,
+                (double) totalShares.sum() / numGames);
+    }
+
+    /**
+     * Return a value whose order among those for other games is by `score`, then by `index`
+     * descending.  Requires `score >= 0` and `index >= 0`.
+     */
+    private static long packBest(int score, int index) {
+        return ((long) score << 32) | (0xFFFFFFFFL - index);
     }
 }
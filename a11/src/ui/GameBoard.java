@@ -1,28 +1,33 @@
 package ui;
 
-import java.beans.PropertyChangeListener;
 import util.MazeGenerator;
 import java.awt.BasicStroke;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
 import java.awt.geom.Arc2D;
 import java.awt.geom.Ellipse2D;
 import java.awt.geom.Path2D;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
 import model.Actor;
 import model.Actor.DPair;
 import model.GameModel;
+import model.GameSnapshot;
 import model.Ghost;
 import model.Ghost.GhostState;
 import graph.MazeGraph.Direction;
 import graph.MazeGraph.MazeEdge;
-import model.PacMann;
 import util.GameMap;
+import ui.GameLoop.Frame;
 import ui.Tile.TileType;
 
 public class GameBoard extends JPanel {
@@ -49,9 +54,63 @@ public class GameBoard extends JPanel {
     private final boolean showPaths;
 
     /**
-     * Listener to register with model to respond to board state changes.
+     * The color of each actor in its normal state, in actor order.
      */
-    private final PropertyChangeListener boardListener;
+    private Color[] actorColors;
+
+    /**
+     * The most recent frame published by the simulation (from any thread), or null if there is
+     * none yet.
+     */
+    private final AtomicReference<Frame> latestFrame;
+
+    /**
+     * Whether the Event Dispatch Thread has been asked to show `latestFrame` and has not done so
+     * yet.  Keeps a simulation that outpaces painting from flooding the event queue.
+     */
+    private final AtomicBoolean frameUpdatePending;
+
+    /**
+     * The frame that is drawn on the board (touched only on the Event Dispatch Thread), or null if
+     * there is none yet.
+     */
+    private transient Frame shownFrame;
+
+    /**
+     * How long each call to `paintComponent()` takes.
+     */
+    private final transient TimingHistogram paintTimes;
+
+    /**
+     * The tiles of the maze, pre-rendered at `backgroundTileDim` pixels per tile (times the device
+     * scale `backgroundScale`), or null if they need rendering.  The maze never changes during a
+     * game, so each frame only has to copy the part of this image it repaints.
+     */
+    private transient BufferedImage background;
+    private int backgroundTileDim;
+    private double backgroundScale;
+
+    /**
+     * How far (in pixels) the background image extends beyond the board on each side, to hold the
+     * parts of wall outlines that overhang it.
+     */
+    private static final int BACKGROUND_MARGIN = 2;
+
+    /**
+     * The size (in tiles) of an actor's bounding box.
+     */
+    private static final double ACTOR_SIZE = 1.5;
+
+    /**
+     * How far (in tiles) an actor may have moved between frames for the region between its old
+     * and new boxes to be repainted as one rectangle.  Farther moves are jumps.
+     */
+    private static final double MAX_SWEPT_DISTANCE = 3;
+
+    /**
+     * A shape reused for drawing every dot and pellet.
+     */
+    private final Ellipse2D.Double itemShape = new Ellipse2D.Double();
 
     /**
      * Construct a new GameBoard panel.
@@ -68,22 +127,38 @@ public class GameBoard extends JPanel {
             }
         });
 
-        boardListener = e -> repaint();
+        latestFrame = new AtomicReference<>();
+        frameUpdatePending = new AtomicBoolean();
+        paintTimes = new TimingHistogram("Frame paint time");
 
         this.showPaths = showPaths;
     }
 
     /**
-     * Reassigns this board to visualize the given `newModel`.
+     * Return the histogram of how long painting this board takes.
      */
-    public void setModel(GameModel newModel) {
-        if (model != null) {
-            model.removePropertyChangeListener("board_state", boardListener);
-        }
+    public TimingHistogram paintTimes() {
+        return paintTimes;
+    }
 
+    /**
+     * Reassigns this board to visualize the given `newModel`.  Only the maze and the actors'
+     * colors are read from the model; what moves is drawn from the frames passed to `showFrame()`.
+     * Must not be called while the old model's frames may still be published.
+     */
+    public void setModel(GameModel newModel) {
         this.model = newModel;
         if (model != null) {
-            model.addPropertyChangeListener("board_state", boardListener);
+            int numActors = 0;
+            for (Actor ignored : model.actors()) {
+                numActors += 1;
+            }
+            actorColors = new Color[numActors];
+            int k = 0;
+            for (Actor actor : model.actors()) {
+                actorColors[k] = (actor instanceof Ghost ghost) ? ghost.color() : Color.YELLOW;
+                k += 1;
+            }
 
             int width = model.width();
             int height = model.height();
@@ -102,11 +177,140 @@ public class GameBoard extends JPanel {
             setPreferredSize(new Dimension(PREFERRED_TILE_SIZE * tileGrid.length,
                     PREFERRED_TILE_SIZE * tileGrid[0].length));
         }
+        background = null;
+        latestFrame.set(null);
+        shownFrame = null;
         repaint();
     }
 
+    /**
+     * Show `frame` of the current model's game on this board.  May be called from any thread; the
+     * board is updated later on the Event Dispatch Thread, skipping any frames that were replaced
+     * before it got to them.
+     */
+    public void showFrame(Frame frame) {
+        latestFrame.set(frame);
+        if (frameUpdatePending.compareAndSet(false, true)) {
+            SwingUtilities.invokeLater(this::updateShownFrame);
+        }
+    }
+
+    /**
+     * Replace the frame that is drawn with the latest one, and request a repaint of what changed.
+     */
+    private void updateShownFrame() {
+        frameUpdatePending.set(false);
+        Frame next = latestFrame.get();
+        if (next == null || next == shownFrame) {
+            return;
+        }
+        Frame previous = shownFrame;
+        shownFrame = next;
+        repaintActors(previous, next);
+    }
+
+    /**
+     * Return the size (in pixels) of a tile when the board is drawn as large as fits.
+     */
+    private int tileDim() {
+        Dimension size = getSize();
+        return Math.min(size.width / tileGrid.length, size.height / tileGrid[0].length);
+    }
+
+    /**
+     * Request a repaint of the parts of the board that actors moved through between frames
+     * `previous` and `next`.  Repaints everything if paths are shown, since those can change
+     * anywhere, and if frames were skipped or an actor jumped, since the actors may then have
+     * eaten items outside the boxes they moved between.
+     */
+    private void repaintActors(Frame previous, Frame next) {
+        int tileDim = tileDim();
+        if (showPaths || tileDim == 0 || previous == null
+                || next.state().time() - previous.state().time() > 1.5 * GameFrame.FRAME_DURATION) {
+            repaint();
+            return;
+        }
+        GameSnapshot before = previous.state();
+        GameSnapshot after = next.state();
+        for (int k = 0; k < after.actorCount(); k++) {
+            DPair oldBox = before.boundingBoxUL(k);
+            DPair newBox = after.boundingBoxUL(k);
+            if (Math.abs(newBox.i() - oldBox.i()) + Math.abs(newBox.j() - oldBox.j())
+                    > MAX_SWEPT_DISTANCE) {
+                // A jump, such as through a tunnel or back to the start
+                repaint();
+                return;
+            }
+        }
+
+        // Swing merges these requests into one region, but it only grows as far as the actors go
+        int hOffset = (getWidth() - tileDim * tileGrid.length) / 2;
+        int vOffset = (getHeight() - tileDim * tileGrid[0].length) / 2;
+        for (int k = 0; k < after.actorCount(); k++) {
+            // An actor's old and new boxes are all that change when it moves (including any item
+            //  it eats on the way)
+            DPair oldBox = before.boundingBoxUL(k);
+            DPair newBox = after.boundingBoxUL(k);
+            repaintTiles(Math.min(oldBox.i(), newBox.i()), Math.min(oldBox.j(), newBox.j()),
+                    Math.abs(newBox.i() - oldBox.i()) + ACTOR_SIZE,
+                    Math.abs(newBox.j() - oldBox.j()) + ACTOR_SIZE, tileDim, hOffset, vOffset);
+        }
+    }
+
+    /**
+     * Request a repaint of the `width` x `height` region with upper-left corner `(i, j)` (in
+     * tiles), given the board's current tile size and offsets (in pixels).
+     */
+    private void repaintTiles(double i, double j, double width, double height, int tileDim,
+            int hOffset, int vOffset) {
+        // Pad by a pixel to cover antialiasing and strokes that stray past the region
+        int x = (int) Math.floor(hOffset + i * tileDim) - 1;
+        int y = (int) Math.floor(vOffset + j * tileDim) - 1;
+        int w = (int) Math.ceil(width * tileDim) + 3;
+        int h = (int) Math.ceil(height * tileDim) + 3;
+        repaint(x, y, w, h);
+    }
+
+    /**
+     * Return the maze's tiles rendered at `tileDim` pixels per tile on a device that scales
+     * graphics by `deviceScale`, reusing the previous rendering if it is still valid.
+     */
+    private BufferedImage background(int tileDim, double deviceScale) {
+        if (background == null || backgroundTileDim != tileDim
+                || backgroundScale != deviceScale) {
+            int width = (int) Math.ceil((tileDim * tileGrid.length + 2 * BACKGROUND_MARGIN)
+                    * deviceScale);
+            int height = (int) Math.ceil((tileDim * tileGrid[0].length + 2 * BACKGROUND_MARGIN)
+                    * deviceScale);
+            background = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D g2 = background.createGraphics();
+            g2.scale(deviceScale, deviceScale);
+            g2.translate(BACKGROUND_MARGIN, BACKGROUND_MARGIN);
+            g2.scale(tileDim, tileDim);
+            g2.setStroke(new BasicStroke(3.0f / tileDim));
+            for (Tile[] row : tileGrid) {
+                for (Tile tile : row) {
+                    tile.paint(g2);
+                }
+            }
+            g2.dispose();
+            backgroundTileDim = tileDim;
+            backgroundScale = deviceScale;
+        }
+        return background;
+    }
+
     @Override
     public void paintComponent(Graphics g) {
+        long start = System.nanoTime();
+        paintBoard(g);
+        paintTimes.record(System.nanoTime() - start);
+    }
+
+    /**
+     * Paint the maze and the shown frame onto `g`.
+     */
+    private void paintBoard(Graphics g) {
         super.paintComponent(g);
 
         Graphics2D g2 = (Graphics2D) g;
@@ -117,74 +321,91 @@ public class GameBoard extends JPanel {
 
         // Determine the largest fitting tile size, then shift coordinates so that board will be
         //  centered.  Scaling allows shapes to be defined using normalized coordinates.
-        int tileDim = Math.min(size.width / gridWidth, size.height / gridHeight);
+        int tileDim = tileDim();
+        if (tileDim == 0) {
+            return;
+        }
         int hOffset = size.width - tileDim * gridWidth;
         int vOffset = size.height - tileDim * gridHeight;
         g2.translate(hOffset / 2, vOffset / 2);
-        g2.scale(tileDim, tileDim);
 
-        g2.setStroke(new BasicStroke(3.0f / tileDim));
-        // background tiles
-        for (Tile[] row : tileGrid) {
-            for (Tile tile : row) {
-                tile.paint(g2);
-            }
-        }
+        // background tiles, copied from their pre-rendered image (only within the clip)
+        double deviceScale = g2.getTransform().getScaleX();
+        g2.drawImage(background(tileDim, deviceScale), -BACKGROUND_MARGIN, -BACKGROUND_MARGIN,
+                tileDim * gridWidth + 2 * BACKGROUND_MARGIN,
+                tileDim * gridHeight + 2 * BACKGROUND_MARGIN, null);
 
-        paintItems(g2);
+        // The tiles that overlap the region being repainted
+        Rectangle clip = g2.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, tileDim * gridWidth, tileDim * gridHeight);
+        }
+        int minI = Math.max(0, clip.x / tileDim - 1);
+        int minJ = Math.max(0, clip.y / tileDim - 1);
+        int maxI = Math.min(gridWidth - 1, (clip.x + clip.width) / tileDim + 1);
+        int maxJ = Math.min(gridHeight - 1, (clip.y + clip.height) / tileDim + 1);
 
-        // actors
-        for (Actor actor : model.actors()) {
-            if (actor instanceof PacMann player) {
-                paintPacMann(player, g2);
+        g2.scale(tileDim, tileDim);
+        g2.setStroke(new BasicStroke(3.0f / tileDim));
 
-                g2.setColor(Color.YELLOW);
-            } else if (actor instanceof Ghost ghost) {
-                paintGhost(ghost, g2);
+        Frame frame = shownFrame;
+        if (frame == null) {
+            return;
+        }
+        paintItems(g2, frame.state(), minI, minJ, maxI, maxJ);
 
-                g2.setColor(ghost.color());
+        // actors (PacMann first)
+        for (int k = 0; k < frame.state().actorCount(); k++) {
+            if (k == 0) {
+                paintPacMann(frame.state(), g2);
             } else {
-                throw new RuntimeException("Cannot paint unknown actor " + actor);
+                paintGhost(frame.state(), k, g2);
             }
-            if (showPaths) {
-                paintPath(g2, actor.guidancePath());
+            g2.setColor(actorColors[k]);
+            if (frame.paths() != null) {
+                paintPath(g2, frame.paths().get(k));
             }
         }
     }
 
     /**
-     * Draws the dots and pellets and center them on their respective tiles.
+     * Draws the dots and pellets of `state` on the tiles `minI..maxI` x `minJ..maxJ` and center
+     * them on their respective tiles.
      */
-    private void paintItems(Graphics2D g2) {
-        if (model == null) {
-            return;
-        }
+    private void paintItems(Graphics2D g2, GameSnapshot state, int minI, int minJ, int maxI,
+            int maxJ) {
         g2.setColor(Color.WHITE);
-        for (graph.MazeGraph.MazeVertex v : model.graph().vertices()) {
-            GameModel.Item item = model.itemAt(v);
-            if (item == GameModel.Item.NONE) {
-                continue;
+        for (int j = minJ; j <= maxJ; j++) {
+            for (int i = minI; i <= maxI; i++) {
+                int v = state.graph().compact().vertexAt(i, j);
+                if (v < 0) {
+                    continue;
+                }
+                GameModel.Item item = state.itemAt(v);
+                if (item == GameModel.Item.NONE) {
+                    continue;
+                }
+                double diameter = (item == GameModel.Item.PELLET) ? 0.7 : 0.3;
+                double radius = diameter / 2.0;
+                double centerX = i + 0.5;
+                double centerY = j + 0.5;
+                double coordinateX = centerX - radius;
+                double coordinateY = centerY - radius;
+                itemShape.setFrame(coordinateX, coordinateY, diameter, diameter);
+                g2.fill(itemShape);
             }
-            double diameter = (item == GameModel.Item.PELLET) ? 0.7 : 0.3;
-            double radius = diameter / 2.0;
-            var location = v.loc();
-            double centerX = location.i() + 0.5;
-            double centerY = location.j() + 0.5;
-            double coordinateX = centerX - radius;
-            double coordinateY = centerY - radius;
-            g2.fill(new Ellipse2D.Double(coordinateX, coordinateY, diameter, diameter));
         }
     }
 
     /**
-     * Draws Pac-Mann at his current location facing in his current direction on the game board.
+     * Draws Pac-Mann at his location in `state` facing in his direction there on the game board.
      */
-    public void paintPacMann(PacMann player, Graphics2D g2) {
+    public void paintPacMann(GameSnapshot state, Graphics2D g2) {
         g2.setColor(Color.YELLOW);
 
-        DPair bb = player.getBoundingBoxUL();
+        DPair bb = state.boundingBoxUL(0);
 
-        int startAngle = switch (player.currentEdge().direction()) {
+        int startAngle = switch (state.direction(0)) {
             case Direction.LEFT -> 210;
             case Direction.RIGHT -> 30;
             case Direction.UP -> 120;
@@ -195,13 +416,15 @@ public class GameBoard extends JPanel {
     }
 
     /**
-     * Draws the given `ghost` at its current location in its current state on the game board.
+     * Draws ghost `k` of `state` at its location there in its state there on the game board.
      */
-    public void paintGhost(Ghost ghost, Graphics2D g2) {
+    public void paintGhost(GameSnapshot state, int k, Graphics2D g2) {
+        GhostState ghostState = state.ghostState(k);
+        Direction direction = state.direction(k);
 
         // body
-        g2.setColor(ghostColor(ghost));
-        DPair bb = ghost.getBoundingBoxUL();
+        g2.setColor(ghostColor(state, k));
+        DPair bb = state.boundingBoxUL(k);
         double i = bb.i();
         double j = bb.j();
         g2.fill(new Arc2D.Double(i + 0.1, j, 1.3, 1.3, 0, 180, Arc2D.PIE));
@@ -219,13 +442,13 @@ public class GameBoard extends JPanel {
         g2.fill(ghostBottom);
 
         // eye whites
-        g2.setColor(ghost.state() == GhostState.FLEE ? ghost.color() : Color.WHITE);
-        double eyeX = i + switch (ghost.currentEdge().direction()) {
+        g2.setColor(ghostState == GhostState.FLEE ? actorColors[k] : Color.WHITE);
+        double eyeX = i + switch (direction) {
             case Direction.LEFT -> 0.2;
             case Direction.RIGHT -> 0.4;
             default -> 0.3;
         };
-        double eyeY = j + switch (ghost.currentEdge().direction()) {
+        double eyeY = j + switch (direction) {
             case Direction.UP -> 0.2;
             case Direction.DOWN -> 0.4;
             default -> 0.3;
@@ -236,12 +459,12 @@ public class GameBoard extends JPanel {
 
         // pupils
         g2.setColor(Color.BLUE);
-        double pupilX = i + switch (ghost.currentEdge().direction()) {
+        double pupilX = i + switch (direction) {
             case Direction.LEFT -> 0.2;
             case Direction.RIGHT -> 0.55;
             default -> 0.375;
         };
-        double pupilY = j + switch (ghost.currentEdge().direction()) {
+        double pupilY = j + switch (direction) {
             case Direction.UP -> 0.2;
             case Direction.DOWN -> 0.65;
             default -> 0.425;
@@ -251,8 +474,8 @@ public class GameBoard extends JPanel {
         g2.fill(new Ellipse2D.Double(pupilX + 0.5, pupilY, 0.25, 0.25));
 
         // scared mouth (during FLEE)
-        if (ghost.state() == GhostState.FLEE) {
-            g2.setColor(ghost.color());
+        if (ghostState == GhostState.FLEE) {
+            g2.setColor(actorColors[k]);
             Path2D.Double mouth = new Path2D.Double();
             mouth.moveTo(i + 0.25, j + 1.075);
             mouth.lineTo(i + 0.35, j + 1.15);
@@ -266,16 +489,16 @@ public class GameBoard extends JPanel {
     }
 
     /**
-     * Returns the color that the given `ghost` should be drawn, based on its current state.
+     * Returns the color that ghost `k` should be drawn, based on its state in `state`.
      */
-    private Color ghostColor(Ghost ghost) {
-        if (ghost.state() != GhostState.FLEE) {
-            return ghost.color();
+    private Color ghostColor(GameSnapshot state, int k) {
+        if (state.ghostState(k) != GhostState.FLEE) {
+            return actorColors[k];
         }
-        if (ghost.fleeTimeRemaining() > 2000) {
+        if (state.fleeTimeRemaining(k) > 2000) {
             return Color.BLUE;
         }
-        int blinks = (int) ghost.fleeTimeRemaining() / 500;
+        int blinks = (int) state.fleeTimeRemaining(k) / 500;
         return (blinks % 2 == 0) ? Color.BLUE : Color.WHITE;
     }
 
@@ -5,25 +5,29 @@ import java.awt.Color;
 import java.awt.event.HierarchyEvent;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.beans.PropertyChangeListener;
 import java.util.function.Consumer;
-import java.util.function.Supplier;
 import javax.swing.JButton;
 import javax.swing.JFrame;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.SwingConstants;
-import javax.swing.Timer;
+import javax.swing.SwingUtilities;
 import javax.swing.border.EmptyBorder;
 import model.GameModel;
+import model.GamePipeline;
 import util.Randomness;
+import graph.MazeGraph;
 import graph.MazeGraph.Direction;
 import javax.swing.JOptionPane;
 
 /**
  * A window that allows playing an interactive game of PacMann.  Consists of a score/lives label,
  * buttons for pausing the current game and creating a new game, and a game board view that supports
- * keyboard input.
+ * keyboard input.  Each game is simulated on its own thread by a `GameLoop`; when the window is
+ * closed, histograms of how long simulation steps and board paints took are printed.
  */
 public class GameFrame extends JFrame implements KeyListener {
 
@@ -46,15 +50,30 @@ public class GameFrame extends JFrame implements KeyListener {
     private PlayState state;
 
     /**
-     * Creates new random game models with the parameters passed to the `GameFrame` constructor.
+     * How many games past the current one are built in the background, so that starting a new
+     * game does not have to wait for its maze and graph.
      */
-    private final Supplier<GameModel> modelBuilder;
+    private static final int PREFETCHED_GAMES = 1;
+
+    /**
+     * Creates new random game models with the parameters passed to the `GameFrame` constructor,
+     * building the next ones while the current one is played.
+     */
+    private final GamePipeline modelBuilder;
 
     /**
      * The state and logic of the current game being played in this window.
      */
     private GameModel model;
 
+    /**
+     * The current game's score and remaining lives, as of the latest "score" and "lives" events
+     * handled on the Event Dispatch Thread.  The model itself is mutated by its simulation thread,
+     * so the EDT reads these copies instead.
+     */
+    private int score;
+    private int numLives;
+
     /* ****************************************************************
      * Fields for the application's view                              *
      ******************************************************************/
@@ -75,9 +94,20 @@ public class GameFrame extends JFrame implements KeyListener {
     public static final int FRAME_DURATION = 16; // milliseconds
 
     /**
-     * Fires events at a regular interval to signal the drawing of the next frame
+     * Whether to render actors' "guidance paths" for debugging purposes.
+     */
+    private final boolean showPaths;
+
+    /**
+     * Advances the current game at a regular interval, off the Event Dispatch Thread, and hands
+     * the board a frame to draw after each step.
      */
-    private final Timer timer;
+    private transient GameLoop loop;
+
+    /**
+     * How long the simulation steps of all games played in this window took.
+     */
+    private final transient TimingHistogram stepTimes;
 
     /**
      * Used to update the score label in response to a change in the score/life count in the model.
@@ -103,28 +133,36 @@ public class GameFrame extends JFrame implements KeyListener {
     public GameFrame(int width, int height, boolean withAI, boolean showPaths, long seed) {
         super("PacMann");
         setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
-        timer = new Timer(FRAME_DURATION, e -> model.updateActors(FRAME_DURATION));
+        this.showPaths = showPaths;
+        stepTimes = new TimingHistogram("Simulation step time");
         initializeComponentHierarchy(showPaths);
         gameBoard.requestFocusInWindow(); // Give the game board keyboard focus
 
-        // set up model
-        final Randomness[] randomness = {new Randomness(seed)};
-        // Here, we use this "array trick" to capture the `Randomness` object within the lambda.
-        // We don't need the `Randomness` to be a field accessible elsewhere within this class.
-        modelBuilder = () -> {
-            randomness[0] = randomness[0].next();
-            return GameModel.newGame(width, height, withAI, randomness[0]);
-        };
+        // set up model; game k (counting from 1) uses the kth source of randomness after `seed`
+        modelBuilder = new GamePipeline(new Randomness(seed).next(), Integer.MAX_VALUE,
+                PREFETCHED_GAMES, 1,
+                randomness -> GameModel.newGame(width, height, withAI, randomness, 0,
+                        MazeGraph.SMALL_BOARD_NEXT_HOP_BUDGET));
         newGame();
 
         // Auto-pause when window is hidden/closed
         addHierarchyListener((HierarchyEvent e) -> {
             if (((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0)
                     && !isShowing() && state == PlayState.RUNNING) {
-                timer.stop();
                 updatePlayState.accept(PlayState.PAUSED);
             }
         });
+
+        // Stop the simulation and report timings when the window is closed
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosed(WindowEvent e) {
+                loop.shutdown();
+                modelBuilder.close();
+                System.out.print(stepTimes);
+                System.out.print(gameBoard.paintTimes());
+            }
+        });
         pack();
     }
 
@@ -164,8 +202,14 @@ public class GameFrame extends JFrame implements KeyListener {
         scoreLabel.setBackground(Color.BLACK);
         scoreLabel.setForeground(Color.WHITE);
         scoreLabel.setFont(scoreLabel.getFont().deriveFont(30.0f));
-        updateScoreLabel = e -> scoreLabel.setText(
-                "Score: " + model.score() + "  |  Lives: " + model.numLives());
+        updateScoreLabel = e -> {
+            if (e != null && e.getPropertyName().equals("score")) {
+                score = (Integer) e.getNewValue();
+            } else if (e != null && e.getPropertyName().equals("lives")) {
+                numLives = (Integer) e.getNewValue();
+            }
+            scoreLabel.setText("Score: " + score + "  |  Lives: " + numLives);
+        };
         return scoreLabel;
     }
 
@@ -177,10 +221,7 @@ public class GameFrame extends JFrame implements KeyListener {
         JButton newGameButton = new JButton("New game");
         newGameButton.setFont(newGameButton.getFont().deriveFont(20.0f));
         newGameButton.setRequestFocusEnabled(false);
-        newGameButton.addActionListener(e -> {
-            timer.stop();
-            newGame();
-        });
+        newGameButton.addActionListener(e -> newGame());
         return newGameButton;
     }
 
@@ -196,10 +237,12 @@ public class GameFrame extends JFrame implements KeyListener {
         playPauseButton.addActionListener(e -> processStartPause());
         updatePlayState = (newState) -> {
             state = newState;
-            if (state == PlayState.RUNNING) {
-                timer.start();
-            } else {
-                timer.stop();
+            if (loop != null) {
+                if (state == PlayState.RUNNING) {
+                    loop.resume();
+                } else {
+                    loop.pause();
+                }
             }
             playPauseButton.setText(switch (state) {
                 case PlayState.LIFESTART -> "Start";
@@ -230,29 +273,50 @@ public class GameFrame extends JFrame implements KeyListener {
         updatePlayState.accept(PlayState.LIFESTART);
 
         if (model != null) {
+            loop.shutdown(); // the old model is no longer touched by its simulation thread
             model.removeAllPropertyChangeListeners(); // clean up stale listeners in old model
         }
 
         model = modelBuilder.get(); // generate new random model
         gameBoard.setModel(model); // update board to use new game model
-
-        model.addPropertyChangeListener("score", updateScoreLabel);
-        model.addPropertyChangeListener("lives", updateScoreLabel);
+        // No simulation thread has touched the new model yet, so it is safe to read here
+        score = model.score();
+        numLives = model.numLives();
+
+        // The model notifies its observers on the simulation thread
+        GameModel game = model;
+        model.addPropertyChangeListener("score", onEdt(game, updateScoreLabel));
+        model.addPropertyChangeListener("lives", onEdt(game, updateScoreLabel));
         updateScoreLabel.propertyChange(null); // initialize score label
 
         // Listen for changes that are made to the game_state
-        model.addPropertyChangeListener("game_state", e -> {
+        model.addPropertyChangeListener("game_state", onEdt(game, e -> {
             GameModel.GameState newState = (GameModel.GameState) e.getNewValue();
 
-            // If the GameState is not PLAYING, then stop the timer
+            // If the GameState is not PLAYING, then the loop has already paused itself.  The events
+            // of the final score and lives were queued before this one, so `score` is final.
             if (newState != GameModel.GameState.PLAYING) {
-                timer.stop();
                 switch (newState) {
                     case VICTORY -> showWinMessage();
                     case DEFEAT -> showLoseMessage();
                     default -> updatePlayState.accept(PlayState.LIFESTART);
                 }
             }
+        }));
+
+        loop = new GameLoop(model, showPaths, gameBoard::showFrame, stepTimes);
+        loop.start();
+    }
+
+    /**
+     * Return a listener that has `listener` handle each event on the Event Dispatch Thread, unless
+     * `game` is no longer the current game by then.
+     */
+    private PropertyChangeListener onEdt(GameModel game, PropertyChangeListener listener) {
+        return e -> SwingUtilities.invokeLater(() -> {
+            if (model == game) {
+                listener.propertyChange(e);
+            }
         });
     }
 
@@ -260,7 +324,7 @@ public class GameFrame extends JFrame implements KeyListener {
      * Show a modal dialog indicating that the current game has been won.
      */
     private void showWinMessage() {
-        String message = "You won!\nFinal score: " + model.score();
+        String message = "You won!\nFinal score: " + score;
         JOptionPane.showMessageDialog(this, message, "Victory!", JOptionPane.INFORMATION_MESSAGE);
         newGame();
     }
@@ -269,7 +333,7 @@ public class GameFrame extends JFrame implements KeyListener {
      * Show a modal dialog indicating that the current game has been lost.
      */
     private void showLoseMessage() {
-        String message = "Uh-oh. You lost!\nFinal score: " + model.score();
+        String message = "Uh-oh. You lost!\nFinal score: " + score;
         JOptionPane.showMessageDialog(this, message, "Defeat", JOptionPane.WARNING_MESSAGE);
         newGame();
     }
@@ -298,7 +362,7 @@ public class GameFrame extends JFrame implements KeyListener {
             }
         }
         if (command != null) {
-            model.updatePlayerCommand(command);
+            loop.submitCommand(command);
             if (state == PlayState.PAUSED || state == PlayState.LIFESTART) {
                 updatePlayState.accept(PlayState.RUNNING);
             }
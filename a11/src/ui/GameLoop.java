@@ -0,0 +1,209 @@
+package ui;
+
+import graph.MazeGraph.Direction;
+import graph.MazeGraph.MazeEdge;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import model.Actor;
+import model.GameModel;
+import model.GameModel.GameState;
+import model.GameSnapshot;
+
+/**
+ * Runs a game's simulation on its own thread, so that slow AI decisions do not hold up painting
+ * or input on the Event Dispatch Thread.  While running, the loop advances the game by
+ * `GameFrame.FRAME_DURATION` ms of game time every `FRAME_DURATION` ms of wall-clock time, and
+ * after each step publishes a `Frame` holding a snapshot of the game to a consumer (such as
+ * `GameBoard.showFrame()`).  Steps are always the same length, so a game plays out the same way
+ * however long its steps take; if the simulation falls behind, the game slows down rather than
+ * taking larger steps.
+ * <p>
+ * Only the simulation thread touches the model once the loop has been created.  Other threads
+ * pass in player commands with `submitCommand()`, which leaves them in a one-slot mailbox that the
+ * simulation reads before its next step.  The model's observers are notified on the simulation
+ * thread, so Swing observers must hand their work to the Event Dispatch Thread.  The loop pauses
+ * itself whenever a step leaves the game in a state other than PLAYING.
+ */
+public class GameLoop {
+
+    /**
+     * What the simulation looked like after a step: a snapshot of the game, which no one steps,
+     * and the actors' guidance paths (in actor order) if they were requested, or else null.
+     */
+    public record Frame(GameSnapshot state, List<List<MazeEdge>> paths) {
+
+    }
+
+    /**
+     * The wall-clock time (in ns) between steps.
+     */
+    private static final long STEP_NANOS = TimeUnit.MILLISECONDS.toNanos(
+            GameFrame.FRAME_DURATION);
+
+    /**
+     * How many steps the simulation may fall behind schedule before it gives up catching up.
+     */
+    private static final int MAX_STEPS_BEHIND = 4;
+
+    private final GameModel model;
+
+    /**
+     * Whether to include guidance paths in frames.
+     */
+    private final boolean withPaths;
+
+    /**
+     * Receives each frame as it is published, on the simulation thread.
+     */
+    private final Consumer<Frame> publisher;
+
+    /**
+     * The most recent direction commanded by the player that the simulation has not yet applied,
+     * or null if there is none.
+     */
+    private final AtomicReference<Direction> pendingCommand;
+
+    /**
+     * How long each step of the simulation takes, in wall-clock time.
+     */
+    private final TimingHistogram stepTimes;
+
+    /**
+     * The simulation thread, or null until `start()` is called.
+     */
+    private Thread thread;
+
+    /**
+     * Whether the game should be advancing, and whether the loop has been shut down.  Changes to
+     * either are followed by unparking `thread`.
+     */
+    private volatile boolean running;
+    private volatile boolean stopped;
+
+    /**
+     * Create a paused simulation loop for `model`, publishing frames to `publisher` and recording
+     * step times in `stepTimes`.  Frames include guidance paths if `withPaths` is true.  Publishes
+     * a frame of the game's current state before returning.  The simulation thread is not
+     * created until `start()` is called.
+     */
+    public GameLoop(GameModel model, boolean withPaths, Consumer<Frame> publisher,
+            TimingHistogram stepTimes) {
+        this.model = model;
+        this.withPaths = withPaths;
+        this.publisher = publisher;
+        this.stepTimes = stepTimes;
+        pendingCommand = new AtomicReference<>();
+        publish();
+    }
+
+    /**
+     * Start the simulation thread, still paused.  Must be called once, before any other method
+     * that controls the simulation.
+     */
+    public void start() {
+        assert thread == null;
+        thread = new Thread(this::run, "PacMann simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Start (or continue) advancing the game.
+     */
+    public void resume() {
+        running = true;
+        LockSupport.unpark(thread);
+    }
+
+    /**
+     * Stop advancing the game after the current step.
+     */
+    public void pause() {
+        running = false;
+    }
+
+    /**
+     * Have the simulation apply player command `d` before its next step, replacing any command it
+     * has not applied yet.
+     */
+    public void submitCommand(Direction d) {
+        pendingCommand.set(d);
+    }
+
+    /**
+     * Stop the simulation for good, waiting for its current step (if any) to finish.  The model
+     * may be used by the calling thread afterwards.
+     */
+    public void shutdown() {
+        running = false;
+        stopped = true;
+        LockSupport.unpark(thread);
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * The simulation thread's loop: step on schedule while running, and otherwise wait.
+     */
+    private void run() {
+        long nextStep = 0;
+        boolean wasRunning = false;
+        while (!stopped) {
+            if (!running) {
+                wasRunning = false;
+                LockSupport.park(this);
+                continue;
+            }
+            long now = System.nanoTime();
+            if (!wasRunning || now - nextStep > MAX_STEPS_BEHIND * STEP_NANOS) {
+                // Just (re)started, or too far behind to catch up: restart the schedule from now
+                nextStep = now;
+                wasRunning = true;
+            }
+            if (now - nextStep < 0) {
+                LockSupport.parkNanos(this, nextStep - now);
+                continue;
+            }
+
+            Direction command = pendingCommand.getAndSet(null);
+            if (command != null) {
+                model.updatePlayerCommand(command);
+            }
+            long start = System.nanoTime();
+            model.updateActors(GameFrame.FRAME_DURATION);
+            stepTimes.record(System.nanoTime() - start);
+            if (model.state() != GameState.PLAYING) {
+                running = false;
+            }
+            publish();
+            nextStep += STEP_NANOS;
+        }
+    }
+
+    /**
+     * Hand a frame of the game's current state to the publisher.
+     */
+    private void publish() {
+        List<List<MazeEdge>> paths = null;
+        if (withPaths) {
+            paths = new ArrayList<>();
+            for (Actor actor : model.actors()) {
+                paths.add(List.copyOf(actor.guidancePath()));
+            }
+        }
+        publisher.accept(new Frame(model.snapshot(), paths));
+    }
+}
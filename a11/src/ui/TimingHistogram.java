@@ -0,0 +1,93 @@
+package ui;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts how long some repeated piece of work (painting a frame, simulating a step) takes, in
+ * buckets whose bounds double from 1 microsecond up.  Durations may be recorded by one thread
+ * while another reads or prints the counts; recording takes one atomic increment and never blocks.
+ */
+public final class TimingHistogram {
+
+    /**
+     * The number of buckets.  Bucket `b > 0` counts durations of at least `2^(b-1)` us and less
+     * than `2^b` us; bucket 0 counts anything under 1 us, and the last bucket anything longer.
+     */
+    private static final int NUM_BUCKETS = 24;
+
+    /**
+     * What is being timed, for printing.
+     */
+    private final String name;
+
+    private final AtomicLongArray counts;
+
+    /**
+     * Create an empty histogram of the durations of `name`.
+     */
+    public TimingHistogram(String name) {
+        this.name = name;
+        counts = new AtomicLongArray(NUM_BUCKETS);
+    }
+
+    /**
+     * Count one occurrence lasting `nanos` ns.
+     */
+    public void record(long nanos) {
+        long micros = Math.max(nanos / 1000, 0);
+        int bucket = Math.min(64 - Long.numberOfLeadingZeros(micros), NUM_BUCKETS - 1);
+        counts.incrementAndGet(bucket);
+    }
+
+    /**
+     * Return the number of durations recorded.
+     */
+    public long count() {
+        long total = 0;
+        for (int b = 0; b < NUM_BUCKETS; b++) {
+            total += counts.get(b);
+        }
+        return total;
+    }
+
+    /**
+     * Return an upper bound (in us) on the `p`th percentile of the durations recorded, accurate to
+     * within a factor of 2, or 0 if none have been.  Requires `0 <= p <= 100`.
+     */
+    public long percentileMicros(double p) {
+        long total = count();
+        long seen = 0;
+        for (int b = 0; b < NUM_BUCKETS; b++) {
+            seen += counts.get(b);
+            if (seen > 0 && seen >= Math.ceil(total * p / 100)) {
+                return 1L << b;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Return a table of the nonempty buckets, one per line, with the share of durations in each.
+     */
+    @Override
+    public String toString() {
+        long total = count();
+        if (total == 0) {
+            return String.format("%s: nothing timed%n", name);
+        }
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format("%s: %d timed, median < %d us, 99th percentile < %d us%n",
+                name, total, percentileMicros(50), percentileMicros(99)));
+        for (int b = 0; b < NUM_BUCKETS; b++) {
+            long n = counts.get(b);
+            if (n == 0) {
+                continue;
+            }
+            String upper = (b == NUM_BUCKETS - 1) ? "more" : "< " + (1L << b) + " us";
+            double share = 100.0 * n / total;
+            sb.append(String.format("  %12s %8d %5.1f%% %s%n", upper, n, share,
+                    "#".repeat((int) Math.round(share / 2))));
+        }
+        return sb.toString();
+    }
+}
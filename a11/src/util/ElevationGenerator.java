@@ -1,67 +1,287 @@
 package util;
 
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 /**
  * Uses Perlin noise to generate the heights of each tile in the maze grid.
+ * <p>
+ * Elevations are computed a column of tiles at a time.  Everything that depends only on a tile's
+ * column or on the block of tiles sharing its gradients is computed once per column or block, so
+ * the inner loop does no division and writes one contiguous array.  Large grids are split into
+ * runs of columns on the common `ForkJoinPool`.  Every elevation is computed with the same
+ * arithmetic whichever way it is produced, so the results for a given `Random` do not depend on
+ * the grid's size, on how it is split, or on whether it is computed eagerly or lazily.
  */
 public class ElevationGenerator {
 
+    /**
+     * The fewest tiles for which `generateElevations()` splits work across threads.
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 18;
+
+    /**
+     * The fewest tiles of each part of the work when it is split across threads.
+     */
+    private static final int TILES_PER_TASK = 1 << 16;
+
     /**
      * Return a 2D double array with given `width` and `height` representing the elevations of each
      * tile, calculated using Perlin noise.
      */
     public static double[][] generateElevations(int width, int height, Random rand) {
-        int spread = (width + height) / 6;  // how far apart the topographic features are
-
+        Noise noise = new Noise(width, height, rand);
         double[][] elevations = new double[width][height];
 
-        // build a courser grid of random gradients
-        int gridWidth = width / spread + (width % spread == 0 ? 1 : 2);
-        int gridHeight = height / spread + (width % spread == 0 ? 1 : 2);
+        // compute elevations using Perlin's procedure, noting their range
+        Columns columns = new Columns(noise, elevations, 0, width);
+        if ((long) width * height >= PARALLEL_THRESHOLD) {
+            ForkJoinPool.commonPool().invoke(columns);
+        } else {
+            columns.compute();
+        }
 
-        double[][][] vectors = new double[gridWidth][gridHeight][2];
-        for (int i = 0; i < gridWidth; i++) {
-            for (int j = 0; j < gridHeight; j++) {
-                vectors[i][j] = randomUnitVector(rand);
-            }
+        // linearly transform all elevations into [0,1]
+        Columns normalize = new Columns(columns.minElev, columns.maxElev, elevations, 0, width);
+        if ((long) width * height >= PARALLEL_THRESHOLD) {
+            ForkJoinPool.commonPool().invoke(normalize);
+        } else {
+            normalize.compute();
         }
 
-        // compute elevations using Perlin's procedure
-        for (int i = 0; i < width; i++) {
-            for (int j = 0; j < height; j++) {
-                double x = (double) (2 * (i % spread) + 1) / (2 * spread);
-                double y = (double) (2 * (j % spread) + 1) / (2 * spread);
-
-                double nw = vectors[i / spread][j / spread][0] * x
-                        + vectors[i / spread][j / spread][1] * y;
-                double ne = vectors[i / spread + 1][j / spread][0] * (x - 1)
-                        + vectors[i / spread + 1][j / spread][1] * y;
-                double sw = vectors[i / spread][j / spread + 1][0] * x
-                        + vectors[i / spread][j / spread + 1][1] * (y - 1);
-                double se = vectors[i / spread + 1][j / spread + 1][0] * (x - 1)
-                        + vectors[i / spread + 1][j / spread + 1][1] * (y - 1);
-
-                elevations[i][j] = (nw * (1 - x) + ne * x) * (1 - y) + (sw * (1 - x) + se * x) * y;
+        return elevations;
+    }
+
+    /**
+     * Return the elevations that `generateElevations(width, height, rand)` would, computing each
+     * one only when it is asked for.  Finding the range of elevations still takes a pass over the
+     * grid, but needs memory for only one column of tiles.
+     */
+    public static Elevations lazyElevations(int width, int height, Random rand) {
+        return new Elevations(new Noise(width, height, rand));
+    }
+
+    /**
+     * The elevations of a grid of tiles, computed on demand.
+     */
+    public static final class Elevations {
+
+        private final Noise noise;
+
+        /**
+         * The range of the grid's elevations before normalization.
+         */
+        private final double minElev;
+        private final double maxElev;
+
+        private Elevations(Noise noise) {
+            this.noise = noise;
+            double[] column = new double[noise.height];
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < noise.width; i++) {
+                noise.column(i, column);
+                for (double e : column) {
+                    max = Math.max(e, max);
+                    min = Math.min(e, min);
+                }
             }
+            minElev = min;
+            maxElev = max;
         }
 
-        // linearly transform all elevations into [0,1]
-        double minElev = elevations[0][0];
-        double maxElev = elevations[0][0];
-        for (int i = 0; i < width; i++) {
-            for (int j = 0; j < height; j++) {
-                maxElev = Math.max(elevations[i][j], maxElev);
-                minElev = Math.min(elevations[i][j], minElev);
+        public int width() {
+            return noise.width;
+        }
+
+        public int height() {
+            return noise.height;
+        }
+
+        /**
+         * Return the elevation (in [0,1]) of the tile in column `i` and row `j`.  Requires
+         * `0 <= i < width()` and `0 <= j < height()`.
+         */
+        public double elevation(int i, int j) {
+            return (noise.at(i, j) - minElev) / (maxElev - minElev);
+        }
+    }
+
+    /**
+     * The random gradients of a grid of tiles, from which its (unnormalized) elevations follow.
+     */
+    private static final class Noise {
+
+        final int width;
+        final int height;
+
+        /**
+         * How far apart (in tiles) the topographic features are.
+         */
+        final int spread;
+
+        /**
+         * The components of the random unit gradient at each corner of the coarse grid of blocks.
+         */
+        final double[][] gradX;
+        final double[][] gradY;
+
+        /**
+         * The offset within its block (as a fraction of `spread`) of the center of the tiles at
+         * each index within a block, along either axis.
+         */
+        final double[] offsets;
+
+        Noise(int width, int height, Random rand) {
+            this.width = width;
+            this.height = height;
+            spread = (width + height) / 6;
+
+            // build a courser grid of random gradients
+            int gridWidth = width / spread + (width % spread == 0 ? 1 : 2);
+            int gridHeight = height / spread + (width % spread == 0 ? 1 : 2);
+
+            gradX = new double[gridWidth][gridHeight];
+            gradY = new double[gridWidth][gridHeight];
+            for (int i = 0; i < gridWidth; i++) {
+                for (int j = 0; j < gridHeight; j++) {
+                    double[] vector = randomUnitVector(rand);
+                    gradX[i][j] = vector[0];
+                    gradY[i][j] = vector[1];
+                }
+            }
+
+            offsets = new double[spread];
+            for (int k = 0; k < spread; k++) {
+                offsets[k] = (double) (2 * k + 1) / (2 * spread);
             }
         }
-        for (int i = 0; i < width; i++) {
-            for (int j = 0; j < height; j++) {
-                elevations[i][j] = (elevations[i][j] - minElev) / (maxElev - minElev);
+
+        /**
+         * Write the elevations of the tiles in column `i` to `out`, whose length must be `height`.
+         */
+        void column(int i, double[] out) {
+            int bi = i / spread;
+            double x = offsets[i % spread];
+            double[] gxWest = gradX[bi];
+            double[] gyWest = gradY[bi];
+            double[] gxEast = gradX[bi + 1];
+            double[] gyEast = gradY[bi + 1];
+            int j = 0;
+            for (int bj = 0; j < height; bj++) {
+                // The parts of the corners' dot products that depend only on the column
+                double nwX = gxWest[bj] * x;
+                double neX = gxEast[bj] * (x - 1);
+                double swX = gxWest[bj + 1] * x;
+                double seX = gxEast[bj + 1] * (x - 1);
+                int blockEnd = Math.min(j + spread, height);
+                for (int k = 0; j < blockEnd; j++, k++) {
+                    double y = offsets[k];
+                    double nw = nwX + gyWest[bj] * y;
+                    double ne = neX + gyEast[bj] * y;
+                    double sw = swX + gyWest[bj + 1] * (y - 1);
+                    double se = seX + gyEast[bj + 1] * (y - 1);
+                    out[j] = (nw * (1 - x) + ne * x) * (1 - y) + (sw * (1 - x) + se * x) * y;
+                }
             }
         }
 
-        return elevations;
+        /**
+         * Return the elevation of the tile in column `i` and row `j`, exactly as `column()` would.
+         */
+        double at(int i, int j) {
+            int bi = i / spread;
+            int bj = j / spread;
+            double x = offsets[i % spread];
+            double y = offsets[j % spread];
+            double nw = gradX[bi][bj] * x + gradY[bi][bj] * y;
+            double ne = gradX[bi + 1][bj] * (x - 1) + gradY[bi + 1][bj] * y;
+            double sw = gradX[bi][bj + 1] * x + gradY[bi][bj + 1] * (y - 1);
+            double se = gradX[bi + 1][bj + 1] * (x - 1) + gradY[bi + 1][bj + 1] * (y - 1);
+            return (nw * (1 - x) + ne * x) * (1 - y) + (sw * (1 - x) + se * x) * y;
+        }
+    }
+
+    /**
+     * Either computes the elevations of columns `lo..hi-1` of a grid, noting their range in
+     * `minElev` and `maxElev`, or maps them from a given range to [0,1], splitting large runs of
+     * columns into subtasks.
+     */
+    private static final class Columns extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * The noise to compute elevations from, or null to normalize them instead.
+         */
+        private final transient Noise noise;
+
+        private final double[][] elevations;
+        private final int lo;
+        private final int hi;
+
+        /**
+         * The range of elevations: found when computing, given when normalizing.
+         */
+        double minElev;
+        double maxElev;
+
+        /**
+         * Compute the elevations of columns `lo..hi-1` from `noise` into `elevations`.
+         */
+        Columns(Noise noise, double[][] elevations, int lo, int hi) {
+            this.noise = noise;
+            this.elevations = elevations;
+            this.lo = lo;
+            this.hi = hi;
+            minElev = Double.POSITIVE_INFINITY;
+            maxElev = Double.NEGATIVE_INFINITY;
+        }
+
+        /**
+         * Linearly map columns `lo..hi-1` of `elevations` from `[minElev, maxElev]` to [0,1].
+         */
+        Columns(double minElev, double maxElev, double[][] elevations, int lo, int hi) {
+            noise = null;
+            this.elevations = elevations;
+            this.lo = lo;
+            this.hi = hi;
+            this.minElev = minElev;
+            this.maxElev = maxElev;
+        }
+
+        @Override
+        protected void compute() {
+            int columnHeight = elevations[lo].length;
+            if (hi - lo > 1 && (long) (hi - lo) * columnHeight > 2L * TILES_PER_TASK) {
+                int mid = (lo + hi) >>> 1;
+                Columns left = (noise != null) ? new Columns(noise, elevations, lo, mid)
+                        : new Columns(minElev, maxElev, elevations, lo, mid);
+                Columns right = (noise != null) ? new Columns(noise, elevations, mid, hi)
+                        : new Columns(minElev, maxElev, elevations, mid, hi);
+                invokeAll(left, right);
+                if (noise != null) {
+                    minElev = Math.min(left.minElev, right.minElev);
+                    maxElev = Math.max(left.maxElev, right.maxElev);
+                }
+                return;
+            }
+            for (int i = lo; i < hi; i++) {
+                double[] column = elevations[i];
+                if (noise != null) {
+                    noise.column(i, column);
+                    for (double e : column) {
+                        maxElev = Math.max(e, maxElev);
+                        minElev = Math.min(e, minElev);
+                    }
+                } else {
+                    for (int j = 0; j < column.length; j++) {
+                        column[j] = (column[j] - minElev) / (maxElev - minElev);
+                    }
+                }
+            }
+        }
     }
 
     /**
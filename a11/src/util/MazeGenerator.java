@@ -1,15 +1,15 @@
 package util;
 
-import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.List;
 import java.util.Random;
-import java.util.Set;
 
 /**
  * Used to generate a "Pac-Man style" maze on which the game is played.
+ * <p>
+ * The left half of the maze is generated on a grid of cells, whose boundaries are removed in a
+ * random order to join cells into wall segments, and then mirrored.  Cells are identified by int
+ * ids, and the wall segments they form are tracked with a union-find structure, so that generating
+ * a maze allocates little beyond its own arrays.
  */
 public class MazeGenerator {
 
@@ -21,25 +21,6 @@ public class MazeGenerator {
         WALL, PATH, GHOSTBOX
     }
 
-    /**
-     * Connected components of Cells model wall segments in our generator algorithm.
-     */
-    private record Cell(int x, int y) {
-
-    }
-
-    /**
-     * Edges represent the boundaries of cells.
-     */
-    private record CellBoundary(Orientation orientation, int x, int y) {
-
-    }
-
-    /**
-     * The direction of this edge.
-     */
-    private enum Orientation {HORIZONTAL, VERTICAL}
-
     /**
      * The width of the mazes (i.e., number of path columns) produced by this generator.
      */
@@ -73,8 +54,7 @@ public class MazeGenerator {
         TileType[][] tiles = new TileType[3 * width + 2][3 * height + 2];
         fillKnownTileTypes(tiles);
 
-        HashMap<Cell, HashSet<Cell>> components = initializeCellComponents(width / 2,
-                height - 1);
+        CellComponents components = new CellComponents(width / 2, height - 1);
 
         boolean[][] horizontalEdges = new boolean[width / 2][height];
         for (boolean[] row : horizontalEdges) {
@@ -84,8 +64,7 @@ public class MazeGenerator {
         for (boolean[] row : verticalEdges) {
             Arrays.fill(row, true);
         }
-        List<CellBoundary> assignableCellBoundaries = initializeEdges(horizontalEdges,
-                verticalEdges);
+        int[] assignableCellBoundaries = initializeEdges(horizontalEdges, verticalEdges);
 
         randomlyAssignEdges(horizontalEdges, verticalEdges, assignableCellBoundaries, components);
 
@@ -153,81 +132,80 @@ public class MazeGenerator {
     }
 
     /**
-     * Return a hashmap associating each cell with its connected component. Initially, a cells
-     * connected component is the singleton set containing that cell.
-     */
-    private HashMap<Cell, HashSet<Cell>> initializeCellComponents(int w, int h) {
-        HashMap<Cell, HashSet<Cell>> components = new HashMap<>();
-        for (int i = 0; i < w; i++) {
-            for (int j = 0; j < h; j++) {
-                Cell c = new Cell(i, j);
-                components.put(c, new HashSet<>(Set.of(c)));
-            }
-        }
-        return components;
-    }
-
-    /**
-     * Initialize the edges that must be present/absent in the graph. Return a list of the edges
-     * that can be randomly determined.
+     * Initialize the edges that must be present/absent in the graph. Return the edges that can be
+     * randomly determined, as encoded by `horizontalBoundary()` and `verticalBoundary()`.
      */
-    private List<CellBoundary> initializeEdges(boolean[][] horizontalEdges,
-            boolean[][] verticalEdges) {
-        List<CellBoundary> assignableCellBoundaries = new ArrayList<>();
-
+    private int[] initializeEdges(boolean[][] horizontalEdges, boolean[][] verticalEdges) {
         int hw = horizontalEdges.length; // width of horizontal array
         int hh = horizontalEdges[0].length; // height of horizontal array
         int vw = verticalEdges.length; // width of vertical array
         int vh = verticalEdges[0].length; // height of vertical array
 
-        for (int i = 0; i < hw; i++) {
-            for (int j = 1; j < hh - 1; j++) {
-                assignableCellBoundaries.add(new CellBoundary(Orientation.HORIZONTAL, i, j));
-            }
-        }
+        // Edges that are not assignable despite lying in the ranges below
+        boolean[][] fixedHorizontal = new boolean[hw][hh];
+        boolean[][] fixedVertical = new boolean[vw][vh];
+
         // ghost box
-        assignableCellBoundaries.remove(
-                new CellBoundary(Orientation.HORIZONTAL, hw - 1, (hh - 3) / 2));
-        assignableCellBoundaries.remove(
-                new CellBoundary(Orientation.HORIZONTAL, hw - 2, (hh - 3) / 2));
-        assignableCellBoundaries.remove(
-                new CellBoundary(Orientation.HORIZONTAL, hw - 1, (hh - 1) / 2));
-        assignableCellBoundaries.remove(
-                new CellBoundary(Orientation.HORIZONTAL, hw - 2, (hh - 1) / 2));
+        fixedHorizontal[hw - 1][(hh - 3) / 2] = true;
+        fixedHorizontal[hw - 2][(hh - 3) / 2] = true;
+        fixedHorizontal[hw - 1][(hh - 1) / 2] = true;
+        fixedHorizontal[hw - 2][(hh - 1) / 2] = true;
         horizontalEdges[hw - 2][(hh - 1) / 2] = false;
-        assignableCellBoundaries.remove(
-                new CellBoundary(Orientation.HORIZONTAL, hw - 1, (hh + 1) / 2));
-        assignableCellBoundaries.remove(
-                new CellBoundary(Orientation.HORIZONTAL, hw - 2, (hh + 1) / 2));
+        fixedHorizontal[hw - 1][(hh + 1) / 2] = true;
+        fixedHorizontal[hw - 2][(hh + 1) / 2] = true;
 
         // pac man spawn spot
         if (width % 2 == 0) {
-            assignableCellBoundaries.remove(
-                    new CellBoundary(Orientation.HORIZONTAL, hw - 1, (3 * hh - 1) / 4));
+            fixedHorizontal[hw - 1][(3 * hh - 1) / 4] = true;
         }
 
-        for (int i = 1; i < vw; i++) {
-            for (int j = 0; j < vh; j++) {
-                assignableCellBoundaries.add(new CellBoundary(Orientation.VERTICAL, i, j));
-            }
-        }
         // ghost box
-        assignableCellBoundaries.remove(
-                new CellBoundary(Orientation.VERTICAL, vw - 1, (vh - 2) / 2));
-        assignableCellBoundaries.remove(new CellBoundary(Orientation.VERTICAL, vw - 1, vh / 2));
+        fixedVertical[vw - 1][(vh - 2) / 2] = true;
+        fixedVertical[vw - 1][vh / 2] = true;
         verticalEdges[vw - 1][(vh - 2) / 2] = false;
         verticalEdges[vw - 1][vh / 2] = false;
-        assignableCellBoundaries.remove(
-                new CellBoundary(Orientation.VERTICAL, vw - 2, (vh - 2) / 2));
-        assignableCellBoundaries.remove(new CellBoundary(Orientation.VERTICAL, vw - 2, vh / 2));
+        fixedVertical[vw - 2][(vh - 2) / 2] = true;
+        fixedVertical[vw - 2][vh / 2] = true;
         if (width % 2 == 1) {
             verticalEdges[vw - 2][(vh - 2) / 2] = false;
             verticalEdges[vw - 2][vh / 2] = false;
-            assignableCellBoundaries.remove(
-                    new CellBoundary(Orientation.VERTICAL, vw - 3, (vh - 2) / 2));
-            assignableCellBoundaries.remove(new CellBoundary(Orientation.VERTICAL, vw - 3, vh / 2));
+            fixedVertical[vw - 3][(vh - 2) / 2] = true;
+            fixedVertical[vw - 3][vh / 2] = true;
         }
-        return assignableCellBoundaries;
+
+        // Listed in the same order as always, so that shuffling them reproduces existing seeds
+        int[] assignableCellBoundaries = new int[hw * hh + vw * vh];
+        int count = 0;
+        for (int i = 0; i < hw; i++) {
+            for (int j = 1; j < hh - 1; j++) {
+                if (!fixedHorizontal[i][j]) {
+                    assignableCellBoundaries[count++] = horizontalBoundary(i, j);
+                }
+            }
+        }
+        for (int i = 1; i < vw; i++) {
+            for (int j = 0; j < vh; j++) {
+                if (!fixedVertical[i][j]) {
+                    assignableCellBoundaries[count++] = verticalBoundary(i, j);
+                }
+            }
+        }
+        return Arrays.copyOf(assignableCellBoundaries, count);
+    }
+
+    /**
+     * Return the code of the boundary represented by `horizontalEdges[x][y]`.  Boundary codes
+     * are nonnegative for horizontal edges and negative for vertical ones.
+     */
+    private int horizontalBoundary(int x, int y) {
+        return x * height + y;
+    }
+
+    /**
+     * Return the code of the boundary represented by `verticalEdges[x][y]`.
+     */
+    private int verticalBoundary(int x, int y) {
+        return -1 - (x * (height - 1) + y);
     }
 
     /**
@@ -236,75 +214,70 @@ public class MazeGenerator {
      * create a dead-end in the maze.
      */
     private void randomlyAssignEdges(boolean[][] horizontalEdges, boolean[][] verticalEdges,
-            List<CellBoundary> assignableCellBoundaries, HashMap<Cell, HashSet<Cell>> components) {
+            int[] assignableCellBoundaries, CellComponents components) {
         shuffle(assignableCellBoundaries, rng);
 
-        for (CellBoundary e : assignableCellBoundaries) {
-            if (e.orientation == Orientation.HORIZONTAL) {
-                HashSet<Cell> mergedComponent = new HashSet<>(
-                        components.get(new Cell(e.x, e.y - 1)));
-                mergedComponent.addAll(components.get(new Cell(e.x, e.y)));
+        for (int boundary : assignableCellBoundaries) {
+            if (boundary >= 0) {
+                int x = boundary / height;
+                int y = boundary % height;
+                int mergedSize = components.mergedSize(x, y - 1, x, y);
 
                 int numTouchingLeftEndpoint = 1;
-                numTouchingLeftEndpoint += verticalEdges[e.x][e.y] ? 1 : 0;
-                numTouchingLeftEndpoint += verticalEdges[e.x][e.y - 1] ? 1 : 0;
-                numTouchingLeftEndpoint += (e.x > 0 && horizontalEdges[e.x - 1][e.y]) ? 1 : 0;
+                numTouchingLeftEndpoint += verticalEdges[x][y] ? 1 : 0;
+                numTouchingLeftEndpoint += verticalEdges[x][y - 1] ? 1 : 0;
+                numTouchingLeftEndpoint += (x > 0 && horizontalEdges[x - 1][y]) ? 1 : 0;
 
                 int numTouchingRightEndpoint = 1;
-                if (width % 2 == 0 && e.x == (width - 2) / 2) {
+                if (width % 2 == 0 && x == (width - 2) / 2) {
                     numTouchingRightEndpoint = numTouchingLeftEndpoint;
                 } else {
-                    numTouchingRightEndpoint += verticalEdges[e.x + 1][e.y] ? 1 : 0;
-                    numTouchingRightEndpoint += verticalEdges[e.x + 1][e.y - 1] ? 1 : 0;
+                    numTouchingRightEndpoint += verticalEdges[x + 1][y] ? 1 : 0;
+                    numTouchingRightEndpoint += verticalEdges[x + 1][y - 1] ? 1 : 0;
                     numTouchingRightEndpoint +=
-                            (e.x < (width - 2) / 2 && horizontalEdges[e.x + 1][e.y]) ? 1 : 0;
+                            (x < (width - 2) / 2 && horizontalEdges[x + 1][y]) ? 1 : 0;
                 }
 
-                if (mergedComponent.size() <= 4 && numTouchingLeftEndpoint > 2 &&
+                if (mergedSize <= 4 && numTouchingLeftEndpoint > 2 &&
                         numTouchingRightEndpoint > 2) {
-                    horizontalEdges[e.x][e.y] = false;
-                    for (Cell c : mergedComponent) {
-                        components.put(c, mergedComponent);
-                    }
+                    horizontalEdges[x][y] = false;
+                    components.merge(x, y - 1, x, y);
                 }
             } else {
-                HashSet<Cell> mergedComponent = new HashSet<>(
-                        components.get(new Cell(e.x - 1, e.y)));
-                if (width % 2 == 1 && e.x == (width - 1) / 2) {
-                    // special case for center of odd width boards
-                    // double their merge component size by adding dummy cells
-                    for (Cell c : components.get(new Cell(e.x - 1, e.y))) {
-                        mergedComponent.add(new Cell(-c.x(), c.y()));
-                    }
-                } else {
-                    mergedComponent.addAll(components.get(new Cell(e.x, e.y)));
-                }
+                int x = (-1 - boundary) / (height - 1);
+                int y = (-1 - boundary) % (height - 1);
+                // special case for center of odd width boards, whose walls join their mirror images
+                boolean center = width % 2 == 1 && x == (width - 1) / 2;
+                int mergedSize = center ? components.mirroredSize(x - 1, y)
+                        : components.mergedSize(x - 1, y, x, y);
 
                 int numTouchingTopEndpoint = 1;
-                if (width % 2 == 1 && e.x == (width - 1) / 2) {
-                    numTouchingTopEndpoint += horizontalEdges[e.x - 1][e.y] ? 2 : 0;
+                if (center) {
+                    numTouchingTopEndpoint += horizontalEdges[x - 1][y] ? 2 : 0;
                 } else {
-                    numTouchingTopEndpoint += horizontalEdges[e.x - 1][e.y] ? 1 : 0;
-                    numTouchingTopEndpoint += horizontalEdges[e.x][e.y] ? 1 : 0;
+                    numTouchingTopEndpoint += horizontalEdges[x - 1][y] ? 1 : 0;
+                    numTouchingTopEndpoint += horizontalEdges[x][y] ? 1 : 0;
                 }
                 numTouchingTopEndpoint +=
-                        (e.y > 0 && verticalEdges[e.x][e.y - 1]) ? 1 : 0;
+                        (y > 0 && verticalEdges[x][y - 1]) ? 1 : 0;
 
                 int numTouchingBottomEndpoint = 1;
-                if (width % 2 == 1 && e.x == (width - 1) / 2) {
-                    numTouchingBottomEndpoint += horizontalEdges[e.x - 1][e.y + 1] ? 2 : 0;
+                if (center) {
+                    numTouchingBottomEndpoint += horizontalEdges[x - 1][y + 1] ? 2 : 0;
                 } else {
-                    numTouchingBottomEndpoint += horizontalEdges[e.x - 1][e.y + 1] ? 1 : 0;
-                    numTouchingBottomEndpoint += horizontalEdges[e.x][e.y + 1] ? 1 : 0;
+                    numTouchingBottomEndpoint += horizontalEdges[x - 1][y + 1] ? 1 : 0;
+                    numTouchingBottomEndpoint += horizontalEdges[x][y + 1] ? 1 : 0;
                 }
                 numTouchingBottomEndpoint +=
-                        (e.y < height - 2 && verticalEdges[e.x][e.y + 1]) ? 1 : 0;
+                        (y < height - 2 && verticalEdges[x][y + 1]) ? 1 : 0;
 
-                if (mergedComponent.size() <= 4 && numTouchingTopEndpoint > 2 &&
+                if (mergedSize <= 4 && numTouchingTopEndpoint > 2 &&
                         numTouchingBottomEndpoint > 2) {
-                    verticalEdges[e.x][e.y] = false;
-                    for (Cell c : mergedComponent) {
-                        components.put(c, mergedComponent);
+                    verticalEdges[x][y] = false;
+                    if (center) {
+                        components.mirror(x - 1, y);
+                    } else {
+                        components.merge(x - 1, y, x, y);
                     }
                 }
             }
@@ -356,17 +329,121 @@ public class MazeGenerator {
     }
 
     /**
-     * Shuffle the contents of `list` in place.  Each element has a uniform probability of being
-     * placed at any index in the list.  The resulting order depends on the sequence of random
+     * Shuffle the contents of `array` in place.  Each element has a uniform probability of being
+     * placed at any index in the array.  The resulting order depends on the sequence of random
      * integers provided by `rng`.
      */
-    private static <T> void shuffle(List<T> list, Random rng) {
+    private static void shuffle(int[] array, Random rng) {
         // Fisher-Yates shuffle
-        for (int i = 0; i < list.size() - 1; i += 1) {
-            int j = rng.nextInt(i, list.size());
-            T tmp = list.get(i);
-            list.set(i, list.get(j));
-            list.set(j, tmp);
+        for (int i = 0; i < array.length - 1; i += 1) {
+            int j = rng.nextInt(i, array.length);
+            int tmp = array[i];
+            array[i] = array[j];
+            array[j] = tmp;
+        }
+    }
+
+    /**
+     * The wall segments formed so far out of a `w` x `h` grid of cells, as a union-find structure
+     * over cell ids `x * h + y`.  A segment that reaches the center column of an odd-width maze
+     * joins its mirror image; its size then also counts the mirror images of its cells (those not
+     * in column 0, which are their own mirror images) up to the last time it reached the center.
+     */
+    private static class CellComponents {
+
+        private final int h;
+
+        /**
+         * The parent of each cell, or the cell itself if it is the root of its segment.
+         */
+        private final int[] parent;
+
+        /**
+         * For each root: how many cells are in its segment, how many of those are in column 0,
+         * and how many mirror images of its cells it includes.
+         */
+        private final int[] size;
+        private final int[] sizeInColumn0;
+        private final int[] mirroredCells;
+
+        /**
+         * Create a structure in which every cell of a `w` x `h` grid forms its own segment.
+         */
+        CellComponents(int w, int h) {
+            this.h = h;
+            parent = new int[w * h];
+            size = new int[w * h];
+            sizeInColumn0 = new int[w * h];
+            mirroredCells = new int[w * h];
+            for (int c = 0; c < parent.length; c++) {
+                parent[c] = c;
+                size[c] = 1;
+                sizeInColumn0[c] = (c < h) ? 1 : 0;
+            }
+        }
+
+        /**
+         * Return the root of the segment containing cell id `c`.
+         */
+        private int find(int c) {
+            while (parent[c] != c) {
+                parent[c] = parent[parent[c]]; // path halving
+                c = parent[c];
+            }
+            return c;
+        }
+
+        /**
+         * Return the size (including mirror images) of the segment rooted at `root`.
+         */
+        private int totalSize(int root) {
+            return size[root] + mirroredCells[root];
+        }
+
+        /**
+         * Return the size of the segment that joining cells `(x1, y1)` and `(x2, y2)` would form.
+         */
+        int mergedSize(int x1, int y1, int x2, int y2) {
+            int r1 = find(x1 * h + y1);
+            int r2 = find(x2 * h + y2);
+            return (r1 == r2) ? totalSize(r1) : totalSize(r1) + totalSize(r2);
+        }
+
+        /**
+         * Join the segments containing cells `(x1, y1)` and `(x2, y2)`.
+         */
+        void merge(int x1, int y1, int x2, int y2) {
+            int r1 = find(x1 * h + y1);
+            int r2 = find(x2 * h + y2);
+            if (r1 == r2) {
+                return;
+            }
+            if (size[r1] < size[r2]) {
+                int tmp = r1;
+                r1 = r2;
+                r2 = tmp;
+            }
+            parent[r2] = r1;
+            size[r1] += size[r2];
+            sizeInColumn0[r1] += sizeInColumn0[r2];
+            mirroredCells[r1] += mirroredCells[r2];
+        }
+
+        /**
+         * Return the size of the segment containing cell `(x, y)` once joined with its mirror
+         * image.
+         */
+        int mirroredSize(int x, int y) {
+            int r = find(x * h + y);
+            return 2 * size[r] - sizeInColumn0[r];
+        }
+
+        /**
+         * Join the segment containing cell `(x, y)` with its mirror image.
+         */
+        void mirror(int x, int y) {
+            int r = find(x * h + y);
+            mirroredCells[r] = size[r] - sizeInColumn0[r];
         }
     }
 }
@@ -21,6 +21,17 @@ public record Randomness(long seed) {
         return new Randomness(seed + 1);
     }
 
+    /**
+     * Return the source of randomness that is `n` steps after this one in the sequence produced by
+     * `next()`; that is, the same source as calling `next()` `n` times.  This lets simulation `n`
+     * of a sequence be reproduced (or run concurrently with the others) without generating the
+     * sources before it.  Requires `n >= 0`.
+     */
+    public Randomness advance(long n) {
+        assert n >= 0;
+        return new Randomness(seed + n);
+    }
+
     /**
      * Return a new source of randomness to be used by a submodel with ID `id`.  This facilitates
      * hierarchical submodels.
@@ -0,0 +1,137 @@
+package graph;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test suite for `ClusterHierarchy` and `HierarchicalSearch`.
+ */
+public class HierarchicalSearchTest {
+
+    /**
+     * Lengths are summed cluster by cluster, so they may differ from the reference's in the last
+     * bits.
+     */
+    static final double TOLERANCE = 1e-9;
+
+    /**
+     * Assert that `search`, having searched from `src` to `dst` without backtracking
+     * `previousEdge`, found a walk exactly when one exists, as short as the shortest one, and
+     * that the walk it reports is legal.
+     */
+    static void assertExact(HierarchicalSearch search, CompactMazeGraph graph, int src,
+            int previousEdge, int dst) {
+        double exact = TestMazes.exactDistance(graph, src, previousEdge, dst);
+        assertEquals(exact < Double.POSITIVE_INFINITY, search.found());
+        if (!search.found()) {
+            return;
+        }
+        assertEquals(exact, search.distance(), TOLERANCE);
+        int[] path = search.path();
+        assertEquals(exact,
+                TestMazes.assertLegalWalk(graph, src, previousEdge, dst, path, path.length),
+                TOLERANCE);
+        assertEquals((path.length == 0) ? -1 : path[0], search.firstEdge());
+    }
+
+    @DisplayName("WHEN the maze is a single cycle cut by cluster boundaries, THEN a traveller "
+            + "that cannot turn back goes the long way around, through every cluster.")
+    @Test
+    void testRing() {
+        CompactMazeGraph graph = TestMazes.drawn(JunctionSearchTest.RING);
+        HierarchicalSearch search = new HierarchicalSearch(new ClusterHierarchy(graph, 2));
+        int behind = graph.vertexAt(3, 2);
+        int src = graph.vertexAt(4, 2);
+        int previousEdge = graph.edgeInDirection(behind, MazeGraph.Direction.RIGHT);
+
+        search.search(src, -1, behind);
+        assertEquals(1.0, search.distance(), TOLERANCE);
+        search.search(src, previousEdge, behind);
+        assertEquals(9.0, search.distance(), TOLERANCE);
+        assertEquals(9, search.path().length);
+        assertExact(search, graph, src, previousEdge, behind);
+    }
+
+    @DisplayName("WHEN the shortest legal walk crosses clusters through a tunnel, THEN the "
+            + "search takes it.")
+    @Test
+    void testTunnel() {
+        CompactMazeGraph graph = TestMazes.drawn(JunctionSearchTest.TUNNEL);
+        HierarchicalSearch search = new HierarchicalSearch(new ClusterHierarchy(graph, 2));
+        int src = graph.vertexAt(1, 2);
+        int dst = graph.vertexAt(3, 2);
+        int previousEdge = graph.edgeInDirection(graph.vertexAt(2, 2), MazeGraph.Direction.LEFT);
+
+        search.search(src, previousEdge, dst);
+        assertEquals(3.0, search.distance(), TOLERANCE);
+        int[] path = search.path();
+        assertEquals(3, path.length);
+        assertEquals(graph.vertexAt(0, 2), graph.edgeTail(path[1]));
+        assertEquals(graph.vertexAt(4, 2), graph.edgeHead(path[1]));
+        assertExact(search, graph, src, previousEdge, dst);
+    }
+
+    @DisplayName("WHEN a traveller has just entered a dead end, THEN it has no legal walk "
+            + "anywhere else, but is already at its own vertex.")
+    @Test
+    void testDeadEnd() {
+        CompactMazeGraph graph = TestMazes.drawn(JunctionSearchTest.DEAD_ENDS);
+        HierarchicalSearch search = new HierarchicalSearch(new ClusterHierarchy(graph, 3));
+        int src = graph.vertexAt(5, 2);
+        int previousEdge = graph.edgeInDirection(graph.vertexAt(4, 2), MazeGraph.Direction.RIGHT);
+
+        search.search(src, previousEdge, graph.vertexAt(2, 2));
+        assertFalse(search.found());
+        assertEquals(-1, search.firstEdge());
+
+        search.search(src, previousEdge, src);
+        assertTrue(search.found());
+        assertEquals(0.0, search.distance());
+        assertEquals(0, search.path().length);
+        assertEquals(-1, search.firstEdge());
+    }
+
+    @DisplayName("WHEN random queries are run on generated mazes with several cluster sizes, "
+            + "THEN every walk is legal and as short as an exhaustive search's.")
+    @Test
+    void testMatchesExhaustiveSearch() {
+        for (int size : new int[]{4, 10, 25}) {
+            for (int clusterSize : new int[]{3, 7, 16}) {
+                for (long seed = 1; seed <= 2; seed++) {
+                    CompactMazeGraph graph = TestMazes.generated(size, seed);
+                    HierarchicalSearch search = new HierarchicalSearch(
+                            new ClusterHierarchy(graph, clusterSize));
+                    Random rng = new Random(seed * 131 + size * 7 + clusterSize);
+                    for (int q = 0; q < 100; q++) {
+                        int previousEdge = (rng.nextInt(4) == 0) ? -1
+                                : rng.nextInt(graph.edgeCount());
+                        int src = (previousEdge == -1) ? rng.nextInt(graph.vertexCount())
+                                : graph.edgeHead(previousEdge);
+                        int dst = (rng.nextInt(10) == 0) ? src
+                                : rng.nextInt(graph.vertexCount());
+                        search.search(src, previousEdge, dst);
+                        assertExact(search, graph, src, previousEdge, dst);
+                    }
+                }
+            }
+        }
+    }
+
+    @DisplayName("WHEN the hierarchy's distance bound is compared with exact distances, THEN "
+            + "it never overestimates.")
+    @Test
+    void testLowerBoundIsAdmissible() {
+        CompactMazeGraph graph = TestMazes.generated(10, 2110);
+        ClusterHierarchy hierarchy = new ClusterHierarchy(graph, 7);
+        Random rng = new Random(2110);
+        for (int q = 0; q < 200; q++) {
+            int v = rng.nextInt(graph.vertexCount());
+            int w = rng.nextInt(graph.vertexCount());
+            assertTrue(hierarchy.distanceLowerBound(v, w)
+                    <= TestMazes.exactDistance(graph, v, -1, w) + TOLERANCE);
+        }
+    }
+}
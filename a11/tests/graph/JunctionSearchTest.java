@@ -0,0 +1,222 @@
+package graph;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test suite for `JunctionGraph` and `JunctionSearch`.
+ */
+public class JunctionSearchTest {
+
+    /**
+     * A loop of 10 flat tiles with no junctions of its own.
+     */
+    static final String[] RING = {
+            "########",
+            "########",
+            "##....##",
+            "##.##.##",
+            "##....##",
+            "########",
+            "########",
+    };
+
+    /**
+     * A row of 5 flat tiles whose ends are joined by a tunnel.
+     */
+    static final String[] TUNNEL = {
+            "#####",
+            "#####",
+            ".....",
+            "#####",
+            "#####",
+    };
+
+    /**
+     * A corridor of 4 flat tiles with a dead end at each end.
+     */
+    static final String[] DEAD_ENDS = {
+            "#######",
+            "#######",
+            "##....#",
+            "#######",
+            "#######",
+    };
+
+    /**
+     * Assert that every vertex of `graph` is either a junction of `junctions` or lies inside a
+     * corridor where `corridorThrough()` and `positionInCorridor()` say, that corridors and their
+     * reverses agree, and that every edge belongs to exactly one corridor.
+     */
+    static void assertConsistent(CompactMazeGraph graph, JunctionGraph junctions) {
+        for (int v = 0; v < graph.vertexCount(); v++) {
+            int j = junctions.junctionAt(v);
+            if (j != -1) {
+                assertEquals(v, junctions.vertex(j));
+                continue;
+            }
+            int c = junctions.corridorThrough(v);
+            int e = junctions.legEdge(junctions.legStart(c) + junctions.positionInCorridor(v));
+            assertEquals(v, graph.edgeHead(e));
+        }
+        int edges = 0;
+        for (int c = 0; c < junctions.corridorCount(); c++) {
+            int r = junctions.reverseCorridor(c);
+            assertEquals(c, junctions.reverseCorridor(r));
+            assertEquals(junctions.legEnd(c) - junctions.legStart(c),
+                    junctions.legEnd(r) - junctions.legStart(r));
+            assertEquals(junctions.vertex(junctions.corridorTail(c)),
+                    graph.edgeTail(junctions.legEdge(junctions.legStart(c))));
+            assertEquals(junctions.vertex(junctions.corridorHead(c)),
+                    graph.edgeHead(junctions.legEdge(junctions.legEnd(c) - 1)));
+            edges += junctions.legEnd(c) - junctions.legStart(c);
+        }
+        assertEquals(graph.edgeCount(), edges);
+    }
+
+    /**
+     * Assert that `search` and `engine`, having searched from `src` to `dst` without backtracking
+     * `previousEdge`, agree on whether there is a path and on its exact length, and that the path
+     * `search` found is a legal walk of that length.
+     */
+    static void assertMatchesEngine(JunctionSearch search, DijkstraEngine engine, int src,
+            int previousEdge, int dst) {
+        CompactMazeGraph graph = engine.graph();
+        assertEquals(engine.settled(dst), search.found());
+        if (!search.found()) {
+            return;
+        }
+        assertEquals(engine.distance(dst), search.distance());
+        int[] path = new int[graph.edgeCount()];
+        int n = search.pathTo(path);
+        assertEquals(search.pathLength(), n);
+        assertEquals(search.distance(),
+                TestMazes.assertLegalWalk(graph, src, previousEdge, dst, path, n));
+        assertEquals((n == 0) ? -1 : path[0], search.firstEdge());
+    }
+
+    @DisplayName("WHEN a maze is contracted, THEN every vertex and edge is accounted for by "
+            + "junctions and corridors.")
+    @Test
+    void testContractionIsConsistent() {
+        for (String[] drawing : new String[][]{RING, TUNNEL, DEAD_ENDS}) {
+            CompactMazeGraph graph = TestMazes.drawn(drawing);
+            assertConsistent(graph, new JunctionGraph(graph));
+        }
+        for (int size : new int[]{4, 10, 25}) {
+            CompactMazeGraph graph = TestMazes.generated(size, 2110);
+            assertConsistent(graph, new JunctionGraph(graph));
+        }
+    }
+
+    @DisplayName("WHEN the maze is a single cycle, THEN vertex 0 is its only junction and a "
+            + "traveller that cannot turn back goes the long way around.")
+    @Test
+    void testRing() {
+        CompactMazeGraph graph = TestMazes.drawn(RING);
+        JunctionGraph junctions = new JunctionGraph(graph);
+        assertEquals(1, junctions.junctionCount());
+        assertEquals(0, junctions.vertex(0));
+        assertEquals(2, junctions.corridorCount());
+
+        int behind = graph.vertexAt(3, 2);
+        int src = graph.vertexAt(4, 2);
+        int previousEdge = graph.edgeInDirection(behind, MazeGraph.Direction.RIGHT);
+        JunctionSearch search = new JunctionSearch(junctions);
+        search.searchTo(src, -1, behind);
+        assertEquals(1.0, search.distance());
+        search.searchTo(src, previousEdge, behind);
+        assertEquals(9.0, search.distance());
+        assertEquals(graph.edgeInDirection(src, MazeGraph.Direction.RIGHT), search.firstEdge());
+
+        DijkstraEngine engine = new DijkstraEngine(graph);
+        engine.searchTo(src, previousEdge, behind);
+        assertMatchesEngine(search, engine, src, previousEdge, behind);
+    }
+
+    @DisplayName("WHEN the shortest legal walk passes through a tunnel, THEN the search takes it "
+            + "and both tunnel ends are junctions.")
+    @Test
+    void testTunnel() {
+        CompactMazeGraph graph = TestMazes.drawn(TUNNEL);
+        JunctionGraph junctions = new JunctionGraph(graph);
+        assertNotEquals(-1, junctions.junctionAt(graph.vertexAt(0, 2)));
+        assertNotEquals(-1, junctions.junctionAt(graph.vertexAt(4, 2)));
+
+        int src = graph.vertexAt(1, 2);
+        int dst = graph.vertexAt(3, 2);
+        int previousEdge = graph.edgeInDirection(graph.vertexAt(2, 2), MazeGraph.Direction.LEFT);
+        JunctionSearch search = new JunctionSearch(junctions);
+        search.searchTo(src, -1, dst);
+        assertEquals(2.0, search.distance());
+        assertEquals(graph.edgeInDirection(src, MazeGraph.Direction.RIGHT), search.firstEdge());
+
+        search.searchTo(src, previousEdge, dst);
+        assertEquals(3.0, search.distance());
+        int[] path = new int[graph.edgeCount()];
+        int n = search.pathTo(path);
+        assertEquals(3, n);
+        assertEquals(graph.vertexAt(0, 2), graph.edgeTail(path[1]));
+        assertEquals(graph.vertexAt(4, 2), graph.edgeHead(path[1]));
+        assertEquals(MazeGraph.Direction.LEFT, graph.edgeDirection(path[1]));
+
+        DijkstraEngine engine = new DijkstraEngine(graph);
+        engine.searchTo(src, previousEdge, dst);
+        assertMatchesEngine(search, engine, src, previousEdge, dst);
+    }
+
+    @DisplayName("WHEN a traveller has just entered a dead end, THEN it has no legal walk "
+            + "anywhere else, but is already at its own vertex.")
+    @Test
+    void testDeadEnd() {
+        CompactMazeGraph graph = TestMazes.drawn(DEAD_ENDS);
+        JunctionSearch search = new JunctionSearch(new JunctionGraph(graph));
+        int src = graph.vertexAt(5, 2);
+        int previousEdge = graph.edgeInDirection(graph.vertexAt(4, 2), MazeGraph.Direction.RIGHT);
+
+        search.searchTo(src, previousEdge, graph.vertexAt(2, 2));
+        assertFalse(search.found());
+        assertEquals(Double.POSITIVE_INFINITY, search.distance());
+        assertEquals(-1, search.firstEdge());
+
+        search.searchTo(src, previousEdge, src);
+        assertTrue(search.found());
+        assertEquals(0.0, search.distance());
+        assertEquals(0, search.pathLength());
+        assertEquals(-1, search.firstEdge());
+
+        search.aStarSearchTo(src, -1, graph.vertexAt(2, 2));
+        assertEquals(3.0, search.distance());
+    }
+
+    @DisplayName("WHEN random queries are run on generated mazes, THEN Dijkstra and A* over "
+            + "junctions find legal walks exactly as long as `DijkstraEngine`'s.")
+    @Test
+    void testMatchesDijkstraEngine() {
+        for (int size : new int[]{5, 10, 25}) {
+            for (long seed = 1; seed <= 3; seed++) {
+                CompactMazeGraph graph = TestMazes.generated(size, seed);
+                JunctionSearch search = new JunctionSearch(new JunctionGraph(graph));
+                DijkstraEngine engine = new DijkstraEngine(graph);
+                Random rng = new Random(seed * 31 + size);
+                for (int q = 0; q < 200; q++) {
+                    int previousEdge = (rng.nextInt(4) == 0) ? -1 : rng.nextInt(graph.edgeCount());
+                    int src = (previousEdge == -1) ? rng.nextInt(graph.vertexCount())
+                            : graph.edgeHead(previousEdge);
+                    int dst = (rng.nextInt(8) == 0) ? src : rng.nextInt(graph.vertexCount());
+
+                    engine.searchTo(src, previousEdge, dst);
+                    search.searchTo(src, previousEdge, dst);
+                    assertMatchesEngine(search, engine, src, previousEdge, dst);
+
+                    engine.aStarSearchTo(src, previousEdge, dst);
+                    search.aStarSearchTo(src, previousEdge, dst);
+                    assertMatchesEngine(search, engine, src, previousEdge, dst);
+                }
+            }
+        }
+    }
+}
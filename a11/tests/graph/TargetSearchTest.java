@@ -0,0 +1,136 @@
+package graph;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Test suite for `TargetSearch`.
+ */
+public class TargetSearchTest {
+
+    /**
+     * Lengths are summed from the destination backward, so a walk's length summed from its source
+     * may differ in the last bits.
+     */
+    static final double TOLERANCE = 1e-9;
+
+    /**
+     * Assert that the walk that `search` found from `src` to `dst`, starting with edge `first`,
+     * is legal for a traveller that just traversed `previousEdge`, and return its length.
+     */
+    static double walkLength(TargetSearch search, CompactMazeGraph graph, int src,
+            int previousEdge, int dst, int first) {
+        int[] walk = new int[graph.edgeCount()];
+        int n = 0;
+        for (int e = first; e != -1; e = search.edgeAfter(e)) {
+            assertTrue(n < walk.length, "walk does not end");
+            walk[n++] = e;
+        }
+        return TestMazes.assertLegalWalk(graph, src, previousEdge, dst, walk, n);
+    }
+
+    @DisplayName("WHEN two travellers at the same vertex of a cycle share a search, THEN the one "
+            + "that cannot turn back goes the long way around and the other does not.")
+    @Test
+    void testRing() {
+        CompactMazeGraph graph = TestMazes.drawn(JunctionSearchTest.RING);
+        TargetSearch search = new TargetSearch(graph);
+        int dst = graph.vertexAt(3, 2);
+        int src = graph.vertexAt(4, 2);
+        int[] sources = {src, src};
+        int[] previousEdges = {graph.edgeInDirection(dst, MazeGraph.Direction.RIGHT), -1};
+        int[] firstEdges = new int[2];
+
+        search.search(dst, sources, previousEdges, firstEdges, 2);
+        assertEquals(graph.edgeInDirection(src, MazeGraph.Direction.RIGHT), firstEdges[0]);
+        assertEquals(9.0, walkLength(search, graph, src, previousEdges[0], dst, firstEdges[0]));
+        assertEquals(graph.edgeInDirection(src, MazeGraph.Direction.LEFT), firstEdges[1]);
+        assertEquals(1.0, walkLength(search, graph, src, previousEdges[1], dst, firstEdges[1]));
+    }
+
+    @DisplayName("WHEN the shortest legal walk passes through a tunnel, THEN the search takes it.")
+    @Test
+    void testTunnel() {
+        CompactMazeGraph graph = TestMazes.drawn(JunctionSearchTest.TUNNEL);
+        TargetSearch search = new TargetSearch(graph);
+        int dst = graph.vertexAt(3, 2);
+        int src = graph.vertexAt(1, 2);
+        int[] sources = {src};
+        int[] previousEdges = {
+                graph.edgeInDirection(graph.vertexAt(2, 2), MazeGraph.Direction.LEFT)};
+        int[] firstEdges = new int[1];
+
+        search.search(dst, sources, previousEdges, firstEdges, 1);
+        int tunnel = search.edgeAfter(firstEdges[0]);
+        assertEquals(graph.vertexAt(0, 2), graph.edgeTail(tunnel));
+        assertEquals(graph.vertexAt(4, 2), graph.edgeHead(tunnel));
+        assertEquals(3.0, walkLength(search, graph, src, previousEdges[0], dst, firstEdges[0]));
+    }
+
+    @DisplayName("WHEN one traveller sharing a search is stuck in a dead end, THEN it gets no "
+            + "edge and the others still get theirs.")
+    @Test
+    void testDeadEnd() {
+        CompactMazeGraph graph = TestMazes.drawn(JunctionSearchTest.DEAD_ENDS);
+        TargetSearch search = new TargetSearch(graph);
+        int dst = graph.vertexAt(2, 2);
+        int stuck = graph.vertexAt(5, 2);
+        int free = graph.vertexAt(4, 2);
+        int[] sources = {stuck, free};
+        int[] previousEdges = {graph.edgeInDirection(free, MazeGraph.Direction.RIGHT), -1};
+        int[] firstEdges = new int[2];
+
+        search.search(dst, sources, previousEdges, firstEdges, 2);
+        assertEquals(-1, firstEdges[0]);
+        assertEquals(graph.edgeInDirection(free, MazeGraph.Direction.LEFT), firstEdges[1]);
+        assertEquals(2.0, walkLength(search, graph, free, -1, dst, firstEdges[1]));
+    }
+
+    @DisplayName("WHEN random groups of travellers share searches on generated mazes, THEN every "
+            + "walk is legal, as short as an exhaustive search's, and no longer than "
+            + "`DijkstraEngine`'s.")
+    @Test
+    void testMatchesExhaustiveSearch() {
+        int[] sources = new int[4];
+        int[] previousEdges = new int[4];
+        int[] firstEdges = new int[4];
+        for (int size : new int[]{4, 10, 25}) {
+            for (long seed = 1; seed <= 3; seed++) {
+                CompactMazeGraph graph = TestMazes.generated(size, seed);
+                TargetSearch search = new TargetSearch(graph);
+                DijkstraEngine engine = new DijkstraEngine(graph);
+                Random rng = new Random(seed * 31 + size);
+                for (int q = 0; q < 100; q++) {
+                    int dst = rng.nextInt(graph.vertexCount());
+                    int count = 1 + rng.nextInt(4);
+                    for (int k = 0; k < count; k++) {
+                        do {
+                            previousEdges[k] = (rng.nextInt(3) == 0) ? -1
+                                    : rng.nextInt(graph.edgeCount());
+                            sources[k] = (previousEdges[k] == -1)
+                                    ? rng.nextInt(graph.vertexCount())
+                                    : graph.edgeHead(previousEdges[k]);
+                        } while (sources[k] == dst);
+                    }
+                    search.search(dst, sources, previousEdges, firstEdges, count);
+                    for (int k = 0; k < count; k++) {
+                        double exact = TestMazes.exactDistance(graph, sources[k],
+                                previousEdges[k], dst);
+                        if (firstEdges[k] == -1) {
+                            assertEquals(Double.POSITIVE_INFINITY, exact);
+                            continue;
+                        }
+                        double length = walkLength(search, graph, sources[k], previousEdges[k],
+                                dst, firstEdges[k]);
+                        assertEquals(exact, length, TOLERANCE);
+                        engine.searchTo(sources[k], previousEdges[k], dst);
+                        assertTrue(length <= engine.distance(dst) + TOLERANCE);
+                    }
+                }
+            }
+        }
+    }
+}
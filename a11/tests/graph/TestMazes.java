@@ -0,0 +1,120 @@
+package graph;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import util.ElevationGenerator;
+import util.GameMap;
+import util.MazeGenerator;
+import util.MazeGenerator.TileType;
+import util.Randomness;
+
+/**
+ * Mazes and reference checks shared by the search tests.
+ */
+class TestMazes {
+
+    /**
+     * Return the graph of the maze that `GameModel.newGame()` would generate for a `size` x `size`
+     * board from `new Randomness(seed)`.
+     */
+    static CompactMazeGraph generated(int size, long seed) {
+        Randomness randomness = new Randomness(seed);
+        TileType[][] types = new MazeGenerator(size, size,
+                randomness.generatorFor("MazeGenerator")).generateMaze();
+        double[][] elevations = ElevationGenerator.generateElevations(3 * size + 2, 3 * size + 2,
+                randomness.generatorFor("ElevationGenerator"));
+        return new CompactMazeGraph(new GameMap(types, elevations));
+    }
+
+    /**
+     * Return the graph of a hand-drawn maze, given as one string per row.  '#' is a wall, '.' is a
+     * path tile at elevation 0, and a digit `d` is a path tile at elevation `d / 10`, so that
+     * edges between digits of different values have different weights.  Path tiles on opposite
+     * boundaries of the grid are joined by tunnels.  Requires that tile (2, 2) is a path tile.
+     */
+    static CompactMazeGraph drawn(String... rows) {
+        int width = rows[0].length();
+        int height = rows.length;
+        TileType[][] types = new TileType[width][height];
+        double[][] elevations = new double[width][height];
+        for (int j = 0; j < height; j++) {
+            assertEquals(width, rows[j].length(), "ragged maze drawing");
+            for (int i = 0; i < width; i++) {
+                char c = rows[j].charAt(i);
+                types[i][j] = (c == '#') ? TileType.WALL : TileType.PATH;
+                elevations[i][j] = Character.isDigit(c) ? (c - '0') / 10.0 : 0.0;
+            }
+        }
+        return new CompactMazeGraph(new GameMap(types, elevations));
+    }
+
+    /**
+     * Return the length of the shortest non-backtracking walk from vertex `src` to vertex `dst` of
+     * `graph` whose first edge does not backtrack `previousEdge` (if it is not -1), or
+     * POSITIVE_INFINITY if there is none.  Searches over edges with a textbook Dijkstra, so that
+     * every walk is considered, as a reference for the searches under test.
+     */
+    static double exactDistance(CompactMazeGraph graph, int src, int previousEdge, int dst) {
+        if (src == dst) {
+            return 0.0;
+        }
+        double[] dist = new double[graph.edgeCount()];
+        Arrays.fill(dist, Double.POSITIVE_INFINITY);
+        PriorityQueue<Integer> frontier = new PriorityQueue<>(
+                Comparator.comparingDouble(e -> dist[e]));
+        for (int e = graph.edgeStart(src); e < graph.edgeEnd(src); e++) {
+            if (previousEdge == -1 || graph.edgeHead(e) != graph.edgeTail(previousEdge)) {
+                dist[e] = graph.edgeWeight(e);
+                frontier.add(e);
+            }
+        }
+        boolean[] settled = new boolean[graph.edgeCount()];
+        while (!frontier.isEmpty()) {
+            int e = frontier.remove();
+            if (settled[e]) {
+                continue;
+            }
+            settled[e] = true;
+            int head = graph.edgeHead(e);
+            if (head == dst) {
+                return dist[e];
+            }
+            for (int f = graph.edgeStart(head); f < graph.edgeEnd(head); f++) {
+                double d = dist[e] + graph.edgeWeight(f);
+                if (graph.edgeHead(f) != graph.edgeTail(e) && d < dist[f]) {
+                    dist[f] = d;
+                    frontier.add(f);
+                }
+            }
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Assert that `edges[0..length)` is a walk in `graph` from vertex `src` to vertex `dst` that
+     * never backtracks, starting with an edge that does not backtrack `previousEdge` (if it is not
+     * -1).  Return its length, summed edge by edge from the source.
+     */
+    static double assertLegalWalk(CompactMazeGraph graph, int src, int previousEdge, int dst,
+            int[] edges, int length) {
+        int at = src;
+        int last = previousEdge;
+        double sum = 0.0;
+        for (int k = 0; k < length; k++) {
+            int e = edges[k];
+            assertEquals(at, graph.edgeTail(e), "walk is not contiguous at edge " + k);
+            if (last != -1) {
+                assertNotEquals(graph.edgeTail(last), graph.edgeHead(e),
+                        "walk backtracks at edge " + k);
+            }
+            sum += graph.edgeWeight(e);
+            at = graph.edgeHead(e);
+            last = e;
+        }
+        assertEquals(dst, at, "walk does not end at its destination");
+        return sum;
+    }
+}